@@ -0,0 +1,22 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+/** Config object the benchmark parameters are applied to. */
+public class BenchmarkConfig {
+    private final int[] values = new int[BenchmarkParameterType.values().length];
+
+    public void setValue(BenchmarkParameterType type, int value) {
+        values[type.ordinal()] = value;
+    }
+
+    public int getValue(BenchmarkParameterType type) {
+        return values[type.ordinal()];
+    }
+}
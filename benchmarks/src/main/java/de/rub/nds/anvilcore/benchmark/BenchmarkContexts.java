@@ -0,0 +1,33 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.context.AnvilContextRegistry;
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+
+/**
+ * Registers the single AnvilContext the benchmarks run in. Code that resolves the context of an
+ * extension context falls back to it, so no JUnit execution is required.
+ */
+public final class BenchmarkContexts {
+
+    private BenchmarkContexts() {}
+
+    public static String register(AnvilTestConfig config, int width, int valueCount) {
+        AnvilContextRegistry.clearAll();
+        return AnvilContextRegistry.createContext(
+                config,
+                config.toString(),
+                new BenchmarkParameterIdentifierProvider(width, valueCount));
+    }
+
+    public static void unregister(String contextId) {
+        AnvilContextRegistry.removeContext(contextId);
+    }
+}
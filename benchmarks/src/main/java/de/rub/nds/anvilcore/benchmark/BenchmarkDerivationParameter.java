@@ -0,0 +1,87 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.constraint.ConditionalConstraint;
+import de.rub.nds.anvilcore.model.constraint.FlexibleConditionalConstraintBuilder;
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic parameter with the values 0 to n-1, n is taken from the {@link
+ * BenchmarkParameterScope}. Every parameter with an odd index is constrained to differ from its
+ * predecessor unless it is 0.
+ */
+public class BenchmarkDerivationParameter extends DerivationParameter<BenchmarkConfig, Integer> {
+
+    public BenchmarkDerivationParameter(ParameterIdentifier parameterIdentifier) {
+        super(Integer.class, BenchmarkConfig.class, parameterIdentifier);
+    }
+
+    public BenchmarkDerivationParameter(ParameterIdentifier parameterIdentifier, Integer value) {
+        this(parameterIdentifier);
+        setSelectedValue(value);
+    }
+
+    private BenchmarkParameterType getType() {
+        return (BenchmarkParameterType) getParameterIdentifier().getParameterType();
+    }
+
+    @Override
+    public void applyToConfig(BenchmarkConfig config, DerivationScope derivationScope) {
+        config.setValue(getType(), getSelectedValue());
+    }
+
+    @Override
+    public List<DerivationParameter<BenchmarkConfig, Integer>> getParameterValues(
+            DerivationScope derivationScope) {
+        int valueCount =
+                ((BenchmarkParameterScope) getParameterIdentifier().getParameterScope())
+                        .getValueCount();
+        List<DerivationParameter<BenchmarkConfig, Integer>> values = new ArrayList<>();
+        for (int i = 0; i < valueCount; i++) {
+            values.add(generateValue(i));
+        }
+        return values;
+    }
+
+    @Override
+    public List<ConditionalConstraint> getDefaultConditionalConstraints(
+            DerivationScope derivationScope) {
+        List<ConditionalConstraint> constraints = new ArrayList<>();
+        if (getType().ordinal() % 2 == 1) {
+            ParameterIdentifier predecessor =
+                    new ParameterIdentifier(
+                            BenchmarkParameterType.values()[getType().ordinal() - 1],
+                            getParameterIdentifier().getParameterScope());
+            constraints.add(
+                    FlexibleConditionalConstraintBuilder.init(
+                                    "differs-from-predecessor", derivationScope)
+                            .target(this)
+                            .requiredParameter(predecessor)
+                            .predicate(
+                                    (target, required) ->
+                                            (Integer) target.getSelectedValue() == 0
+                                                    || !target.getSelectedValue()
+                                                            .equals(
+                                                                    required.get(0)
+                                                                            .getSelectedValue()))
+                            .get());
+        }
+        return constraints;
+    }
+
+    @Override
+    protected DerivationParameter<BenchmarkConfig, Integer> generateValue(Integer selectedValue) {
+        return new BenchmarkDerivationParameter(getParameterIdentifier(), selectedValue);
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.ParameterIdentifierProvider;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Provides a synthetic model of the given width in which each parameter has the same values. */
+public class BenchmarkParameterIdentifierProvider extends ParameterIdentifierProvider {
+    private final List<ParameterIdentifier> parameterIdentifiers = new ArrayList<>();
+
+    public BenchmarkParameterIdentifierProvider(int width, int valueCount) {
+        BenchmarkParameterScope scope = new BenchmarkParameterScope(valueCount);
+        for (int i = 0; i < width; i++) {
+            parameterIdentifiers.add(
+                    new ParameterIdentifier(BenchmarkParameterType.values()[i], scope));
+        }
+    }
+
+    @Override
+    public List<ParameterIdentifier> generateAllParameterIdentifiers(String anvilContextId) {
+        return new ArrayList<>(parameterIdentifiers);
+    }
+
+    // the identifiers of the superclass are cached statically, which would fix the model width
+    @Override
+    public List<ParameterIdentifier> getModelParameterIdentifiers(DerivationScope derivationScope) {
+        return new ArrayList<>(parameterIdentifiers);
+    }
+}
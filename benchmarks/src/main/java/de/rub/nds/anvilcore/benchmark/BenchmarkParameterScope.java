@@ -0,0 +1,29 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.model.parameter.ParameterScope;
+
+/** Scope of the synthetic benchmark parameters, determines how many values a parameter has. */
+public class BenchmarkParameterScope extends ParameterScope {
+    private final int valueCount;
+
+    public BenchmarkParameterScope(int valueCount) {
+        this.valueCount = valueCount;
+    }
+
+    public int getValueCount() {
+        return valueCount;
+    }
+
+    @Override
+    public String getUniqueScopeIdentifier() {
+        return "values-" + valueCount;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.annotation.AnvilTest;
+import de.rub.nds.anvilcore.teststate.AnvilTestRun;
+import java.lang.reflect.Method;
+import org.junit.platform.engine.TestDescriptor;
+import org.junit.platform.engine.UniqueId;
+import org.junit.platform.engine.support.descriptor.AbstractTestDescriptor;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.TestIdentifier;
+
+/** Test template the test runs of the reporting benchmarks belong to. */
+public class BenchmarkTemplates {
+
+    public static final String TEST_ID = "benchmark-1";
+
+    @AnvilTest(id = TEST_ID)
+    public void template() {}
+
+    /**
+     * @return a test run that is not bound to a JUnit execution
+     */
+    public static AnvilTestRun createTestRun() {
+        Method method;
+        try {
+            method = BenchmarkTemplates.class.getMethod("template");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        TestDescriptor descriptor =
+                new AbstractTestDescriptor(
+                        UniqueId.forEngine("anvil-benchmark"),
+                        "template",
+                        MethodSource.from(method)) {
+                    @Override
+                    public Type getType() {
+                        return Type.TEST;
+                    }
+                };
+        return AnvilTestRun.forFailedInitialization(TestIdentifier.from(descriptor));
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/** Dynamic value constraint used by {@link ConstraintBenchmark}. */
+public class BenchmarkValueConstraints {
+
+    public void setExtensionContext(ExtensionContext extensionContext) {}
+
+    public boolean isEven(Integer value) {
+        return value % 2 == 0;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.constraint.CompiledValueConstraint;
+import de.rub.nds.anvilcore.model.constraint.ConditionalConstraint;
+import de.rub.nds.anvilcore.model.constraint.ValueConstraint;
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import de.rwth.swc.coffee4j.model.constraints.Constraint;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluates the conditional constraint of a synthetic parameter the way coffee4j does while
+ * generating test inputs, and compares compiled value constraints with reflective evaluation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConstraintBenchmark {
+
+    private static final int VALUE_COUNT = 8;
+
+    private String contextId;
+    private Constraint conditionalConstraint;
+    private final List<List<?>> constraintArguments = new ArrayList<>();
+
+    private ValueConstraint valueConstraint;
+    private CompiledValueConstraint compiledValueConstraint;
+    private final List<Integer> values = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        contextId = BenchmarkContexts.register(new AnvilTestConfig(), 2, VALUE_COUNT);
+        DerivationScope derivationScope = new DerivationScope(2);
+        BenchmarkParameterScope scope = new BenchmarkParameterScope(VALUE_COUNT);
+        ParameterIdentifier target = new ParameterIdentifier(BenchmarkParameterType.P01, scope);
+        ParameterIdentifier required = new ParameterIdentifier(BenchmarkParameterType.P00, scope);
+
+        DerivationParameter targetParameter = target.getInstance();
+        List<ConditionalConstraint> conditionalConstraints =
+                targetParameter.getConditionalConstraints(derivationScope);
+        conditionalConstraint = conditionalConstraints.get(0).getConstraint();
+        // coffee4j passes the values the model was built from
+        List<DerivationParameter> targetValues =
+                targetParameter.getConstrainedParameterValues(derivationScope);
+        List<DerivationParameter> requiredValues =
+                required.getInstance().getConstrainedParameterValues(derivationScope);
+        for (DerivationParameter targetValue : targetValues) {
+            for (DerivationParameter requiredValue : requiredValues) {
+                constraintArguments.add(List.of(targetValue, requiredValue));
+            }
+        }
+
+        valueConstraint =
+                new ValueConstraint(target, "isEven", BenchmarkValueConstraints.class, true);
+        compiledValueConstraint =
+                CompiledValueConstraint.compile(valueConstraint, Integer.class, null);
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values.add(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkContexts.unregister(contextId);
+    }
+
+    @Benchmark
+    public void conditionalConstraint(Blackhole blackhole) {
+        for (List<?> arguments : constraintArguments) {
+            blackhole.consume(conditionalConstraint.getConstraintFunction().check(arguments));
+        }
+    }
+
+    @Benchmark
+    public void compiledValueConstraint(Blackhole blackhole) {
+        for (Integer value : values) {
+            blackhole.consume(compiledValueConstraint.isApplicable(value));
+        }
+    }
+
+    @Benchmark
+    public void compileAndEvaluateValueConstraint(Blackhole blackhole) {
+        CompiledValueConstraint compiled =
+                CompiledValueConstraint.compile(valueConstraint, Integer.class, null);
+        for (Integer value : values) {
+            blackhole.consume(compiled.isApplicable(value));
+        }
+    }
+
+    /** The evaluation used before value constraints were compiled, as a baseline. */
+    @Benchmark
+    public void reflectiveValueConstraint(Blackhole blackhole) throws Exception {
+        for (Integer value : values) {
+            Method method =
+                    valueConstraint
+                            .getClazz()
+                            .getMethod(valueConstraint.getEvaluationMethod(), Integer.class);
+            Object instance = valueConstraint.getClazz().getConstructor().newInstance();
+            Method setContextMethod =
+                    valueConstraint
+                            .getClazz()
+                            .getMethod("setExtensionContext", ExtensionContext.class);
+            setContextMethod.invoke(instance, (Object) null);
+            blackhole.consume((Boolean) method.invoke(instance, value));
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.IpmProvider;
+import de.rwth.swc.coffee4j.model.InputParameterModel;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Builds the input parameter model of synthetic derivation scopes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IpmBenchmark {
+
+    @Param({"4", "8", "16"})
+    private int width;
+
+    @Param({"4", "16"})
+    private int valueCount;
+
+    @Param({"2", "3"})
+    private int strength;
+
+    private String contextId;
+
+    @Setup
+    public void setUp() {
+        contextId = BenchmarkContexts.register(new AnvilTestConfig(), width, valueCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkContexts.unregister(contextId);
+    }
+
+    @Benchmark
+    public InputParameterModel generateIpm() {
+        // a new scope per invocation, as every test template derives its own scope
+        return IpmProvider.generateIpm(new DerivationScope(strength));
+    }
+}
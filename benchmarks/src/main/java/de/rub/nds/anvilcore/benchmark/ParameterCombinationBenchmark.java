@@ -0,0 +1,82 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.model.ParameterCombination;
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Parameter lookups as performed by test templates on every test case. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterCombinationBenchmark {
+
+    @Param({"8", "32"})
+    private int width;
+
+    private ParameterCombination parameterCombination;
+    private final List<ParameterIdentifier> identifiers = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        BenchmarkParameterScope scope = new BenchmarkParameterScope(4);
+        List<DerivationParameter> parameters = new ArrayList<>();
+        for (int i = 0; i < width; i++) {
+            ParameterIdentifier identifier =
+                    new ParameterIdentifier(BenchmarkParameterType.values()[i], scope);
+            parameters.add(new BenchmarkDerivationParameter(identifier, i % 4));
+            // lookups use distinct but equal identifiers, as test templates do
+            identifiers.add(new ParameterIdentifier(BenchmarkParameterType.values()[i], scope));
+        }
+        parameterCombination = new ParameterCombination(parameters);
+    }
+
+    @Benchmark
+    public void getParameter(Blackhole blackhole) {
+        for (ParameterIdentifier identifier : identifiers) {
+            blackhole.consume(parameterCombination.getParameter(identifier));
+        }
+    }
+
+    @Benchmark
+    public void hasParameter(Blackhole blackhole) {
+        for (ParameterIdentifier identifier : identifiers) {
+            blackhole.consume(parameterCombination.hasParameter(identifier));
+        }
+    }
+
+    @Benchmark
+    public void getParameterValues(Blackhole blackhole) {
+        blackhole.consume(parameterCombination.getParameterValues());
+    }
+
+    @Benchmark
+    public String toStringBenchmark() {
+        return parameterCombination.toString();
+    }
+}
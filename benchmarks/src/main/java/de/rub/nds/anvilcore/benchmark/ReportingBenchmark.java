@@ -0,0 +1,99 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.model.ParameterCombination;
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import de.rub.nds.anvilcore.teststate.AnvilTestCase;
+import de.rub.nds.anvilcore.teststate.AnvilTestRun;
+import de.rub.nds.anvilcore.teststate.TestResult;
+import de.rub.nds.anvilcore.teststate.reporting.AnvilJsonMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Serialization of test runs and test case identifiers. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportingBenchmark {
+
+    private static final int WIDTH = 16;
+
+    @Param({"10", "1000"})
+    private int testCaseCount;
+
+    private Path outputFolder;
+    private String contextId;
+    private AnvilJsonMapper mapper;
+    private AnvilTestRun testRun;
+    private AnvilTestCase testCase;
+
+    @Setup
+    public void setUp() throws IOException {
+        outputFolder = Files.createTempDirectory("anvil-benchmark");
+        AnvilTestConfig config = new AnvilTestConfig();
+        config.setOutputFolder(outputFolder.toString());
+        contextId = BenchmarkContexts.register(config, WIDTH, 4);
+        mapper = new AnvilJsonMapper(config);
+
+        testRun = BenchmarkTemplates.createTestRun();
+        BenchmarkParameterScope scope = new BenchmarkParameterScope(4);
+        for (int i = 0; i < testCaseCount; i++) {
+            List<DerivationParameter> parameters = new ArrayList<>();
+            for (int j = 0; j < WIDTH; j++) {
+                ParameterIdentifier identifier =
+                        new ParameterIdentifier(BenchmarkParameterType.values()[j], scope);
+                parameters.add(new BenchmarkDerivationParameter(identifier, (i + j) % 4));
+            }
+            AnvilTestCase newTestCase = new AnvilTestCase();
+            newTestCase.setParameterCombination(new ParameterCombination(parameters));
+            newTestCase.setTestResult(TestResult.STRICTLY_SUCCEEDED);
+            newTestCase.setDisplayName("[" + (i + 1) + "]");
+            testRun.addTestCase(newTestCase);
+        }
+        testCase = testRun.getTestCases().get(0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkContexts.unregister(contextId);
+        BenchmarkFiles.deleteRecursively(outputFolder);
+    }
+
+    @Benchmark
+    public String getUuid() {
+        return testCase.getUuid();
+    }
+
+    @Benchmark
+    public void saveTestRunToPath() {
+        mapper.saveTestRunToPath(testRun);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.benchmark;
+
+import de.rub.nds.anvilcore.util.ZipUtil;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Packs a result folder of JSON-like and random (pcap-like) files. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ZipBenchmark {
+
+    private static final String ZIP_FILE_NAME = "results.zip";
+
+    @Param({"100", "1000"})
+    private int fileCount;
+
+    @Param({"4096", "65536"})
+    private int fileSize;
+
+    private Path resultFolder;
+
+    @Setup
+    public void setUp() throws IOException {
+        resultFolder = Files.createTempDirectory("anvil-benchmark-zip");
+        Random random = new Random(0);
+        byte[] text = "{\"Result\":\"STRICTLY_SUCCEEDED\"}\n".repeat(fileSize / 32).getBytes();
+        byte[] binary = new byte[fileSize];
+        for (int i = 0; i < fileCount; i++) {
+            Path testFolder = Files.createDirectories(resultFolder.resolve("results/test-" + i));
+            random.nextBytes(binary);
+            Files.write(testFolder.resolve("_testRun.json"), text);
+            Files.write(testFolder.resolve("dump.pcap"), binary);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkFiles.deleteRecursively(resultFolder);
+    }
+
+    @Benchmark
+    public void packFolderToZip() throws IOException {
+        Files.deleteIfExists(resultFolder.resolve(ZIP_FILE_NAME));
+        ZipUtil.packFolderToZip(resultFolder.toString(), ZIP_FILE_NAME);
+    }
+}
@@ -21,12 +21,9 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 import org.junit.jupiter.api.TestTemplate;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.junit.jupiter.api.parallel.Execution;
-import org.junit.jupiter.api.parallel.ExecutionMode;
 
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD, ElementType.TYPE})
-@Execution(ExecutionMode.SAME_THREAD)
 @TestTemplate
 @ExtendWith(AnvilCombinatorialTestExtension.class)
 @ExtendWith(TestrunAbortedCondition.class)
@@ -11,23 +11,66 @@ package de.rub.nds.anvilcore.coffee4j.junit;
 import static org.junit.platform.commons.util.AnnotationUtils.isAnnotated;
 
 import de.rub.nds.anvilcore.annotation.AnvilTest;
+import de.rub.nds.anvilcore.context.AnvilContext;
+import de.rub.nds.anvilcore.context.AnvilContextRegistry;
+import de.rub.nds.anvilcore.execution.TemplateConcurrencyGate;
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.teststate.AnvilTestRun;
 import de.rwth.swc.coffee4j.junit.*;
 import de.rwth.swc.coffee4j.junit.provider.configuration.ConfigurationLoader;
+import de.rwth.swc.coffee4j.junit.provider.configuration.characterization.EnableFaultCharacterization;
 import de.rwth.swc.coffee4j.junit.provider.model.ModelLoader;
 import de.rwth.swc.coffee4j.model.Combination;
 import de.rwth.swc.coffee4j.model.InputParameterModel;
 import de.rwth.swc.coffee4j.model.manager.CombinatorialTestConsumerManager;
 import de.rwth.swc.coffee4j.model.manager.CombinatorialTestConsumerManagerConfiguration;
 import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.extension.ExtensionContext;
 import org.junit.jupiter.api.extension.TestTemplateInvocationContext;
 import org.junit.platform.commons.util.Preconditions;
 
 public class AnvilCombinatorialTestExtension extends CombinatorialTestExtension {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final ExtensionContext.Namespace NAMESPACE =
+            ExtensionContext.Namespace.create(AnvilCombinatorialTestExtension.class);
+    private static final String ITERATOR_KEY = TestInputIterator.class.getName();
+    private static final String PASS_KEY = TemplateConcurrencyGate.Pass.class.getName();
+    private static final String TEST_CASE_PERMITS_KEY = "testCasePermits";
+
+    /**
+     * Signals that coffee4j will not generate any further test inputs for the test template, so
+     * the remaining invocations can be completed without waiting for test inputs.
+     *
+     * @param extensionContext the extension context of the test template or one of its
+     *     invocations
+     */
+    public static void signalGenerationFinished(ExtensionContext extensionContext) {
+        TestInputIterator iterator =
+                extensionContext.getStore(NAMESPACE).get(ITERATOR_KEY, TestInputIterator.class);
+        if (iterator != null) {
+            iterator.generationFinished();
+        }
+    }
+
+    /**
+     * @param extensionContext the extension context of an invocation of a test template
+     * @return the permits bounding the concurrently executed test cases of the test template, or
+     *     null if its test cases are not executed concurrently
+     */
+    public static Semaphore getTestCasePermits(ExtensionContext extensionContext) {
+        return extensionContext.getStore(NAMESPACE).get(TEST_CASE_PERMITS_KEY, Semaphore.class);
+    }
 
     @Override
     public boolean supportsTestTemplate(ExtensionContext extensionContext) {
@@ -45,10 +88,50 @@ public class AnvilCombinatorialTestExtension extends CombinatorialTestExtension
     public Stream<TestTemplateInvocationContext> provideTestTemplateInvocationContexts(
             ExtensionContext extensionContext) {
         final Method testMethod = extensionContext.getRequiredTestMethod();
+        final AnvilContext anvilContext = AnvilContextRegistry.byExtensionContext(extensionContext);
+        final TemplateConcurrencyGate.Pass pass =
+                enterTemplate(extensionContext, anvilContext.getTemplateConcurrencyGate());
         final CombinatorialTestConsumerManagerConfiguration configuration =
                 new ConfigurationLoader().load(extensionContext);
         final TestInputIterator iterator = new TestInputIterator(extensionContext);
+        extensionContext.getStore(NAMESPACE).put(ITERATOR_KEY, iterator);
+        if (pass != null) {
+            iterator.whenDrained(pass::close);
+        }
+        final long generationStartTime = System.currentTimeMillis();
         final InputParameterModel model = new ModelLoader().load(extensionContext);
+        AnvilTestRun.forExtensionContext(extensionContext).setStrength(model.getStrength());
+        final CombinatorialTestMethodContext methodContext =
+                new CombinatorialTestMethodContext(testMethod, model);
+        final CombinatorialTestNameFormatter nameFormatter =
+                new CombinatorialTestNameFormatter("[{index}] {combination}");
+
+        // fault characterization needs the coffee4j manager, which cached test inputs bypass
+        final String cacheFolder =
+                isAnnotated(testMethod, EnableFaultCharacterization.class)
+                        ? null
+                        : anvilContext.getConfig().getTestInputCacheFolder();
+        final TestInputCache cache =
+                cacheFolder != null ? new TestInputCache(Path.of(cacheFolder)) : null;
+        final String fingerprint =
+                cache != null
+                        ? TestInputCache.fingerprint(
+                                DerivationScope.fromExtensionContext(extensionContext), model)
+                        : null;
+
+        if (fingerprint != null && !anvilContext.getConfig().isIgnoreCache()) {
+            final List<Combination> cachedTestInputs = cache.load(fingerprint, model);
+            if (cachedTestInputs != null && !cachedTestInputs.isEmpty()) {
+                return provideCachedInvocationContexts(
+                        extensionContext,
+                        cachedTestInputs,
+                        iterator,
+                        nameFormatter,
+                        methodContext,
+                        System.currentTimeMillis() - generationStartTime);
+            }
+        }
+
         final CombinatorialTestConsumerManager manager =
                 new CombinatorialTestConsumerManager(configuration, iterator::add, model);
 
@@ -56,6 +139,11 @@ public class AnvilCombinatorialTestExtension extends CombinatorialTestExtension
 
         manager.generateInitialTests();
 
+        if (fingerprint != null) {
+            cache.store(fingerprint, model, new ArrayList<>(iterator.getTestInputQueue()));
+            AnvilTestRun.forExtensionContext(extensionContext).setGenerationCacheStatus("miss");
+        }
+
         CombinatorialTestExtension.getStore(extensionContext)
                 .put(
                         CombinatorialTestExecutionCallback.REPORTERS_KEY,
@@ -63,15 +151,73 @@ public class AnvilCombinatorialTestExtension extends CombinatorialTestExtension
         CombinatorialTestExtension.getStore(extensionContext)
                 .put(CombinatorialTestExecutionCallback.MANAGER_KEY, manager);
 
-        final CombinatorialTestMethodContext methodContext =
-                new CombinatorialTestMethodContext(testMethod, model);
-        final CombinatorialTestNameFormatter nameFormatter =
-                new CombinatorialTestNameFormatter("[{index}] {combination}");
-
         Preconditions.condition(iterator.hasNext(), "Error: no test inputs were generated!");
         return StreamSupport.stream(
                         Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
-                .map(testInput -> createInvocationContext(nameFormatter, methodContext, testInput));
+                .map(
+                        testInput ->
+                                createInvocationContext(
+                                        nameFormatter, methodContext, testInput, iterator, true));
+    }
+
+    /**
+     * Executes test inputs taken from the {@link TestInputCache} without involving a coffee4j
+     * manager. As no manager reports the generation and the end of the input group, the test run
+     * is prepared here.
+     */
+    private Stream<TestTemplateInvocationContext> provideCachedInvocationContexts(
+            ExtensionContext extensionContext,
+            List<Combination> cachedTestInputs,
+            TestInputIterator iterator,
+            CombinatorialTestNameFormatter nameFormatter,
+            CombinatorialTestMethodContext methodContext,
+            long loadTimeMillis) {
+        LOGGER.debug(
+                "Using {} cached test inputs for {}",
+                cachedTestInputs.size(),
+                extensionContext.getRequiredTestMethod().getName());
+        cachedTestInputs.forEach(iterator::add);
+        iterator.generationFinished();
+
+        AnvilTestRun testRun = AnvilTestRun.forExtensionContext(extensionContext);
+        testRun.setGenerationTimeMillis(loadTimeMillis);
+        testRun.setGenerationCacheStatus("hit");
+        testRun.setExpectedTestCases(cachedTestInputs.size());
+        testRun.setReadyForCompletion(true);
+
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .map(
+                        testInput ->
+                                createInvocationContext(
+                                        nameFormatter, methodContext, testInput, iterator, false));
+    }
+
+    /**
+     * Waits until the test template may start according to the {@link TemplateConcurrencyGate}. The
+     * returned pass has to be released once the last test case of the template finished. It is
+     * also released when JUnit closes the store of the test template, in case the test cases never
+     * finished.
+     *
+     * @return the pass of the test template, or null if the gate is disabled
+     */
+    private TemplateConcurrencyGate.Pass enterTemplate(
+            ExtensionContext extensionContext, TemplateConcurrencyGate gate) {
+        if (!gate.isEnabled()) {
+            return null;
+        }
+        final TemplateConcurrencyGate.Pass pass;
+        try {
+            pass = gate.enter(extensionContext.getRequiredTestClass());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while waiting for the test template to start", e);
+            throw new RuntimeException(e);
+        }
+        ExtensionContext.Store store = extensionContext.getStore(NAMESPACE);
+        store.put(PASS_KEY, (ExtensionContext.Store.CloseableResource) pass::close);
+        store.put(TEST_CASE_PERMITS_KEY, gate.newTestCasePermits());
+        return pass;
     }
 
     private void diagnoseConstraints(
@@ -90,7 +236,10 @@ public class AnvilCombinatorialTestExtension extends CombinatorialTestExtension
     private TestTemplateInvocationContext createInvocationContext(
             CombinatorialTestNameFormatter nameFormatter,
             CombinatorialTestMethodContext methodContext,
-            Combination testInput) {
-        return new AnvilCombinatorialTestInvocationContext(nameFormatter, methodContext, testInput);
+            Combination testInput,
+            TestInputIterator iterator,
+            boolean submitResults) {
+        return new AnvilCombinatorialTestInvocationContext(
+                nameFormatter, methodContext, testInput, iterator, submitResults);
     }
 }
@@ -21,14 +21,28 @@ public class AnvilCombinatorialTestInvocationContext implements TestTemplateInvo
     private final CombinatorialTestNameFormatter nameFormatter;
     private final CombinatorialTestMethodContext methodContext;
     private final Combination testInput;
+    private final TestInputIterator iterator;
+    // false if the test input was not generated by a coffee4j manager, e.g. taken from the cache
+    private final boolean submitResults;
 
     public AnvilCombinatorialTestInvocationContext(
             CombinatorialTestNameFormatter nameFormatter,
             CombinatorialTestMethodContext methodContext,
             Combination testInput) {
+        this(nameFormatter, methodContext, testInput, null, true);
+    }
+
+    AnvilCombinatorialTestInvocationContext(
+            CombinatorialTestNameFormatter nameFormatter,
+            CombinatorialTestMethodContext methodContext,
+            Combination testInput,
+            TestInputIterator iterator,
+            boolean submitResults) {
         this.nameFormatter = nameFormatter;
         this.methodContext = methodContext;
         this.testInput = testInput;
+        this.iterator = iterator;
+        this.submitResults = submitResults;
     }
 
     public String getDisplayName(int invocationIndex) {
@@ -36,9 +50,24 @@ public class AnvilCombinatorialTestInvocationContext implements TestTemplateInvo
     }
 
     public List<Extension> getAdditionalExtensions() {
+        if (iterator == null) {
+            return Arrays.asList(
+                    new TestCaseCreator(this.testInput),
+                    new TestCaseResolver(),
+                    new CombinatorialTestExecutionCallback(this.testInput));
+        }
+        if (!submitResults) {
+            return Arrays.asList(
+                    new TestCaseCreator(this.testInput),
+                    new TestCaseResolver(),
+                    new TestInputCompletionWatcher(iterator));
+        }
         return Arrays.asList(
                 new TestCaseCreator(this.testInput),
                 new TestCaseResolver(),
-                new CombinatorialTestExecutionCallback(this.testInput));
+                SynchronizedExtensionProxy.wrap(
+                        new CombinatorialTestExecutionCallback(this.testInput),
+                        iterator.getResultSubmissionLock()),
+                new TestInputCompletionWatcher(iterator));
     }
 }
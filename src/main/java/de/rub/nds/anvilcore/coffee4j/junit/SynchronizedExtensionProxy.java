@@ -0,0 +1,51 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.coffee4j.junit;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.junit.jupiter.api.extension.Extension;
+
+/**
+ * Wraps a JUnit extension such that all of its callbacks are executed while holding a shared lock.
+ * This is used for the coffee4j execution callback, as the {@link
+ * de.rwth.swc.coffee4j.model.manager.CombinatorialTestConsumerManager} it reports test results to
+ * is not thread-safe. The proxy implements all interfaces of the wrapped extension, so JUnit
+ * invokes the same callbacks as for the extension itself.
+ */
+final class SynchronizedExtensionProxy {
+
+    private SynchronizedExtensionProxy() {}
+
+    static Extension wrap(Extension extension, Object lock) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = extension.getClass(); type != null; type = type.getSuperclass()) {
+            interfaces.addAll(Arrays.asList(type.getInterfaces()));
+        }
+        return (Extension)
+                Proxy.newProxyInstance(
+                        extension.getClass().getClassLoader(),
+                        interfaces.toArray(new Class<?>[0]),
+                        (proxy, method, args) -> {
+                            if (method.getDeclaringClass() == Object.class) {
+                                return method.invoke(extension, args);
+                            }
+                            synchronized (lock) {
+                                try {
+                                    return method.invoke(extension, args);
+                                } catch (InvocationTargetException e) {
+                                    throw e.getCause();
+                                }
+                            }
+                        });
+    }
+}
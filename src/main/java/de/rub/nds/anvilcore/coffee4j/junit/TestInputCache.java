@@ -0,0 +1,309 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.coffee4j.junit;
+
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rwth.swc.coffee4j.model.Combination;
+import de.rwth.swc.coffee4j.model.InputParameterModel;
+import de.rwth.swc.coffee4j.model.Parameter;
+import de.rwth.swc.coffee4j.model.Value;
+import de.rwth.swc.coffee4j.model.constraints.Constraint;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * On-disk cache of the initial test inputs coffee4j generated for an input parameter model. Test
+ * inputs are stored as value indices per parameter and keyed by a fingerprint of the model, i.e.
+ * the model type of the {@link DerivationScope}, the strength, all parameters with their
+ * constrained values and the definitions of all constraints. A template whose model did not
+ * change can hence reuse the test inputs of an earlier run instead of generating the covering
+ * array again. As no coffee4j manager is involved for cached test inputs, templates with fault
+ * characterization do not use the cache.
+ */
+class TestInputCache {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final int CACHE_FILE_MAGIC = 0x414e5643;
+    private static final int CACHE_FILE_VERSION = 2;
+    private static final String CACHE_FILE_SUFFIX = ".inputs";
+
+    // constraints with more combinations of parameter values prevent caching
+    private static final long MAX_CONSTRAINT_EVALUATIONS = 1 << 16;
+
+    private final Path cacheFolder;
+
+    TestInputCache(Path cacheFolder) {
+        this.cacheFolder = cacheFolder;
+    }
+
+    /**
+     * Computes a stable fingerprint of the given model. Values are identified by a canonical
+     * encoding of the value they select and constraints by their name, their parameters and their
+     * result for every combination of the values of these parameters, so changes to the logic of
+     * a constraint lead to a different fingerprint even if its name stays the same.
+     *
+     * @param derivationScope the scope the model was derived from
+     * @param model the input parameter model
+     * @return hex encoded SHA-256 fingerprint, or null if the model has no stable encoding, e.g.
+     *     because a value does not implement {@link Object#toString()}, in which case the test
+     *     inputs must not be cached
+     */
+    static String fingerprint(DerivationScope derivationScope, InputParameterModel model) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not possible...", e);
+        }
+        update(digest, "version:" + CACHE_FILE_VERSION);
+        update(digest, "modelType:" + derivationScope.getModelType());
+        update(digest, "strength:" + model.getStrength());
+        Map<String, Parameter> parametersByName = new HashMap<>();
+        for (Parameter parameter : model.getParameters()) {
+            parametersByName.put(parameter.getName(), parameter);
+            update(digest, "parameter:" + parameter.getName());
+            for (Value value : parameter.getValues()) {
+                String encodedValue = encodeValue(value.get());
+                if (encodedValue == null) {
+                    LOGGER.debug(
+                            "Not caching test inputs, value {} of {} has no stable encoding",
+                            value.get(),
+                            parameter.getName());
+                    return null;
+                }
+                update(digest, "value:" + encodedValue);
+            }
+        }
+        for (Constraint constraint : model.getExclusionConstraints()) {
+            update(digest, "constraint:" + constraint.getName());
+            List<Parameter> constrainedParameters = new ArrayList<>();
+            for (String parameterName : constraint.getParameterNames()) {
+                update(digest, "constrainedParameter:" + parameterName);
+                constrainedParameters.add(parametersByName.get(parameterName));
+            }
+            if (!updateTruthTable(digest, constraint, constrainedParameters)) {
+                LOGGER.debug(
+                        "Not caching test inputs, constraint {} is too large to be encoded",
+                        constraint.getName());
+                return null;
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Encodes a value independently of object identities. Derivation parameters are encoded by
+     * their type and selected value, arrays and collections by their elements.
+     *
+     * @return the encoded value, or null if it has no stable encoding
+     */
+    static String encodeValue(Object value) {
+        if (value == null) {
+            return "null";
+        }
+        if (value instanceof DerivationParameter<?, ?> parameter) {
+            String selectedValue = encodeValue(parameter.getSelectedValue());
+            return selectedValue != null
+                    ? parameter.getParameterIdentifier().name() + "=" + selectedValue
+                    : null;
+        }
+        if (value instanceof byte[] bytes) {
+            return "bytes:" + HexFormat.of().formatHex(bytes);
+        }
+        if (value instanceof Enum<?> constant) {
+            return constant.getDeclaringClass().getName() + "." + constant.name();
+        }
+        if (value.getClass().isArray() || value instanceof Collection<?>) {
+            List<Object> elements = new ArrayList<>();
+            if (value instanceof Collection<?> collection) {
+                elements.addAll(collection);
+            } else {
+                for (int i = 0; i < Array.getLength(value); i++) {
+                    elements.add(Array.get(value, i));
+                }
+            }
+            StringJoiner joiner = new StringJoiner(",", "[", "]");
+            for (Object element : elements) {
+                String encodedElement = encodeValue(element);
+                if (encodedElement == null) {
+                    return null;
+                }
+                joiner.add(encodedElement);
+            }
+            return joiner.toString();
+        }
+        try {
+            if (value.getClass().getMethod("toString").getDeclaringClass() == Object.class) {
+                // the default representation contains the identity hash code
+                return null;
+            }
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+        return value.getClass().getName() + ":" + value;
+    }
+
+    /**
+     * Adds the result of the constraint for every combination of the values of its parameters.
+     *
+     * @return false if there are too many combinations to evaluate
+     */
+    private static boolean updateTruthTable(
+            MessageDigest digest, Constraint constraint, List<Parameter> constrainedParameters) {
+        long combinations = 1;
+        for (Parameter parameter : constrainedParameters) {
+            if (parameter == null) {
+                // the constraint refers to a parameter that is not modeled
+                update(digest, "unknownParameter");
+                return true;
+            }
+            combinations *= parameter.getValues().size();
+            if (combinations > MAX_CONSTRAINT_EVALUATIONS) {
+                return false;
+            }
+        }
+        int[] valueIndices = new int[constrainedParameters.size()];
+        List<Object> arguments = new ArrayList<>(constrainedParameters.size());
+        for (long i = 0; i < combinations; i++) {
+            arguments.clear();
+            for (int j = 0; j < valueIndices.length; j++) {
+                arguments.add(constrainedParameters.get(j).getValues().get(valueIndices[j]).get());
+            }
+            digest.update(constraint.getConstraintFunction().check(arguments) ? (byte) 1 : 0);
+            // advance to the next combination of value indices
+            for (int j = valueIndices.length - 1; j >= 0; j--) {
+                if (++valueIndices[j] < constrainedParameters.get(j).getValues().size()) {
+                    break;
+                }
+                valueIndices[j] = 0;
+            }
+        }
+        return true;
+    }
+
+    private static void update(MessageDigest digest, String element) {
+        digest.update(element.getBytes(StandardCharsets.UTF_8));
+        // separate elements to avoid ambiguous concatenations
+        digest.update((byte) 0);
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the model
+     * @param model the model the cached test inputs are restored for
+     * @return the cached test inputs, or null if there are none or they could not be read
+     */
+    List<Combination> load(String fingerprint, InputParameterModel model) {
+        Path cacheFile = getCacheFile(fingerprint);
+        if (!Files.isRegularFile(cacheFile)) {
+            return null;
+        }
+        List<Parameter> parameters = model.getParameters();
+        try (DataInputStream input =
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (input.readInt() != CACHE_FILE_MAGIC || input.readInt() != CACHE_FILE_VERSION) {
+                LOGGER.warn("Ignoring test input cache file {} of unknown format", cacheFile);
+                return null;
+            }
+            int parameterCount = input.readInt();
+            if (parameterCount != parameters.size()) {
+                LOGGER.warn("Ignoring test input cache file {} for different model", cacheFile);
+                return null;
+            }
+            for (Parameter parameter : parameters) {
+                if (!parameter.getName().equals(input.readUTF())
+                        || parameter.getValues().size() != input.readInt()) {
+                    LOGGER.warn("Ignoring test input cache file {} for different model", cacheFile);
+                    return null;
+                }
+            }
+
+            int testInputCount = input.readInt();
+            List<Combination> testInputs = new ArrayList<>(testInputCount);
+            for (int i = 0; i < testInputCount; i++) {
+                Map<Parameter, Value> parameterValueMap = new LinkedHashMap<>();
+                for (Parameter parameter : parameters) {
+                    int valueIndex = input.readInt();
+                    if (valueIndex >= 0) {
+                        parameterValueMap.put(parameter, parameter.getValues().get(valueIndex));
+                    }
+                }
+                testInputs.add(new Combination(parameterValueMap));
+            }
+            return testInputs;
+        } catch (IOException | IndexOutOfBoundsException e) {
+            LOGGER.warn("Failed to read test input cache file {}", cacheFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the given test inputs. Failing to write the cache does not affect the test execution.
+     *
+     * @param fingerprint the fingerprint of the model
+     * @param model the model the test inputs were generated for
+     * @param testInputs the test inputs to store
+     */
+    void store(String fingerprint, InputParameterModel model, Collection<Combination> testInputs) {
+        Path cacheFile = getCacheFile(fingerprint);
+        List<Parameter> parameters = model.getParameters();
+        try {
+            Files.createDirectories(cacheFolder);
+            Path temporaryFile = Files.createTempFile(cacheFolder, fingerprint, ".tmp");
+            try (DataOutputStream output =
+                    new DataOutputStream(
+                            new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(CACHE_FILE_MAGIC);
+                output.writeInt(CACHE_FILE_VERSION);
+                output.writeInt(parameters.size());
+                for (Parameter parameter : parameters) {
+                    output.writeUTF(parameter.getName());
+                    output.writeInt(parameter.getValues().size());
+                }
+                output.writeInt(testInputs.size());
+                for (Combination testInput : testInputs) {
+                    Map<Parameter, Value> parameterValueMap = testInput.getParameterValueMap();
+                    for (Parameter parameter : parameters) {
+                        Value value = parameterValueMap.get(parameter);
+                        output.writeInt(value != null ? parameter.getValues().indexOf(value) : -1);
+                    }
+                }
+            }
+            // concurrent templates with the same model may store the same file
+            Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOGGER.warn("Failed to write test input cache file {}", cacheFile, e);
+        }
+    }
+
+    private Path getCacheFile(String fingerprint) {
+        return cacheFolder.resolve(fingerprint + CACHE_FILE_SUFFIX);
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.coffee4j.junit;
+
+import java.util.Optional;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.TestWatcher;
+
+/**
+ * Reports the end of a test invocation back to the {@link TestInputIterator} that handed out its
+ * test input. JUnit notifies test watchers exactly once per invocation and only after all other
+ * callbacks, including the submission of the test result to coffee4j, have been executed.
+ */
+class TestInputCompletionWatcher implements TestWatcher {
+
+    private final TestInputIterator iterator;
+
+    TestInputCompletionWatcher(TestInputIterator iterator) {
+        this.iterator = iterator;
+    }
+
+    @Override
+    public void testDisabled(ExtensionContext context, Optional<String> reason) {
+        iterator.testInputCompleted();
+    }
+
+    @Override
+    public void testSuccessful(ExtensionContext context) {
+        iterator.testInputCompleted();
+    }
+
+    @Override
+    public void testAborted(ExtensionContext context, Throwable cause) {
+        iterator.testInputCompleted();
+    }
+
+    @Override
+    public void testFailed(ExtensionContext context, Throwable cause) {
+        iterator.testInputCompleted();
+    }
+}
@@ -20,6 +20,9 @@ import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import org.junit.jupiter.api.extension.ExtensionContext;
 
 /**
@@ -28,54 +31,169 @@ import org.junit.jupiter.api.extension.ExtensionContext;
  * the execution queue while executing elements from the queue. Consequently, it is not possible to
  * add fault characterization test inputs. Therefore, this iterator decouples the actual queue from
  * the stream by having and internal queue and only allowing access through well defined public
- * methods. This iterator is NOT thread-safe and should not be used with parallel test execution in
- * junit-jupiter!
+ * methods.
+ *
+ * <p>Test inputs may be handed out to several consumers and may be executed concurrently. An input
+ * counts as in flight from {@link #next()} until {@link #testInputCompleted()} has been called for
+ * it. The iterator is exhausted as soon as the queue is drained and either coffee4j signalled that
+ * the generation of test inputs is done or no input is in flight anymore, as only the results of
+ * inputs in flight may lead to additional fault characterization inputs. Consumers are woken up
+ * whenever one of these conditions changes, there is no polling involved. Once the iterator is
+ * exhausted and no input is in flight anymore, the {@link #whenDrained(Runnable) drained action}
+ * runs.
  */
 class TestInputIterator implements Iterator<Combination> {
 
-    private final BlockingDeque<Combination> testInputQueue = new LinkedBlockingDeque<>();
-    private final ExtensionContext extensionContext;
+    // only used to notice aborted test runs while inputs are in flight
+    private static final long ABORT_CHECK_INTERVAL_MILLIS = 1000;
 
-    synchronized void add(Combination testInput) {
-        testInputQueue.add(testInput);
-    }
+    private final BlockingDeque<Combination> testInputQueue = new LinkedBlockingDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition stateChanged = lock.newCondition();
+    private final Object resultSubmissionLock = new Object();
+    private final BooleanSupplier testRunTerminated;
+    private int inFlightTestInputs = 0;
+    private boolean generationFinished = false;
+    private boolean exhausted = false;
+    private Runnable drainedAction;
 
-    public TestInputIterator(ExtensionContext context) {
-        extensionContext = context;
+    void add(Combination testInput) {
+        lock.lock();
+        try {
+            testInputQueue.add(testInput);
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
     }
 
-    @Override
-    public boolean hasNext() {
+    public TestInputIterator(ExtensionContext extensionContext) {
         ExtensionContext resolvedContext =
                 Utils.getTemplateContainerExtensionContext(extensionContext);
         String testId = TestIdResolver.resolveTestId(resolvedContext.getRequiredTestMethod());
-
         AnvilContext context = AnvilContextRegistry.byExtensionContext(extensionContext);
-        while (context != null && !context.testRunIsFinished(testId)) {
-            try {
-                Combination nextTestInput = testInputQueue.poll(3, TimeUnit.SECONDS);
-                if (nextTestInput != null) {
-                    testInputQueue.addFirst(nextTestInput);
-                    return true;
-                } else {
+        this.testRunTerminated =
+                () -> context == null || context.isAborted() || context.testRunIsFinished(testId);
+    }
+
+    /**
+     * @param testRunTerminated tells whether the test run was aborted or finished, in which case
+     *     no test inputs are handed out anymore
+     */
+    TestInputIterator(BooleanSupplier testRunTerminated) {
+        this.testRunTerminated = testRunTerminated;
+    }
+
+    @Override
+    public boolean hasNext() {
+        Runnable action = null;
+        lock.lock();
+        try {
+            while (testInputQueue.isEmpty()) {
+                if (generationFinished || inFlightTestInputs == 0 || isTestRunTerminated()) {
+                    exhausted = true;
+                    action = takeDrainedAction();
                     return false;
                 }
-            } catch (InterruptedException ignored) {
+                stateChanged.await(ABORT_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+            if (action != null) {
+                action.run();
             }
         }
+    }
 
-        return false;
+    private boolean isTestRunTerminated() {
+        return testRunTerminated.getAsBoolean();
     }
 
     @Override
     public Combination next() {
-        final Combination nextTestInput = testInputQueue.poll();
+        lock.lock();
+        try {
+            final Combination nextTestInput = testInputQueue.poll();
 
-        if (nextTestInput == null) {
-            throw new NoSuchElementException("No more elements in iterator");
+            if (nextTestInput == null) {
+                throw new NoSuchElementException("No more elements in iterator");
+            }
+
+            inFlightTestInputs++;
+            return nextTestInput;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Called once the execution of a test input handed out by {@link #next()} has finished. */
+    void testInputCompleted() {
+        Runnable action;
+        lock.lock();
+        try {
+            inFlightTestInputs--;
+            stateChanged.signalAll();
+            action = takeDrainedAction();
+        } finally {
+            lock.unlock();
+        }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    /**
+     * Sets the action to run once the iterator is exhausted and the last test input handed out
+     * has completed. The action runs at most once and on the thread that noticed the condition.
+     *
+     * @param action the action to run
+     */
+    void whenDrained(Runnable action) {
+        lock.lock();
+        try {
+            drainedAction = action;
+            action = takeDrainedAction();
+        } finally {
+            lock.unlock();
         }
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    // must be called while holding the lock
+    private Runnable takeDrainedAction() {
+        if (!exhausted || inFlightTestInputs > 0) {
+            return null;
+        }
+        Runnable action = drainedAction;
+        drainedAction = null;
+        return action;
+    }
+
+    /**
+     * Called once coffee4j finished the input group, i.e. no further test inputs will be added,
+     * including those of the fault characterization.
+     */
+    void generationFinished() {
+        lock.lock();
+        try {
+            generationFinished = true;
+            stateChanged.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
 
-        return nextTestInput;
+    /**
+     * @return the lock that serializes the submission of test results to the coffee4j manager
+     */
+    Object getResultSubmissionLock() {
+        return resultSubmissionLock;
     }
 
     public BlockingQueue<Combination> getTestInputQueue() {
@@ -0,0 +1,36 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.constants;
+
+/** Determines how packets of test cases are captured. */
+public enum PcapCaptureMode {
+    /** Every test case opens its own capture handle and capture thread. */
+    ISOLATED("isolated"),
+    /**
+     * Every test case opens its own capture handle, packets are kept in a bounded direct buffer
+     * instead of a temporary file.
+     */
+    BUFFERED("buffered"),
+    /**
+     * All test cases share one capture handle per network interface, packets are assigned to the
+     * running test cases in memory.
+     */
+    SHARED("shared");
+
+    private final String mode;
+
+    PcapCaptureMode(final String mode) {
+        this.mode = mode;
+    }
+
+    @Override
+    public String toString() {
+        return this.mode;
+    }
+}
@@ -10,22 +10,42 @@ package de.rub.nds.anvilcore.context;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import de.rub.nds.anvilcore.execution.AnvilListener;
+import de.rub.nds.anvilcore.execution.EndpointConcurrencyLimiter;
+import de.rub.nds.anvilcore.execution.IncrementalRun;
+import de.rub.nds.anvilcore.execution.StrengthScheduler;
+import de.rub.nds.anvilcore.execution.TemplateConcurrencyGate;
 import de.rub.nds.anvilcore.model.ParameterIdentifierProvider;
-import de.rub.nds.anvilcore.teststate.AnvilTestCase;
 import de.rub.nds.anvilcore.teststate.AnvilTestRun;
+import de.rub.nds.anvilcore.teststate.FailureDetailDictionary;
 import de.rub.nds.anvilcore.teststate.TestResult;
 import de.rub.nds.anvilcore.teststate.reporting.AnvilJsonMapper;
 import de.rub.nds.anvilcore.teststate.reporting.MetadataFetcher;
 import de.rub.nds.anvilcore.teststate.reporting.ScoreContainer;
+import de.rub.nds.anvilcore.util.ParallelZipPackager;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.extension.ExtensionContext;
 
 public class AnvilContext {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    /** Endpoint key used for all test cases if no endpoint resolver has been set. */
+    public static final String DEFAULT_ENDPOINT = "default";
+
+    /** Name of the zip archive of the results, created in the output folder. */
+    public static final String RESULT_ZIP_FILE_NAME = "report.zip";
+
     private final AnvilTestConfig config;
     private final String configString;
     private final AnvilJsonMapper mapper;
@@ -34,11 +54,19 @@ public class AnvilContext {
 
     private AnvilListener listener;
 
+    private final EndpointConcurrencyLimiter endpointConcurrencyLimiter;
+    private final TemplateConcurrencyGate templateConcurrencyGate;
+    private Function<ExtensionContext, String> endpointResolver =
+            extensionContext -> DEFAULT_ENDPOINT;
+
     private final ParameterIdentifierProvider parameterIdentifierProvider;
 
-    private long totalTestRuns = 0;
-    private long testRunsDone = 0;
-    private long testCases = 0;
+    /** Completion futures of all pcap captures that did not write their pcap file yet. */
+    private final Set<CompletableFuture<?>> pendingPcapCaptures = ConcurrentHashMap.newKeySet();
+
+    private volatile long totalTestRuns = 0;
+    private final AtomicLong testRunsDone = new AtomicLong();
+    private final LongAdder testCases = new LongAdder();
     private final Date creationTime = new Date();
     private Date testStartTime;
 
@@ -49,27 +77,43 @@ public class AnvilContext {
      * A Map that keeps track of all the active test runs in the current context. The keys in this
      * map are test IDs of test runs, and the values are the test runs.
      */
-    private final Map<String, AnvilTestRun> activeTestRuns = new HashMap<>();
+    private final Map<String, AnvilTestRun> activeTestRuns = new ConcurrentHashMap<>();
 
     /**
      * A Map that holds the test results. The keys are TestResult objects and the values are the
      * test IDs of the tests.
      */
-    private final Map<TestResult, Set<String>> resultsTestRuns = new HashMap<>();
+    private final Map<TestResult, Set<String>> resultsTestRuns = new ConcurrentHashMap<>();
 
     /**
      * A Map that holds the finished tests. The keys are the test IDs and the values are Boolean
      * objects indicating whether the test is finished.
      */
-    private final Map<String, Boolean> finishedTestRuns = new HashMap<>();
+    private final Map<String, Boolean> finishedTestRuns = new ConcurrentHashMap<>();
 
     /**
      * A Map that holds the failure details of all failed test cases by test run. The keys are the
-     * test run test IDs and the values are the test case failure details per test run.
+     * test run test IDs and the values map each failure detail to the number of failed test cases
+     * of the test run with this detail.
      */
-    private final Map<String, List<String>> detailsFailedTestCases = new HashMap<>();
+    private final Map<String, Map<String, Integer>> failureDetailCounts = new ConcurrentHashMap<>();
+
+    /** Packs the results into a zip archive while the tests are running, null if not zipped. */
+    private final ParallelZipPackager resultPackager;
+
+    /** Timing of the test templates that are currently executed, by their unique ID. */
+    private final Map<String, TemplateTiming> templateTimings = new ConcurrentHashMap<>();
 
-    private boolean aborted = false;
+    /** Keeps every distinct failure detail of the test suite once. */
+    private final FailureDetailDictionary failureDetails = new FailureDetailDictionary();
+
+    /** Chooses the strengths for a time budget, null if neither a budget nor history is set. */
+    private final StrengthScheduler strengthScheduler;
+
+    /** Decides which templates are executed in incremental mode, null if not incremental. */
+    private final IncrementalRun incrementalRun;
+
+    private volatile boolean aborted = false;
 
     AnvilContext(
             AnvilTestConfig config,
@@ -81,6 +125,23 @@ public class AnvilContext {
         this.configString = configString;
         this.mapper = new AnvilJsonMapper(config);
         this.contextId = contextId;
+        this.endpointConcurrencyLimiter =
+                new EndpointConcurrencyLimiter(config.getEndpointConcurrency());
+        this.templateConcurrencyGate = new TemplateConcurrencyGate(config);
+        this.resultPackager =
+                config.isDoZip()
+                        ? new ParallelZipPackager(
+                                Paths.get(config.getOutputFolder()),
+                                RESULT_ZIP_FILE_NAME,
+                                config.getZipCompressionLevel(),
+                                config.getZipPcapCompressionLevel())
+                        : null;
+        this.strengthScheduler =
+                config.getTimeBudget() > 0 || config.getStrengthHistory() != null
+                        ? new StrengthScheduler(config)
+                        : null;
+        this.incrementalRun =
+                config.getIncrementalFolder() != null ? new IncrementalRun(this) : null;
     }
 
     public void abortRemainingTests() {
@@ -95,51 +156,115 @@ public class AnvilContext {
         return parameterIdentifierProvider;
     }
 
-    public synchronized Map<String, AnvilTestRun> getActiveTestRuns() {
+    public Map<String, AnvilTestRun> getActiveTestRuns() {
         return activeTestRuns;
     }
 
-    public synchronized AnvilTestRun getActiveTestRun(String testId) {
+    public AnvilTestRun getActiveTestRun(String testId) {
         return activeTestRuns.get(testId);
     }
 
-    public synchronized void addActiveTestRun(AnvilTestRun testRun) {
+    public void addActiveTestRun(AnvilTestRun testRun) {
         activeTestRuns.put(testRun.getTestId(), testRun);
     }
 
-    private synchronized void addDetailsFailedTestCases(AnvilTestRun testRun) {
-        List<AnvilTestCase> failedTestCases =
-                testRun.getTestCases().stream()
-                        .filter(
-                                testCase ->
-                                        testCase.getTestResult() == TestResult.FULLY_FAILED
-                                                || testCase.getTestResult()
-                                                        == TestResult.PARTIALLY_FAILED)
-                        .collect(Collectors.toList());
+    /**
+     * Returns the active test run of a test, creating it atomically if there is none.
+     *
+     * @param testId the test ID of the test run
+     * @param testRunFactory creates the test run if it is not active yet
+     * @return the active test run
+     */
+    public AnvilTestRun getOrAddActiveTestRun(
+            String testId, Function<String, AnvilTestRun> testRunFactory) {
+        return activeTestRuns.computeIfAbsent(testId, testRunFactory);
+    }
 
-        failedTestCases.stream()
-                .map(AnvilTestCase::getFailureDetails)
-                .forEach(
-                        failureDetail ->
-                                detailsFailedTestCases
-                                        .computeIfAbsent(
-                                                testRun.getTestId(), k -> new LinkedList<>())
-                                        .add(failureDetail));
+    private void addFailureDetailCounts(AnvilTestRun testRun) {
+        Map<String, Integer> counts = testRun.getTestCaseHistogram().getFailureDetailCounts();
+        if (!counts.isEmpty()) {
+            failureDetailCounts.put(testRun.getTestId(), counts);
+        }
+    }
+
+    /**
+     * @return how often each failure detail occurred, by the test ID of the test run
+     */
+    public Map<String, Map<String, Integer>> getFailureDetailCounts() {
+        return failureDetailCounts;
     }
 
-    public synchronized Map<String, List<String>> getDetailsFailedTestCases() {
+    /**
+     * @return the failure details of the failed test cases, one entry per test case, by the test
+     *     ID of the test run
+     * @deprecated the failure details are counted as the test cases finish, use {@link
+     *     #getFailureDetailCounts()} instead
+     */
+    @Deprecated
+    public Map<String, List<String>> getDetailsFailedTestCases() {
+        Map<String, List<String>> detailsFailedTestCases = new HashMap<>();
+        failureDetailCounts.forEach(
+                (testId, counts) -> {
+                    List<String> details = new ArrayList<>();
+                    counts.forEach(
+                            (detail, count) -> details.addAll(Collections.nCopies(count, detail)));
+                    detailsFailedTestCases.put(testId, details);
+                });
         return detailsFailedTestCases;
     }
 
-    public synchronized void testRunFinished(AnvilTestRun testRun) {
+    public FailureDetailDictionary getFailureDetails() {
+        return failureDetails;
+    }
+
+    /**
+     * Starts measuring the time of a test template.
+     *
+     * @param uniqueId the unique ID of the test template container
+     */
+    public void templateStarted(String uniqueId) {
+        templateTimings.put(uniqueId, new TemplateTiming());
+    }
+
+    /**
+     * @param uniqueId the unique ID of the test template container
+     * @return the timing of the test template, or null if it is not executed
+     */
+    public TemplateTiming getTemplateTiming(String uniqueId) {
+        return templateTimings.get(uniqueId);
+    }
+
+    /**
+     * Stops measuring the time of a test template.
+     *
+     * @param uniqueId the unique ID of the test template container
+     * @return the timing of the test template, or null if it was already removed
+     */
+    public TemplateTiming templateFinished(String uniqueId) {
+        return templateTimings.remove(uniqueId);
+    }
+
+    public void testRunFinished(AnvilTestRun testRun) {
         String testId = testRun.getTestId();
-        addDetailsFailedTestCases(testRun);
-        finishedTestRuns.put(testId, true);
-        overallScoreContainer.merge(activeTestRuns.get(testId).getScoreContainer());
-        AnvilTestRun finishedContainer = activeTestRuns.remove(testId);
-        testRunsDone++;
+        if (finishedTestRuns.putIfAbsent(testId, true) != null) {
+            LOGGER.warn("Test run {} has already been finished", testId);
+            return;
+        }
+        addFailureDetailCounts(testRun);
+        AnvilTestRun activeContainer = activeTestRuns.remove(testId);
+        AnvilTestRun finishedContainer = activeContainer != null ? activeContainer : testRun;
+        synchronized (overallScoreContainer) {
+            overallScoreContainer.merge(finishedContainer.getScoreContainer());
+        }
+        if (strengthScheduler != null) {
+            strengthScheduler.testRunFinished(finishedContainer);
+        }
+        if (incrementalRun != null) {
+            incrementalRun.testRunFinished(finishedContainer);
+        }
+        long finishedTestRunCount = testRunsDone.incrementAndGet();
         if (finishedContainer.getTestCases() != null) {
-            testCases += finishedContainer.getTestCases().size();
+            testCases.add(finishedContainer.getTestCases().size());
         }
 
         long timediff = new Date().getTime() - creationTime.getTime();
@@ -150,22 +275,77 @@ public class AnvilContext {
         LOGGER.info(
                 String.format(
                         "%d/%d Tests finished (in %02d:%02d). Finished method %s",
-                        testRunsDone, totalTestRuns, minutes, seconds, testRun.getName()));
+                        finishedTestRunCount,
+                        totalTestRuns,
+                        minutes,
+                        seconds,
+                        testRun.getName()));
 
         if (listener != null) {
             listener.onTestRunFinished(finishedContainer);
         }
+        packTestRunResults(testId);
     }
 
-    public synchronized Map<String, Boolean> getFinishedTestRuns() {
+    /**
+     * Registers the result of a test run that was not executed because its result of a previous
+     * run is reused. The listener is notified and the copied result folder is packed like the
+     * result of an executed test run.
+     *
+     * @param testRun the test run created by {@link AnvilTestRun#forReusedResult}
+     * @param testCaseCount the number of test cases of the previous run
+     */
+    public void addReusedTestRun(AnvilTestRun testRun, long testCaseCount) {
+        String testId = testRun.getTestId();
+        if (finishedTestRuns.putIfAbsent(testId, true) != null) {
+            LOGGER.warn("Test run {} has already been finished", testId);
+            return;
+        }
+        addTestRunResult(testRun.getResult(), testRun);
+        synchronized (overallScoreContainer) {
+            overallScoreContainer.merge(testRun.getScoreContainer());
+        }
+        testRunsDone.incrementAndGet();
+        testCases.add(testCaseCount);
+        if (listener != null) {
+            listener.onTestRunFinished(testRun);
+        }
+        packTestRunResults(testId);
+    }
+
+    /**
+     * Adds the result folder of a finished test run to the zip archive, as soon as its pcap files
+     * and results are written.
+     */
+    private void packTestRunResults(String testId) {
+        if (resultPackager == null) {
+            return;
+        }
+        Path resultFolder = Paths.get(config.getOutputFolder(), "results", testId);
+        CompletableFuture<?>[] pending = pendingPcapCaptures.toArray(new CompletableFuture<?>[0]);
+        CompletableFuture.allOf(CompletableFuture.allOf(pending), mapper.resultsWritten())
+                .whenComplete((result, throwable) -> resultPackager.addFolder(resultFolder));
+    }
+
+    /**
+     * Adds the remaining files of the output folder to the zip archive and completes it. Does
+     * nothing if the results are not zipped.
+     */
+    public void finishResultArchive() {
+        if (resultPackager != null) {
+            resultPackager.finish();
+        }
+    }
+
+    public Map<String, Boolean> getFinishedTestRuns() {
         return finishedTestRuns;
     }
 
-    public synchronized boolean testRunIsFinished(String testId) {
+    public boolean testRunIsFinished(String testId) {
         return finishedTestRuns.containsKey(testId);
     }
 
-    public synchronized Date getCreationTime() {
+    public Date getCreationTime() {
         return creationTime;
     }
 
@@ -186,11 +366,11 @@ public class AnvilContext {
     }
 
     public long getTestCases() {
-        return testCases;
+        return testCases.sum();
     }
 
     public long getTestRunsDone() {
-        return testRunsDone;
+        return testRunsDone.get();
     }
 
     public ScoreContainer getOverallScoreContainer() {
@@ -201,9 +381,10 @@ public class AnvilContext {
         return resultsTestRuns;
     }
 
-    public synchronized void addTestRunResult(TestResult result, AnvilTestRun testRun) {
-        getResultsTestRuns().computeIfAbsent(result, k -> new HashSet<>());
-        getResultsTestRuns().get(result).add(testRun.getTestId());
+    public void addTestRunResult(TestResult result, AnvilTestRun testRun) {
+        resultsTestRuns
+                .computeIfAbsent(result, k -> ConcurrentHashMap.newKeySet())
+                .add(testRun.getTestId());
     }
 
     public AnvilListener getListener() {
@@ -222,10 +403,78 @@ public class AnvilContext {
         return mapper;
     }
 
+    /**
+     * @return the scheduler of the strengths, or null if neither a time budget nor a strength
+     *     history is configured
+     */
+    public StrengthScheduler getStrengthScheduler() {
+        return strengthScheduler;
+    }
+
+    /**
+     * @return the incremental run, or null if all templates are executed
+     */
+    public IncrementalRun getIncrementalRun() {
+        return incrementalRun;
+    }
+
     public static MetadataFetcher getMetadataFetcher() {
         return metadataFetcher;
     }
 
+    public EndpointConcurrencyLimiter getEndpointConcurrencyLimiter() {
+        return endpointConcurrencyLimiter;
+    }
+
+    public TemplateConcurrencyGate getTemplateConcurrencyGate() {
+        return templateConcurrencyGate;
+    }
+
+    /**
+     * Resolves the key of the target endpoint a test case interacts with. Test cases sharing a key
+     * are subject to the same concurrency limit.
+     *
+     * @param extensionContext the extension context of the test case
+     * @return the endpoint key
+     */
+    public String resolveEndpoint(ExtensionContext extensionContext) {
+        String endpoint = endpointResolver.apply(extensionContext);
+        return endpoint != null ? endpoint : DEFAULT_ENDPOINT;
+    }
+
+    public void setEndpointResolver(Function<ExtensionContext, String> endpointResolver) {
+        this.endpointResolver = endpointResolver;
+    }
+
+    /**
+     * Registers a pcap capture that must be completed before the results are complete.
+     *
+     * @param completion completes once the pcap file of the capture was written
+     */
+    public void registerPcapCapture(CompletableFuture<?> completion) {
+        pendingPcapCaptures.add(completion);
+        completion.whenComplete((result, throwable) -> pendingPcapCaptures.remove(completion));
+    }
+
+    /**
+     * Waits until all registered pcap captures are completed.
+     *
+     * @param timeoutMillis the maximum time to wait
+     * @return true if all captures completed in time
+     */
+    public boolean awaitPcapCaptures(long timeoutMillis) {
+        CompletableFuture<?>[] pending = pendingPcapCaptures.toArray(new CompletableFuture<?>[0]);
+        try {
+            CompletableFuture.allOf(pending).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
     public String getConfigString() {
         return configString;
     }
@@ -14,6 +14,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rub.nds.anvilcore.constants.PcapCaptureMode;
 import de.rub.nds.anvilcore.constants.TestEndpointType;
 import de.rub.nds.anvilcore.teststate.TestResult;
 import java.io.IOException;
@@ -53,6 +54,23 @@ public class AnvilTestConfig {
             description = "Do not use cached information (e.g for feature extraction)")
     private boolean ignoreCache = false;
 
+    @Parameter(
+            names = "-testInputCacheFolder",
+            description =
+                    "Folder in which generated test inputs are cached and reused by later runs "
+                            + "with an unchanged input parameter model. Templates with fault "
+                            + "characterization always generate their test inputs. "
+                            + "(Default value: disabled)")
+    private String testInputCacheFolder = null;
+
+    @Parameter(
+            names = "-incremental",
+            description =
+                    "Output folder of a previous run. Templates whose scope, test class and"
+                            + " configuration did not change and that succeeded in that run are not"
+                            + " executed, their results are reused. (Default value: disabled)")
+    private String incrementalFolder = null;
+
     @Parameter(
             names = "-outputFolder",
             description =
@@ -64,6 +82,20 @@ public class AnvilTestConfig {
             description = "How many test templates should be executed in parallel?")
     private Integer parallelTests = null;
 
+    @Parameter(
+            names = "-parallelTestCases",
+            description =
+                    "How many test cases of one test template should be executed in parallel? "
+                            + "(Default value: 1)")
+    private int parallelTestCases = 1;
+
+    @Parameter(
+            names = "-endpointConcurrency",
+            description =
+                    "How many test cases may interact with the same target endpoint concurrently? "
+                            + "(Default value: 0 = unlimited)")
+    private int endpointConcurrency = 0;
+
     @Parameter(
             names = "-restartTargetAfter",
             description =
@@ -88,6 +120,29 @@ public class AnvilTestConfig {
             description = "Strength of the pairwise test. (Default value: 2)")
     private int strength = 2;
 
+    @Parameter(
+            names = "-timeBudget",
+            description =
+                    "Wall-clock budget of the test suite in minutes. The strength of every template"
+                            + " without a fixed strength is chosen such that the predicted run time"
+                            + " fits the budget. (Default value: 0 = disabled)")
+    private int timeBudget = 0;
+
+    @Parameter(
+            names = "-strengthHistory",
+            description =
+                    "File in which the number and run time of test cases per template and strength"
+                            + " are recorded to predict later runs with a -timeBudget."
+                            + " (Default value: disabled)")
+    private String strengthHistory = null;
+
+    @Parameter(
+            names = "-highSeverityLevel",
+            description =
+                    "Minimum severity level of templates that may be run with strength 3 when a"
+                            + " -timeBudget is set. (Default value: 80)")
+    private int highSeverityLevel = 80;
+
     @Parameter(
             names = "-connectionTimeout",
             description = "The default timeout to use for communication with the target")
@@ -96,6 +151,22 @@ public class AnvilTestConfig {
     @Parameter(names = "-prettyPrintJSON", description = "Pretty print json output")
     private boolean prettyPrintJSON = false;
 
+    @Parameter(
+            names = "-streamResults",
+            description =
+                    "Write the results of test cases as soon as they finished instead of"
+                            + " serializing whole test runs when they finished."
+                            + " (Default value: false)")
+    private boolean streamResults = false;
+
+    @Parameter(
+            names = "-boundedMemory",
+            description =
+                    "Keep only a compact summary of finished test cases in memory. Implies"
+                            + " -streamResults, the full results are only written to disk."
+                            + " (Default value: false)")
+    private boolean boundedMemory = false;
+
     @Parameter(
             names = "-networkInterface",
             description =
@@ -108,9 +179,46 @@ public class AnvilTestConfig {
             description = "Disables the packet capturing with tcpdump")
     private boolean disableTcpDump = false;
 
+    @Parameter(
+            names = "-pcapCaptureMode",
+            description =
+                    "Capture packets with one handle and a temporary file per test case "
+                            + "(isolated), one handle and an in-memory buffer per test case "
+                            + "(buffered) or a single handle shared by all test cases of a "
+                            + "network interface (shared). (Default value: isolated)")
+    private PcapCaptureMode pcapCaptureMode = PcapCaptureMode.ISOLATED;
+
+    @Parameter(
+            names = "-pcapDrainIdleMillis",
+            description =
+                    "Stop capturing the packets of a finished test case once no packet was "
+                            + "received for this many milliseconds. (Default value: 500)")
+    private int pcapDrainIdleMillis = 500;
+
+    @Parameter(
+            names = "-pcapBufferSize",
+            description =
+                    "Maximum size in bytes of the pcap of a test case that is kept in memory, "
+                            + "further packets are dropped. (Default value: 16777216)")
+    private int pcapBufferSize = 16 * 1024 * 1024;
+
     @Parameter(names = "-zip", description = "Pack the results folder into a zip archive.")
     private boolean doZip = false;
 
+    @Parameter(
+            names = "-zipCompressionLevel",
+            description =
+                    "Deflate compression level (0-9, 0 stores files, -1 uses the default level) of"
+                            + " files in the zip archive. (Default value: -1)")
+    private int zipCompressionLevel = -1;
+
+    @Parameter(
+            names = "-zipPcapCompressionLevel",
+            description =
+                    "Deflate compression level (0-9, 0 stores files, -1 uses the default level) of"
+                            + " pcap files in the zip archive. (Default value: 1)")
+    private int zipPcapCompressionLevel = 1;
+
     private TestEndpointType endpointMode;
     private String generalPcapFilter = "";
 
@@ -189,6 +297,22 @@ public class AnvilTestConfig {
         this.ignoreCache = ignoreCache;
     }
 
+    public String getTestInputCacheFolder() {
+        return testInputCacheFolder;
+    }
+
+    public void setTestInputCacheFolder(String testInputCacheFolder) {
+        this.testInputCacheFolder = testInputCacheFolder;
+    }
+
+    public String getIncrementalFolder() {
+        return incrementalFolder;
+    }
+
+    public void setIncrementalFolder(String incrementalFolder) {
+        this.incrementalFolder = incrementalFolder;
+    }
+
     public String getOutputFolder() {
         return outputFolder;
     }
@@ -205,6 +329,22 @@ public class AnvilTestConfig {
         this.parallelTests = parallelTests;
     }
 
+    public int getParallelTestCases() {
+        return parallelTestCases;
+    }
+
+    public void setParallelTestCases(int parallelTestCases) {
+        this.parallelTestCases = parallelTestCases;
+    }
+
+    public int getEndpointConcurrency() {
+        return endpointConcurrency;
+    }
+
+    public void setEndpointConcurrency(int endpointConcurrency) {
+        this.endpointConcurrency = endpointConcurrency;
+    }
+
     public Integer getRestartServerAfter() {
         return restartServerAfter;
     }
@@ -237,6 +377,30 @@ public class AnvilTestConfig {
         this.strength = strength;
     }
 
+    public int getTimeBudget() {
+        return timeBudget;
+    }
+
+    public void setTimeBudget(int timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public String getStrengthHistory() {
+        return strengthHistory;
+    }
+
+    public void setStrengthHistory(String strengthHistory) {
+        this.strengthHistory = strengthHistory;
+    }
+
+    public int getHighSeverityLevel() {
+        return highSeverityLevel;
+    }
+
+    public void setHighSeverityLevel(int highSeverityLevel) {
+        this.highSeverityLevel = highSeverityLevel;
+    }
+
     public int getConnectionTimeout() {
         return connectionTimeout;
     }
@@ -253,6 +417,22 @@ public class AnvilTestConfig {
         this.prettyPrintJSON = prettyPrintJSON;
     }
 
+    public boolean isStreamResults() {
+        return streamResults;
+    }
+
+    public void setStreamResults(boolean streamResults) {
+        this.streamResults = streamResults;
+    }
+
+    public boolean isBoundedMemory() {
+        return boundedMemory;
+    }
+
+    public void setBoundedMemory(boolean boundedMemory) {
+        this.boundedMemory = boundedMemory;
+    }
+
     public String getNetworkInterface() {
         return networkInterface;
     }
@@ -289,6 +469,30 @@ public class AnvilTestConfig {
         }
     }
 
+    public PcapCaptureMode getPcapCaptureMode() {
+        return pcapCaptureMode;
+    }
+
+    public void setPcapCaptureMode(PcapCaptureMode pcapCaptureMode) {
+        this.pcapCaptureMode = pcapCaptureMode;
+    }
+
+    public int getPcapDrainIdleMillis() {
+        return pcapDrainIdleMillis;
+    }
+
+    public void setPcapDrainIdleMillis(int pcapDrainIdleMillis) {
+        this.pcapDrainIdleMillis = pcapDrainIdleMillis;
+    }
+
+    public int getPcapBufferSize() {
+        return pcapBufferSize;
+    }
+
+    public void setPcapBufferSize(int pcapBufferSize) {
+        this.pcapBufferSize = pcapBufferSize;
+    }
+
     public String getGeneralPcapFilter() {
         return generalPcapFilter;
     }
@@ -304,4 +508,20 @@ public class AnvilTestConfig {
     public void setDoZip(boolean doZip) {
         this.doZip = doZip;
     }
+
+    public int getZipCompressionLevel() {
+        return zipCompressionLevel;
+    }
+
+    public void setZipCompressionLevel(int zipCompressionLevel) {
+        this.zipCompressionLevel = zipCompressionLevel;
+    }
+
+    public int getZipPcapCompressionLevel() {
+        return zipPcapCompressionLevel;
+    }
+
+    public void setZipPcapCompressionLevel(int zipPcapCompressionLevel) {
+        this.zipPcapCompressionLevel = zipPcapCompressionLevel;
+    }
 }
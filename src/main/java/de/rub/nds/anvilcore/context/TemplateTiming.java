@@ -0,0 +1,40 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.context;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time a test template spends generating its test inputs and executing its test
+ * cases. The execution time is measured from the end of the generation, or from the start of the
+ * template if no test inputs were generated.
+ */
+public final class TemplateTiming {
+
+    private final long startNanos = System.nanoTime();
+    private volatile long executionStartNanos = startNanos;
+
+    /**
+     * Marks the end of the test input generation, which starts the execution of the test cases.
+     *
+     * @return the time spent generating test inputs in milliseconds
+     */
+    public long generationFinished() {
+        long now = System.nanoTime();
+        executionStartNanos = now;
+        return TimeUnit.NANOSECONDS.toMillis(now - startNanos);
+    }
+
+    /**
+     * @return the time spent executing test cases so far in milliseconds
+     */
+    public long getExecutionTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - executionStartNanos);
+    }
+}
@@ -12,6 +12,7 @@ import de.rub.nds.anvilcore.context.AnvilTestConfig;
 import de.rub.nds.anvilcore.teststate.AnvilTestCase;
 import de.rub.nds.anvilcore.teststate.AnvilTestRun;
 import de.rub.nds.anvilcore.teststate.reporting.AnvilReport;
+import java.nio.ByteBuffer;
 import org.junit.platform.launcher.TestPlan;
 
 public interface AnvilListener {
@@ -33,4 +34,17 @@ public interface AnvilListener {
     default void onTestCaseFinished(AnvilTestCase testCase, String testId) {}
 
     default void onPcapCaptured(AnvilTestCase testCase, byte[] pcapData) {}
+
+    /**
+     * Called with a read-only view of a pcap that was assembled in memory. By default, the content
+     * is copied and passed to {@link #onPcapCaptured(AnvilTestCase, byte[])}.
+     *
+     * @param testCase the test case the pcap was captured for
+     * @param pcapData the content of the pcap file
+     */
+    default void onPcapCaptured(AnvilTestCase testCase, ByteBuffer pcapData) {
+        byte[] pcapBytes = new byte[pcapData.remaining()];
+        pcapData.duplicate().get(pcapBytes);
+        onPcapCaptured(testCase, pcapBytes);
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import de.rub.nds.anvilcore.coffee4j.junit.AnvilCombinatorialTestExtension;
+import de.rub.nds.anvilcore.context.AnvilContext;
+import de.rub.nds.anvilcore.context.AnvilContextRegistry;
+import java.lang.reflect.Method;
+import java.util.concurrent.Semaphore;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.jupiter.api.extension.ReflectiveInvocationContext;
+
+/**
+ * Executes test cases within the per-endpoint concurrency limit of the {@link AnvilContext}.
+ * Interceptors registered after this one (e.g. the pcap capturing) only run once a permit for the
+ * endpoint was acquired. If the test cases of a template are executed concurrently, a test case
+ * additionally waits for a permit of its template, and non-combinatorial tests pass the {@link
+ * TemplateConcurrencyGate} like combinatorial templates do.
+ */
+public class EndpointConcurrencyInterceptor implements InvocationInterceptor {
+
+    @Override
+    public void interceptTestTemplateMethod(
+            final Invocation<Void> invocation,
+            final ReflectiveInvocationContext<Method> invocationContext,
+            final ExtensionContext extensionContext)
+            throws Throwable {
+        Semaphore testCasePermits =
+                AnvilCombinatorialTestExtension.getTestCasePermits(extensionContext);
+        if (testCasePermits == null) {
+            intercept(invocation, extensionContext);
+            return;
+        }
+        TemplateConcurrencyGate.acquire(testCasePermits);
+        try {
+            intercept(invocation, extensionContext);
+        } finally {
+            testCasePermits.release();
+        }
+    }
+
+    @Override
+    public void interceptTestMethod(
+            final Invocation<Void> invocation,
+            final ReflectiveInvocationContext<Method> invocationContext,
+            final ExtensionContext extensionContext)
+            throws Throwable {
+        AnvilContext context = AnvilContextRegistry.byExtensionContext(extensionContext);
+        if (context == null) {
+            invocation.proceed();
+            return;
+        }
+        try (TemplateConcurrencyGate.Pass pass =
+                context.getTemplateConcurrencyGate()
+                        .enter(extensionContext.getRequiredTestClass())) {
+            intercept(invocation, extensionContext);
+        }
+    }
+
+    private void intercept(Invocation<Void> invocation, ExtensionContext extensionContext)
+            throws Throwable {
+        AnvilContext context = AnvilContextRegistry.byExtensionContext(extensionContext);
+        if (context == null) {
+            invocation.proceed();
+            return;
+        }
+
+        EndpointConcurrencyLimiter limiter = context.getEndpointConcurrencyLimiter();
+        String endpoint = context.resolveEndpoint(extensionContext);
+        limiter.acquire(endpoint);
+        try {
+            invocation.proceed();
+        } finally {
+            limiter.release(endpoint);
+        }
+    }
+}
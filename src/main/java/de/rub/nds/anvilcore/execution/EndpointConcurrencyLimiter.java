@@ -0,0 +1,53 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits how many test cases may interact with the same target endpoint at the same time. Each
+ * endpoint is identified by a key that is resolved per test case by the {@link
+ * de.rub.nds.anvilcore.context.AnvilContext}. A limit of 0 or less disables the limiter.
+ */
+public class EndpointConcurrencyLimiter {
+
+    private final int maxConcurrentTestCases;
+    private final Map<String, Semaphore> permitsByEndpoint = new ConcurrentHashMap<>();
+
+    public EndpointConcurrencyLimiter(int maxConcurrentTestCases) {
+        this.maxConcurrentTestCases = maxConcurrentTestCases;
+    }
+
+    public boolean isEnabled() {
+        return maxConcurrentTestCases > 0;
+    }
+
+    public void acquire(String endpoint) throws InterruptedException {
+        if (isEnabled()) {
+            getPermits(endpoint).acquire();
+        }
+    }
+
+    public void release(String endpoint) {
+        if (isEnabled()) {
+            getPermits(endpoint).release();
+        }
+    }
+
+    private Semaphore getPermits(String endpoint) {
+        return permitsByEndpoint.computeIfAbsent(
+                endpoint, key -> new Semaphore(maxConcurrentTestCases, true));
+    }
+
+    public int getMaxConcurrentTestCases() {
+        return maxConcurrentTestCases;
+    }
+}
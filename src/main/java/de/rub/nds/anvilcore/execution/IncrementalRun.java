@@ -0,0 +1,448 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import de.rub.nds.anvilcore.context.AnvilContext;
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.model.DefaultModelTypes;
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.ParameterIdentifierProvider;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import de.rub.nds.anvilcore.teststate.AnvilTestRun;
+import de.rub.nds.anvilcore.teststate.TestResult;
+import de.rub.nds.anvilcore.util.TestIdResolver;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Executes only the templates that are affected by changes since a previous run. Every run writes a
+ * manifest with the fingerprint and the result of each template to its output folder. The
+ * fingerprint covers the annotations of the template and its class, which define its {@link
+ * DerivationScope}, the bytecode of the test class and its superclasses, the strength and the
+ * configuration without the options that only affect how the tests are executed or reported. It
+ * also covers the model the template is derived from: the parameter identifiers of its model type,
+ * the bytecode of the {@link ParameterIdentifierProvider} and of the parameter classes, and the
+ * versions of Anvil Core and of the provider. Templates whose model cannot be determined before
+ * they are executed are always executed. Templates whose fingerprint did not change and that
+ * succeeded in the previous run are not executed. Their result folders are copied from the previous
+ * output folder and their results are registered in the {@link AnvilContext}.
+ */
+public class IncrementalRun {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    public static final String MANIFEST_FILE_NAME = "incremental_manifest.json";
+
+    private static final int FINGERPRINT_VERSION = 2;
+
+    // classes are shared by many templates, their bytecode is only read once
+    private static final Map<Class<?>, String> BYTECODE_HASHES = new ConcurrentHashMap<>();
+
+    /** Options of the {@link AnvilTestConfig} that do not affect the results of a template. */
+    private static final Set<String> EXECUTION_OPTIONS =
+            Set.of(
+                    "expectedResults",
+                    "profiles",
+                    "profileFolder",
+                    "tags",
+                    "testPackage",
+                    "ignoreCache",
+                    "testInputCacheFolder",
+                    "incrementalFolder",
+                    "outputFolder",
+                    "parallelTests",
+                    "parallelTestCases",
+                    "endpointConcurrency",
+                    "restartServerAfter",
+                    "timeoutActionCommand",
+                    "identifier",
+                    "timeBudget",
+                    "strengthHistory",
+                    "highSeverityLevel",
+                    "prettyPrintJSON",
+                    "streamResults",
+                    "boundedMemory",
+                    "networkInterface",
+                    "disableTcpDump",
+                    "pcapCaptureMode",
+                    "pcapDrainIdleMillis",
+                    "pcapBufferSize",
+                    "generalPcapFilter",
+                    "doZip",
+                    "zipCompressionLevel",
+                    "zipPcapCompressionLevel");
+
+    /**
+     * The state of a template after a run.
+     *
+     * @param fingerprint the fingerprint of the template
+     * @param result the result of the template
+     * @param testCases the number of test cases of the template
+     */
+    public record ManifestEntry(
+            @JsonProperty("Fingerprint") String fingerprint,
+            @JsonProperty("Result") TestResult result,
+            @JsonProperty("TestCases") long testCases) {}
+
+    private final AnvilContext context;
+    private final Path previousOutputFolder;
+    private final Map<String, ManifestEntry> previousManifest;
+    private final Map<String, String> fingerprints = new ConcurrentHashMap<>();
+    private final Map<String, Method> templatesById = new ConcurrentHashMap<>();
+    private final Map<String, ManifestEntry> manifest = new ConcurrentHashMap<>();
+
+    public IncrementalRun(AnvilContext context) {
+        this.context = context;
+        this.previousOutputFolder = Paths.get(context.getConfig().getIncrementalFolder());
+        this.previousManifest = loadManifest(previousOutputFolder.resolve(MANIFEST_FILE_NAME));
+    }
+
+    private static Map<String, ManifestEntry> loadManifest(Path path) {
+        if (!Files.exists(path)) {
+            LOGGER.info("No manifest found in {}, executing all templates", path.getParent());
+            return Map.of();
+        }
+        try {
+            return new ObjectMapper()
+                    .readValue(path.toFile(), new TypeReference<Map<String, ManifestEntry>>() {});
+        } catch (IOException e) {
+            LOGGER.error("Failed to read manifest {}, executing all templates", path, e);
+            return Map.of();
+        }
+    }
+
+    /**
+     * Computes the fingerprints of the discovered templates and determines which of them can be
+     * reused.
+     *
+     * @param templates the test methods of all discovered templates
+     * @param strengths the strength of each template by test ID, if it was scheduled
+     * @return the test IDs of the templates that do not have to be executed
+     */
+    public Set<String> plan(Collection<Method> templates, Map<String, Integer> strengths) {
+        String configFingerprint = fingerprintConfig(context);
+        // templates of the same model type share their model
+        Map<String, String> modelFingerprints = new HashMap<>();
+        Set<String> reused = new TreeSet<>();
+        for (Method template : templates) {
+            String testId = TestIdResolver.resolveTestId(template);
+            int strength = strengths.getOrDefault(testId, context.getConfig().getStrength());
+            String modelType =
+                    DerivationScope.resolveModelType(template.getDeclaringClass(), template);
+            String modelFingerprint =
+                    modelFingerprints.computeIfAbsent(
+                            modelType, type -> fingerprintModel(context, type, strength));
+            if (modelFingerprint.isEmpty()) {
+                continue;
+            }
+            String fingerprint =
+                    fingerprint(template, strength, configFingerprint, modelFingerprint);
+            fingerprints.put(testId, fingerprint);
+            templatesById.put(testId, template);
+            ManifestEntry previous = previousManifest.get(testId);
+            if (previous != null
+                    && previous.fingerprint().equals(fingerprint)
+                    && isSuccess(previous.result())
+                    && Files.isDirectory(getResultFolder(previousOutputFolder, testId))) {
+                reused.add(testId);
+            }
+        }
+        LOGGER.info(
+                "Incremental run: executing {} of {} templates, reusing the results of {}",
+                templates.size() - reused.size(),
+                templates.size(),
+                reused.size());
+        return reused;
+    }
+
+    private static boolean isSuccess(TestResult result) {
+        return result == TestResult.STRICTLY_SUCCEEDED
+                || result == TestResult.CONCEPTUALLY_SUCCEEDED;
+    }
+
+    /**
+     * Copies the result folders of the reused templates from the previous output folder and
+     * registers their results.
+     *
+     * @param reused the test IDs returned by {@link #plan(Collection, Map)}
+     */
+    public void reuseResults(Set<String> reused) {
+        Path outputFolder = Paths.get(context.getConfig().getOutputFolder());
+        boolean sameFolder =
+                outputFolder
+                        .toAbsolutePath()
+                        .normalize()
+                        .equals(previousOutputFolder.toAbsolutePath().normalize());
+        for (String testId : reused) {
+            ManifestEntry previous = previousManifest.get(testId);
+            if (!sameFolder) {
+                try {
+                    copyFolder(
+                            getResultFolder(previousOutputFolder, testId),
+                            getResultFolder(outputFolder, testId));
+                } catch (IOException e) {
+                    LOGGER.error("Failed to copy the previous results of {}", testId, e);
+                }
+            }
+            manifest.put(testId, previous);
+            context.addReusedTestRun(
+                    AnvilTestRun.forReusedResult(
+                            templatesById.get(testId), previous.result(), previous.testCases()),
+                    previous.testCases());
+        }
+    }
+
+    private static void copyFolder(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Path targetPath = target.resolve(source.relativize(path).toString());
+                if (Files.isDirectory(path)) {
+                    Files.createDirectories(targetPath);
+                } else {
+                    Files.copy(path, targetPath, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+
+    private static Path getResultFolder(Path outputFolder, String testId) {
+        return outputFolder.resolve("results").resolve(testId);
+    }
+
+    /**
+     * Records the result of an executed template for the manifest.
+     *
+     * @param testRun the finished test run
+     */
+    public void testRunFinished(AnvilTestRun testRun) {
+        String fingerprint = fingerprints.get(testRun.getTestId());
+        if (fingerprint != null && testRun.getResult() != null) {
+            manifest.put(
+                    testRun.getTestId(),
+                    new ManifestEntry(
+                            fingerprint, testRun.getResult(), testRun.getTestCases().size()));
+        }
+    }
+
+    /** Writes the manifest of this run to the output folder. */
+    public void saveManifest() {
+        Path path = Paths.get(context.getConfig().getOutputFolder(), MANIFEST_FILE_NAME);
+        try {
+            Files.createDirectories(path.getParent());
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(path.toFile(), new TreeMap<>(manifest));
+        } catch (IOException e) {
+            LOGGER.error("Failed to write manifest {}", path, e);
+        }
+    }
+
+    /**
+     * @param template the test method of the template
+     * @param strength the strength of the template unless it is defined by an annotation
+     * @param configFingerprint the fingerprint of the configuration
+     * @param modelFingerprint the fingerprint of the model of the template
+     * @return hex encoded SHA-256 fingerprint of the template
+     */
+    static String fingerprint(
+            Method template, int strength, String configFingerprint, String modelFingerprint) {
+        MessageDigest digest = newDigest();
+        update(digest, "version:" + FINGERPRINT_VERSION);
+        update(digest, "method:" + template.toGenericString());
+        update(digest, "strength:" + strength);
+        update(digest, "config:" + configFingerprint);
+        update(digest, "model:" + modelFingerprint);
+        for (String annotation : sortedAnnotations(template.getAnnotations())) {
+            update(digest, "methodAnnotation:" + annotation);
+        }
+        for (String annotation : sortedAnnotations(template.getDeclaringClass().getAnnotations())) {
+            update(digest, "classAnnotation:" + annotation);
+        }
+        updateClassHierarchy(digest, "class:", template.getDeclaringClass());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @param context the context of the run
+     * @param modelType the model type of the templates
+     * @param strength the strength of the scope the model parameters are requested for
+     * @return hex encoded SHA-256 fingerprint of the model, or an empty string if the model
+     *     parameters cannot be determined without executing a template
+     */
+    private static String fingerprintModel(AnvilContext context, String modelType, int strength) {
+        ParameterIdentifierProvider provider = context.getParameterIdentifierProvider();
+        MessageDigest digest = newDigest();
+        update(digest, "anvilCore:" + getVersion(IncrementalRun.class));
+        update(digest, "modelType:" + modelType);
+        if (provider == null) {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        update(digest, "providerVersion:" + getVersion(provider.getClass()));
+        updateClassHierarchy(digest, "provider:", provider.getClass());
+        try {
+            List<ParameterIdentifier> identifiers =
+                    DefaultModelTypes.ALL_PARAMETERS.equals(modelType)
+                            ? ParameterIdentifierProvider.getAllParameterIdentifiers(context)
+                            : provider.getModelParameterIdentifiers(
+                                    new DerivationScope(modelType, strength));
+            for (ParameterIdentifier identifier : identifiers) {
+                ParameterIdentifier linked = identifier.getLinkedParameterIdentifier();
+                update(
+                        digest,
+                        "parameter:"
+                                + identifier.name()
+                                + (linked != null ? "->" + linked.name() : ""));
+                updateClassHierarchy(
+                        digest, "parameterType:", identifier.getParameterType().getClass());
+                updateClassHierarchy(
+                        digest, "parameterClass:", identifier.getInstance().getClass());
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn(
+                    "Failed to determine the parameters of model type {}, executing its templates",
+                    modelType,
+                    e);
+            return "";
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static String getVersion(Class<?> type) {
+        Package typePackage = type.getPackage();
+        String version = typePackage != null ? typePackage.getImplementationVersion() : null;
+        return version != null ? version : "unknown";
+    }
+
+    private static void updateClassHierarchy(MessageDigest digest, String prefix, Class<?> type) {
+        for (Class<?> current = type;
+                current != null && current != Object.class;
+                current = current.getSuperclass()) {
+            update(digest, prefix + current.getName() + ":" + hashBytecode(current));
+        }
+    }
+
+    private static Set<String> sortedAnnotations(Annotation[] annotations) {
+        Set<String> sorted = new TreeSet<>();
+        Arrays.stream(annotations).map(Annotation::toString).forEach(sorted::add);
+        return sorted;
+    }
+
+    private static String hashBytecode(Class<?> type) {
+        return BYTECODE_HASHES.computeIfAbsent(
+                type,
+                key -> {
+                    String resource = "/" + key.getName().replace('.', '/') + ".class";
+                    try (InputStream input = key.getResourceAsStream(resource)) {
+                        if (input == null) {
+                            return "unavailable";
+                        }
+                        return HexFormat.of().formatHex(newDigest().digest(input.readAllBytes()));
+                    } catch (IOException e) {
+                        LOGGER.warn("Failed to read the bytecode of {}", key.getName());
+                        return "unavailable";
+                    }
+                });
+    }
+
+    private static String fingerprintConfig(AnvilContext context) {
+        return fingerprintConfig(context.getConfig(), context.getConfigString());
+    }
+
+    /**
+     * Hashes the options that may affect the results of a template. The config string of the
+     * implementation usually embeds the {@link AnvilTestConfig}, hence the {@link
+     * #EXECUTION_OPTIONS} are removed at any depth of it. A config string that is not JSON is
+     * hashed as it is.
+     *
+     * @param config the config of the run
+     * @param configString the config string of the implementation
+     * @return the fingerprint of the config
+     */
+    static String fingerprintConfig(AnvilTestConfig config, String configString) {
+        ObjectMapper mapper =
+                new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        MessageDigest digest = newDigest();
+        update(digest, canonicalize(mapper, mapper.valueToTree(config)));
+        JsonNode implementationConfig = null;
+        if (configString != null) {
+            try {
+                implementationConfig = mapper.readTree(configString);
+            } catch (JsonProcessingException e) {
+                LOGGER.debug("The config string is not JSON, it is hashed as it is");
+            }
+        }
+        update(
+                digest,
+                implementationConfig != null
+                        ? canonicalize(mapper, implementationConfig)
+                        : String.valueOf(configString));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * @return the JSON of the node without execution options and with sorted fields
+     */
+    private static String canonicalize(ObjectMapper mapper, JsonNode node) {
+        removeExecutionOptions(node);
+        try {
+            return mapper.writeValueAsString(mapper.treeToValue(node, Object.class));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize the config", e);
+        }
+    }
+
+    private static void removeExecutionOptions(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            object.remove(EXECUTION_OPTIONS);
+        }
+        node.forEach(IncrementalRun::removeExecutionOptions);
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 not possible...", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String element) {
+        digest.update(element.getBytes(StandardCharsets.UTF_8));
+        // separate elements to avoid ambiguous concatenations
+        digest.update((byte) 0);
+    }
+}
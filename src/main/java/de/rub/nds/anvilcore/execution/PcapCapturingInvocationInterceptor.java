@@ -8,10 +8,12 @@
  */
 package de.rub.nds.anvilcore.execution;
 
+import de.rub.nds.anvilcore.constants.PcapCaptureMode;
 import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.context.AnvilContextRegistry;
 import de.rub.nds.anvilcore.teststate.AnvilTestCase;
 import de.rub.nds.anvilcore.teststate.reporting.PcapCapturer;
+import de.rub.nds.anvilcore.teststate.reporting.SharedPcapCaptureEngine;
 import java.io.IOException;
 import java.lang.reflect.Method;
 import org.apache.logging.log4j.LogManager;
@@ -40,6 +42,23 @@ public class PcapCapturingInvocationInterceptor implements InvocationInterceptor
 
         AnvilTestCase testCase = AnvilTestCase.fromExtensionContext(extensionContext);
 
+        if (context.getConfig().getPcapCaptureMode() == PcapCaptureMode.SHARED) {
+            SharedPcapCaptureEngine.CaptureSession captureSession;
+            try {
+                captureSession = SharedPcapCaptureEngine.startSession(testCase);
+            } catch (PcapNativeException | NotOpenException ex) {
+                LOGGER.error("Failed to start packet capture: {}", ex.getLocalizedMessage());
+                // continue invocation even if pcap can not be recorded
+                invocation.proceed();
+                return;
+            }
+            // packets are assigned to the test case until the session is closed
+            try (captureSession) {
+                invocation.proceed();
+            }
+            return;
+        }
+
         // start capturing - auto closes when test is done
         try (PcapCapturer pcapCapturer = new PcapCapturer(testCase)) {
             invocation.proceed();
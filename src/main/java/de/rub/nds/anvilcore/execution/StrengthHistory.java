@@ -0,0 +1,238 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Records how many test cases the templates generated with which strength and how long a test case
+ * took, and predicts both for strengths that were not observed yet. Covering arrays grow roughly
+ * geometrically with the strength, hence unobserved sizes are extrapolated from the growth between
+ * the observed strengths of the template or, if it was only observed once, of all templates.
+ */
+public class StrengthHistory {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Assumed number of test cases with strength 1 of templates that were never executed. */
+    static final int DEFAULT_TEST_CASES = 5;
+
+    /** Assumed growth of the number of test cases per strength if none was observed. */
+    static final double DEFAULT_GROWTH = 4;
+
+    /** Assumed run time of a test case if no test case was observed. */
+    static final double DEFAULT_MILLIS_PER_CASE = 1000;
+
+    // weight of a new observation in the moving average of the run time per test case
+    private static final double SMOOTHING = 0.5;
+
+    /**
+     * The observed size and run time of a template with one strength.
+     *
+     * @param testCases the number of test cases of the latest run
+     * @param millisPerCase the moving average of the run time per test case
+     */
+    public record Observation(
+            @JsonProperty("TestCases") int testCases,
+            @JsonProperty("MillisPerCase") double millisPerCase) {}
+
+    private final Map<String, Map<Integer, Observation>> observations;
+
+    public StrengthHistory() {
+        this(new TreeMap<>());
+    }
+
+    private StrengthHistory(Map<String, Map<Integer, Observation>> observations) {
+        this.observations = observations;
+    }
+
+    /**
+     * Loads a history written by {@link #save(Path)}.
+     *
+     * @param path the history file
+     * @return the loaded history, or an empty history if the file does not exist or is invalid
+     */
+    public static StrengthHistory load(Path path) {
+        if (!Files.exists(path)) {
+            return new StrengthHistory();
+        }
+        try {
+            Map<String, Map<Integer, Observation>> observations =
+                    new ObjectMapper()
+                            .readValue(
+                                    path.toFile(),
+                                    new TypeReference<
+                                            TreeMap<String, Map<Integer, Observation>>>() {});
+            observations.replaceAll((testId, byStrength) -> new TreeMap<>(byStrength));
+            return new StrengthHistory(observations);
+        } catch (IOException e) {
+            LOGGER.error("Failed to read strength history {}, starting a new one", path, e);
+            return new StrengthHistory();
+        }
+    }
+
+    /**
+     * @param path the file the history is written to
+     */
+    public synchronized void save(Path path) {
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            new ObjectMapper()
+                    .writerWithDefaultPrettyPrinter()
+                    .writeValue(path.toFile(), observations);
+        } catch (IOException e) {
+            LOGGER.error("Failed to write strength history {}", path, e);
+        }
+    }
+
+    /**
+     * Records a finished test run.
+     *
+     * @param testId the test ID of the template
+     * @param strength the strength the test inputs were generated with
+     * @param testCases the number of executed test cases
+     * @param executionTimeMillis the wall-clock time of the test run
+     */
+    public synchronized void record(
+            String testId, int strength, int testCases, long executionTimeMillis) {
+        if (testCases <= 0) {
+            return;
+        }
+        double millisPerCase = (double) executionTimeMillis / testCases;
+        Map<Integer, Observation> byStrength =
+                observations.computeIfAbsent(testId, id -> new TreeMap<>());
+        Observation previous = byStrength.get(strength);
+        if (previous != null) {
+            millisPerCase = SMOOTHING * millisPerCase + (1 - SMOOTHING) * previous.millisPerCase();
+        }
+        byStrength.put(strength, new Observation(testCases, millisPerCase));
+    }
+
+    /**
+     * @return the observation of a template with a strength, or null if there is none
+     */
+    public synchronized Observation get(String testId, int strength) {
+        Map<Integer, Observation> byStrength = observations.get(testId);
+        return byStrength != null ? byStrength.get(strength) : null;
+    }
+
+    /**
+     * @param testId the test ID of the template
+     * @param strength the strength
+     * @return the predicted run time of the template in milliseconds
+     */
+    public synchronized double predictMillis(String testId, int strength) {
+        return predictTestCases(testId, strength) * predictMillisPerCase(testId);
+    }
+
+    /**
+     * @param testId the test ID of the template
+     * @param strength the strength
+     * @return the predicted number of test cases of the template, at least 1
+     */
+    public synchronized int predictTestCases(String testId, int strength) {
+        Map<Integer, Observation> byStrength = observations.get(testId);
+        if (byStrength != null && !byStrength.isEmpty()) {
+            Observation observed = byStrength.get(strength);
+            if (observed != null) {
+                return observed.testCases();
+            }
+            int nearest =
+                    byStrength.keySet().stream()
+                            .min(Comparator.comparingInt(other -> Math.abs(other - strength)))
+                            .orElseThrow();
+            double growth = getGrowth(byStrength);
+            if (Double.isNaN(growth)) {
+                growth = getAverageGrowth();
+            }
+            return atLeastOne(
+                    byStrength.get(nearest).testCases() * Math.pow(growth, strength - nearest));
+        }
+        double sum = 0;
+        int count = 0;
+        for (Map<Integer, Observation> other : observations.values()) {
+            Observation observed = other.get(strength);
+            if (observed != null) {
+                sum += observed.testCases();
+                count++;
+            }
+        }
+        if (count > 0) {
+            return atLeastOne(sum / count);
+        }
+        return atLeastOne(DEFAULT_TEST_CASES * Math.pow(getAverageGrowth(), strength - 1));
+    }
+
+    /**
+     * @param testId the test ID of the template
+     * @return the predicted run time of one test case of the template in milliseconds
+     */
+    public synchronized double predictMillisPerCase(String testId) {
+        Map<Integer, Observation> byStrength = observations.get(testId);
+        Collection<Map<Integer, Observation>> observed =
+                byStrength != null && !byStrength.isEmpty()
+                        ? List.of(byStrength)
+                        : observations.values();
+        double weightedSum = 0;
+        long testCases = 0;
+        for (Map<Integer, Observation> observedStrengths : observed) {
+            for (Observation observation : observedStrengths.values()) {
+                weightedSum += observation.millisPerCase() * observation.testCases();
+                testCases += observation.testCases();
+            }
+        }
+        return testCases > 0 ? weightedSum / testCases : DEFAULT_MILLIS_PER_CASE;
+    }
+
+    /**
+     * @return the geometric mean growth per strength of one template, or NaN if it was observed
+     *     with less than two strengths
+     */
+    private static double getGrowth(Map<Integer, Observation> byStrength) {
+        if (byStrength.size() < 2) {
+            return Double.NaN;
+        }
+        TreeMap<Integer, Observation> sorted = new TreeMap<>(byStrength);
+        Map.Entry<Integer, Observation> lowest = sorted.firstEntry();
+        Map.Entry<Integer, Observation> highest = sorted.lastEntry();
+        return Math.pow(
+                (double) highest.getValue().testCases() / lowest.getValue().testCases(),
+                1.0 / (highest.getKey() - lowest.getKey()));
+    }
+
+    private double getAverageGrowth() {
+        double logSum = 0;
+        int count = 0;
+        for (Map<Integer, Observation> byStrength : observations.values()) {
+            double growth = getGrowth(byStrength);
+            if (!Double.isNaN(growth) && growth > 0) {
+                logSum += Math.log(growth);
+                count++;
+            }
+        }
+        return count > 0 ? Math.exp(logSum / count) : DEFAULT_GROWTH;
+    }
+
+    private static int atLeastOne(double testCases) {
+        return (int) Math.max(1, Math.round(testCases));
+    }
+}
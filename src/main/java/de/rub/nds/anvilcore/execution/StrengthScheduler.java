@@ -0,0 +1,148 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.teststate.AnvilTestRun;
+import de.rub.nds.anvilcore.teststate.TestResult;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Chooses the strength of every template such that the test suite fits a wall-clock budget. All
+ * templates start with strength 1. The templates are then raised to strength 2 and, if their
+ * severity level is at least {@link AnvilTestConfig#getHighSeverityLevel()}, to strength 3 in the
+ * order of their severity as long as the predicted run time stays within the budget. Predictions
+ * are taken from the {@link StrengthHistory}, which is updated with every finished test run.
+ */
+public class StrengthScheduler {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    public static final int MIN_STRENGTH = 1;
+    public static final int MAX_STRENGTH = 3;
+
+    private final AnvilTestConfig config;
+    private final StrengthHistory history;
+    private final Map<String, Integer> scheduledStrengths = new ConcurrentHashMap<>();
+
+    public StrengthScheduler(AnvilTestConfig config) {
+        this(
+                config,
+                config.getStrengthHistory() != null
+                        ? StrengthHistory.load(Path.of(config.getStrengthHistory()))
+                        : new StrengthHistory());
+    }
+
+    StrengthScheduler(AnvilTestConfig config, StrengthHistory history) {
+        this.config = config;
+        this.history = history;
+    }
+
+    /**
+     * Schedules the strengths of the given templates for the configured time budget.
+     *
+     * @param severityLevels the maximum severity level of every template by test ID
+     * @param parallelTemplates how many templates are executed in parallel
+     * @return the scheduled strength by test ID
+     */
+    public Map<String, Integer> schedule(
+            Map<String, Integer> severityLevels, int parallelTemplates) {
+        double budgetMillis =
+                (double) TimeUnit.MINUTES.toMillis(config.getTimeBudget())
+                        * Math.max(1, parallelTemplates);
+        Map<String, Integer> strengths = new HashMap<>();
+        double predictedMillis = 0;
+        for (String testId : severityLevels.keySet()) {
+            strengths.put(testId, MIN_STRENGTH);
+            predictedMillis += history.predictMillis(testId, MIN_STRENGTH);
+        }
+        if (predictedMillis > budgetMillis) {
+            LOGGER.warn(
+                    "The predicted run time with strength {} exceeds the time budget of {} minutes",
+                    MIN_STRENGTH,
+                    config.getTimeBudget());
+        }
+
+        List<String> bySeverity = new ArrayList<>(severityLevels.keySet());
+        bySeverity.sort(
+                Comparator.comparing((String testId) -> severityLevels.get(testId))
+                        .reversed()
+                        .thenComparing(Comparator.naturalOrder()));
+        for (int strength = MIN_STRENGTH + 1; strength <= MAX_STRENGTH; strength++) {
+            for (String testId : bySeverity) {
+                if (strengths.get(testId) != strength - 1
+                        || (strength > 2
+                                && severityLevels.get(testId) < config.getHighSeverityLevel())) {
+                    continue;
+                }
+                double additionalMillis =
+                        history.predictMillis(testId, strength)
+                                - history.predictMillis(testId, strength - 1);
+                if (predictedMillis + additionalMillis <= budgetMillis) {
+                    strengths.put(testId, strength);
+                    predictedMillis += additionalMillis;
+                }
+            }
+        }
+
+        scheduledStrengths.putAll(strengths);
+        LOGGER.info(
+                "Scheduled strengths of {} templates for a time budget of {} minutes, predicted"
+                        + " run time {} minutes: {} with strength 1, {} with strength 2, {} with"
+                        + " strength 3",
+                strengths.size(),
+                config.getTimeBudget(),
+                Math.round(predictedMillis / Math.max(1, parallelTemplates) / 60_000),
+                strengths.values().stream().filter(strength -> strength == 1).count(),
+                strengths.values().stream().filter(strength -> strength == 2).count(),
+                strengths.values().stream().filter(strength -> strength == 3).count());
+        return strengths;
+    }
+
+    /**
+     * @param testId the test ID of a template
+     * @return the scheduled strength of the template, or null if it was not scheduled
+     */
+    public Integer getScheduledStrength(String testId) {
+        return scheduledStrengths.get(testId);
+    }
+
+    /**
+     * Adds the size and run time of a finished combinatorial test run to the history.
+     *
+     * @param testRun the finished test run
+     */
+    public void testRunFinished(AnvilTestRun testRun) {
+        if (testRun.getStrength() == null
+                || testRun.getResult() == TestResult.DISABLED
+                || testRun.getExecutionTimeMillis() <= 0) {
+            return;
+        }
+        history.record(
+                testRun.getTestId(),
+                testRun.getStrength(),
+                testRun.getTestCaseHistogram().getTotal(),
+                testRun.getExecutionTimeMillis());
+    }
+
+    /** Writes the history to the configured file, if any. */
+    public void saveHistory() {
+        if (config.getStrengthHistory() != null) {
+            history.save(Path.of(config.getStrengthHistory()));
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Restores the scheduling of templates when the test cases of a template are executed
+ * concurrently. JUnit can only fork the invocations of a template if the default execution mode is
+ * concurrent, which also makes the templates of a class concurrent. The gate therefore lets at most
+ * {@link AnvilTestConfig#getParallelTests()} templates run at the same time and the templates of a
+ * class run one after another, while the test cases of each template are bounded by their own
+ * {@link #newTestCasePermits() permits}. The gate is disabled if test cases are not executed
+ * concurrently, as JUnit already schedules the templates accordingly.
+ *
+ * <p>A worker waiting for the test cases of its template helps executing other tasks and may pick
+ * up another template. Such a nested template waits for its permits like any other template, so the
+ * pass of a template has to be closed as soon as its last test case finished, which does not depend
+ * on the worker of the template.
+ */
+public class TemplateConcurrencyGate {
+
+    private final AnvilTestConfig config;
+    private final Map<Class<?>, Semaphore> classPermits = new ConcurrentHashMap<>();
+    private Semaphore templatePermits;
+
+    public TemplateConcurrencyGate(AnvilTestConfig config) {
+        this.config = config;
+    }
+
+    public boolean isEnabled() {
+        return config.getParallelTestCases() > 1;
+    }
+
+    /**
+     * Waits until the template may start.
+     *
+     * @param testClass the test class of the template
+     * @return the pass to close once the test cases of the template finished
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public Pass enter(Class<?> testClass) throws InterruptedException {
+        if (!isEnabled()) {
+            return new Pass(null, null);
+        }
+        Semaphore global = getTemplatePermits();
+        acquire(global);
+        Semaphore ofClass = classPermits.computeIfAbsent(testClass, key -> new Semaphore(1, true));
+        try {
+            acquire(ofClass);
+        } catch (InterruptedException e) {
+            global.release();
+            throw e;
+        }
+        return new Pass(global, ofClass);
+    }
+
+    /**
+     * @return the permits bounding the concurrently executed test cases of one template
+     */
+    public Semaphore newTestCasePermits() {
+        return new Semaphore(Math.max(1, config.getParallelTestCases()), true);
+    }
+
+    private synchronized Semaphore getTemplatePermits() {
+        if (templatePermits == null) {
+            Integer parallelTests = config.getParallelTests();
+            templatePermits =
+                    new Semaphore(parallelTests != null ? Math.max(1, parallelTests) : 1, true);
+        }
+        return templatePermits;
+    }
+
+    /**
+     * Acquires a permit as a managed blocker, so the pool of JUnit can compensate for the blocked
+     * worker.
+     *
+     * @param permits the semaphore to acquire a permit from
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public static void acquire(Semaphore permits) throws InterruptedException {
+        ForkJoinPool.managedBlock(
+                new ForkJoinPool.ManagedBlocker() {
+                    private boolean acquired = false;
+
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        if (!acquired) {
+                            permits.acquire();
+                            acquired = true;
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        if (!acquired) {
+                            acquired = permits.tryAcquire();
+                        }
+                        return acquired;
+                    }
+                });
+    }
+
+    /**
+     * Permission of a template to run. It may be closed by any thread, closing it again has no
+     * effect.
+     */
+    public final class Pass implements AutoCloseable {
+        private final Semaphore global;
+        private final Semaphore ofClass;
+        private boolean closed = false;
+
+        private Pass(Semaphore global, Semaphore ofClass) {
+            this.global = global;
+            this.ofClass = ofClass;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed || global == null) {
+                return;
+            }
+            closed = true;
+            ofClass.release();
+            global.release();
+        }
+    }
+}
@@ -12,6 +12,8 @@ import static org.junit.platform.engine.discovery.DiscoverySelectors.selectPacka
 
 import de.rub.nds.anvilcore.annotation.AnvilTest;
 import de.rub.nds.anvilcore.annotation.NonCombinatorialAnvilTest;
+import de.rub.nds.anvilcore.annotation.TestStrength;
+import de.rub.nds.anvilcore.constants.PcapCaptureMode;
 import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.context.AnvilContextRegistry;
 import de.rub.nds.anvilcore.context.AnvilTestConfig;
@@ -19,13 +21,18 @@ import de.rub.nds.anvilcore.context.ProfileResolver;
 import de.rub.nds.anvilcore.junit.extension.AnvilTestWatcher;
 import de.rub.nds.anvilcore.model.ParameterIdentifierProvider;
 import de.rub.nds.anvilcore.teststate.TestResult;
+import de.rub.nds.anvilcore.teststate.reporting.MetadataIndex;
 import de.rub.nds.anvilcore.teststate.reporting.PcapCapturer;
+import de.rub.nds.anvilcore.teststate.reporting.SharedPcapCaptureEngine;
+import de.rub.nds.anvilcore.teststate.reporting.TestMetadata;
+import de.rub.nds.anvilcore.util.TestIdResolver;
 import java.lang.reflect.Method;
 import java.util.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.engine.descriptor.ClassBasedTestDescriptor;
 import org.junit.jupiter.engine.descriptor.MethodBasedTestDescriptor;
+import org.junit.platform.commons.support.AnnotationSupport;
 import org.junit.platform.engine.FilterResult;
 import org.junit.platform.engine.TestSource;
 import org.junit.platform.engine.support.descriptor.MethodSource;
@@ -43,6 +50,10 @@ import org.junit.platform.launcher.core.LauncherFactory;
 public class TestRunner {
     private static final Logger LOGGER = LogManager.getLogger();
 
+    // workers blocked at the TemplateConcurrencyGate are compensated by the pool of JUnit, at most
+    // this many on top of the configured parallelism
+    private static final int MAX_COMPENSATING_WORKERS = 256;
+
     private final AnvilTestConfig config;
     private final AnvilContext context;
     private final String contextId;
@@ -88,13 +99,24 @@ public class TestRunner {
             config.setParallelTests(1);
         }
 
+        // test cases of a template only run concurrently if explicitly requested, in which case
+        // the pool has to provide workers for the test cases of all parallel templates; JUnit then
+        // also considers the templates of a class concurrent, so the TemplateConcurrencyGate
+        // keeps them sequential and bounds the test cases per template
+        boolean parallelTestCases = config.getParallelTestCases() > 1;
+        int parallelism =
+                parallelTestCases
+                        ? config.getParallelTests() * config.getParallelTestCases()
+                        : config.getParallelTests();
+
         LauncherDiscoveryRequestBuilder builder =
                 LauncherDiscoveryRequestBuilder.request()
                         .selectors(selectPackage(config.getTestPackage()))
                         // https://junit.org/junit5/docs/current/user-guide/#writing-tests-parallel-execution
                         .configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
                         .configurationParameter(
-                                "junit.jupiter.execution.parallel.mode.default", "same_thread")
+                                "junit.jupiter.execution.parallel.mode.default",
+                                parallelTestCases ? "concurrent" : "same_thread")
                         .configurationParameter(
                                 "junit.jupiter.execution.parallel.mode.classes.default",
                                 "concurrent")
@@ -102,7 +124,10 @@ public class TestRunner {
                                 "junit.jupiter.execution.parallel.config.strategy", "fixed")
                         .configurationParameter(
                                 "junit.jupiter.execution.parallel.config.fixed.parallelism",
-                                String.valueOf(config.getParallelTests()))
+                                String.valueOf(parallelism))
+                        .configurationParameter(
+                                "junit.jupiter.execution.parallel.config.fixed.max-pool-size",
+                                String.valueOf(parallelism + MAX_COMPENSATING_WORKERS))
                         .configurationParameter(
                                 AnvilContextRegistry.CONTEXT_ID_PARAMETER, contextId);
 
@@ -133,6 +158,18 @@ public class TestRunner {
                                             && source.getClass().equals(MethodSource.class));
                         });
         context.setTotalTestRuns(testcases);
+        Set<Method> templates = getTemplateMethods(testplan);
+        Map<String, Integer> scheduledStrengths =
+                config.getTimeBudget() > 0 ? scheduleStrengths(templates) : Map.of();
+        IncrementalRun incrementalRun = context.getIncrementalRun();
+        if (incrementalRun != null) {
+            Set<String> reused = incrementalRun.plan(templates, scheduledStrengths);
+            if (!reused.isEmpty()) {
+                excludeTestIds(builder, reused);
+                request = builder.build();
+            }
+            incrementalRun.reuseResults(reused);
+        }
 
         if (context.getListener() != null) {
             context.getListener().beforeStart(testplan, testcases);
@@ -141,6 +178,14 @@ public class TestRunner {
         long start = System.currentTimeMillis();
         launcher.execute(request);
 
+        if (context.getStrengthScheduler() != null) {
+            context.getStrengthScheduler().saveHistory();
+        }
+        if (incrementalRun != null) {
+            incrementalRun.saveManifest();
+        }
+        context.getMapper().closeResults();
+
         double elapsedTime = (System.currentTimeMillis() - start) / 1000.0;
         if (elapsedTime < 10) {
             LOGGER.error("Something seems to be wrong, testsuite executed in " + elapsedTime + "s");
@@ -149,10 +194,13 @@ public class TestRunner {
         // wait for all pcap files to be written
         if (!config.isDisableTcpDump()) {
             LOGGER.info("Stopping pcap capture...");
-            try {
-                Thread.sleep(PcapCapturer.WAITING_TIME_AFTER_CLOSE_MILLI);
-            } catch (InterruptedException e) {
-                LOGGER.error(e);
+            // captures end at the latest after the maximum drain time, wait a bit longer for
+            // the pcap files to be written
+            if (!context.awaitPcapCaptures(2L * PcapCapturer.WAITING_TIME_AFTER_CLOSE_MILLI)) {
+                LOGGER.warn("Not all pcap captures completed in time");
+            }
+            if (config.getPcapCaptureMode() == PcapCaptureMode.SHARED) {
+                SharedPcapCaptureEngine.close(context);
             }
         }
         if (config.getExpectedResultsMap() != null) {
@@ -160,6 +208,45 @@ public class TestRunner {
         }
     }
 
+    /**
+     * @return the test methods of all discovered templates
+     */
+    private static Set<Method> getTemplateMethods(TestPlan testplan) {
+        Set<Method> templates = new LinkedHashSet<>();
+        for (TestIdentifier root : testplan.getRoots()) {
+            for (TestIdentifier identifier : testplan.getDescendants(root)) {
+                if (identifier.getSource().orElse(null) instanceof MethodSource source) {
+                    Method method = source.getJavaMethod();
+                    if (method.isAnnotationPresent(AnvilTest.class)
+                            || method.isAnnotationPresent(NonCombinatorialAnvilTest.class)) {
+                        templates.add(method);
+                    }
+                }
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * Schedules the strengths of all discovered combinatorial templates that do not define their
+     * strength with {@link TestStrength}, prioritized by their maximum severity level.
+     *
+     * @return the scheduled strength by test ID
+     */
+    private Map<String, Integer> scheduleStrengths(Set<Method> templates) {
+        Map<String, Integer> severityLevels = new HashMap<>();
+        for (Method method : templates) {
+            if (!method.isAnnotationPresent(AnvilTest.class)
+                    || AnnotationSupport.isAnnotated(method, TestStrength.class)) {
+                continue;
+            }
+            String testId = TestIdResolver.resolveTestId(method);
+            TestMetadata metadata = MetadataIndex.getInstance().get(testId);
+            severityLevels.put(testId, metadata != null ? metadata.getMaxSeverityLevel() : 0);
+        }
+        return context.getStrengthScheduler().schedule(severityLevels, config.getParallelTests());
+    }
+
     private void checkExpectedResults() {
 
         Map<TestResult, Set<String>> results =
@@ -281,6 +368,19 @@ public class TestRunner {
                         });
     }
 
+    private void excludeTestIds(LauncherDiscoveryRequestBuilder builder, Set<String> testIds) {
+        builder.filters(
+                (PostDiscoveryFilter)
+                        descriptor -> {
+                            if (descriptor instanceof MethodBasedTestDescriptor md
+                                    && testIds.contains(
+                                            TestIdResolver.resolveTestId(md.getTestMethod()))) {
+                                return FilterResult.excluded("Result of previous run is reused");
+                            }
+                            return FilterResult.included("");
+                        });
+    }
+
     public boolean isCheckExecuted() {
         return checkExecuted;
     }
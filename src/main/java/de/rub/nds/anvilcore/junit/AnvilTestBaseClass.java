@@ -8,6 +8,7 @@
  */
 package de.rub.nds.anvilcore.junit;
 
+import de.rub.nds.anvilcore.execution.EndpointConcurrencyInterceptor;
 import de.rub.nds.anvilcore.execution.PcapCapturingInvocationInterceptor;
 import de.rub.nds.anvilcore.junit.extension.AnvilTestWatcher;
 import de.rub.nds.anvilcore.junit.extension.EndpointConditionExtension;
@@ -28,6 +29,7 @@ import org.junit.jupiter.params.aggregator.ArgumentsAccessor;
     MethodConditionExtension.class,
     ValueConstraintsConditionExtension.class,
     ExtensionContextParameterResolver.class,
+    EndpointConcurrencyInterceptor.class,
     PcapCapturingInvocationInterceptor.class
 })
 public abstract class AnvilTestBaseClass {
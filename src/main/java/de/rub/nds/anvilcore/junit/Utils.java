@@ -9,11 +9,15 @@
 package de.rub.nds.anvilcore.junit;
 
 import de.rub.nds.anvilcore.annotation.AnvilTest;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.extension.ExtensionContext;
 
 public class Utils {
+    private static final Logger LOGGER = LogManager.getLogger();
 
     public static ExtensionContext getTemplateContainerExtensionContext(
             ExtensionContext extensionContext) {
@@ -37,4 +41,30 @@ public class Utils {
         // this will also yield false for all disabled tests
         return testMethod.isPresent() && testMethod.get().isAnnotationPresent(AnvilTest.class);
     }
+
+    /**
+     * Attempts to set the ExtensionContext on an instance by looking for a setExtensionContext
+     * method. If the method exists, it invokes it with the provided ExtensionContext. This avoids
+     * errors where helper methods don't have access to their respective AnvilContext and other
+     * execution-specific context objects.
+     *
+     * @param instance The instance to set the ExtensionContext on
+     * @param clazz The class of the instance
+     * @param extensionContext The ExtensionContext to set
+     */
+    public static void setExtensionContextIfAvailable(
+            Object instance, Class<?> clazz, ExtensionContext extensionContext) {
+        try {
+            Method setContextMethod =
+                    clazz.getMethod("setExtensionContext", ExtensionContext.class);
+            setContextMethod.setAccessible(true);
+            setContextMethod.invoke(instance, extensionContext);
+        } catch (NoSuchMethodException e) {
+            LOGGER.warn(
+                    "Class {} does not provide a setExtensionContext method. ExtensionContext will not be available to the instance.",
+                    clazz.getName());
+        } catch (InvocationTargetException | IllegalAccessException e) {
+            LOGGER.error("Failed to invoke setExtensionContext on class {}", clazz.getName(), e);
+        }
+    }
 }
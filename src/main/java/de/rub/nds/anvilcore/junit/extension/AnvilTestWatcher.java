@@ -8,16 +8,18 @@
  */
 package de.rub.nds.anvilcore.junit.extension;
 
+import de.rub.nds.anvilcore.coffee4j.junit.AnvilCombinatorialTestExtension;
 import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.context.AnvilContextRegistry;
+import de.rub.nds.anvilcore.context.TemplateTiming;
 import de.rub.nds.anvilcore.junit.Utils;
 import de.rub.nds.anvilcore.model.ParameterCombination;
 import de.rub.nds.anvilcore.teststate.AnvilTestCase;
 import de.rub.nds.anvilcore.teststate.AnvilTestRun;
 import de.rub.nds.anvilcore.teststate.TestResult;
 import de.rub.nds.anvilcore.teststate.reporting.AnvilReport;
+import de.rub.nds.anvilcore.teststate.reporting.PcapCapturer;
 import de.rub.nds.anvilcore.util.TestIdResolver;
-import de.rub.nds.anvilcore.util.ZipUtil;
 import de.rub.nds.terminalutils.ProgressSpinner;
 import de.rwth.swc.coffee4j.model.Combination;
 import de.rwth.swc.coffee4j.model.TestInputGroupContext;
@@ -44,9 +46,6 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
 
     // initiated only by ExecutionReporter
     private ExtensionContext extensionContext;
-    // for keeping time
-    private static final Map<String, Long> executionTimes = new HashMap<>();
-    private static final Map<String, Long> generationTimes = new HashMap<>();
     // Context ID for this test execution (when acting as TestExecutionListener). As our TestWatcher
     // implements multiple interfaces, there may be distinct TestWatcher objects. We hence use
     // either the given ID or the TestPlan to obtain the right AnvilContext.
@@ -71,7 +70,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
      * @param extensionContext context of the test template
      */
     @Override
-    public synchronized void testSuccessful(ExtensionContext extensionContext) {
+    public void testSuccessful(ExtensionContext extensionContext) {
         AnvilContext context = AnvilContextRegistry.byExtensionContext(extensionContext);
         if (context == null || context.isAborted()) {
             return;
@@ -102,18 +101,26 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
             if (context.getListener() != null) {
                 context.getListener().onTestCaseFinished(testCase, testRun.getTestId());
             }
+            finishTestCase(context, testRun, testCase);
+        }
+    }
 
-            if (testRun.isReadyForCompletion()) {
-                finishAndTime(testRun);
-            }
+    private void finishTestCase(
+            AnvilContext context, AnvilTestRun testRun, AnvilTestCase testCase) {
+        context.getMapper().appendTestCase(testRun, testCase);
+        if (context.getConfig().isBoundedMemory()) {
+            testRun.compactTestCase(testCase, context.getFailureDetails());
+        }
+
+        if (testRun.testCaseCompleted(testCase)) {
+            finishAndTime(context, testRun);
         }
     }
 
-    private void finishAndTime(AnvilTestRun testRun) {
-        Long startTime = executionTimes.get(testRun.getUniqueId());
-        if (startTime != null) {
-            long elapsedTime = System.currentTimeMillis() - startTime;
-            testRun.setExecutionTimeMillis(elapsedTime);
+    private void finishAndTime(AnvilContext context, AnvilTestRun testRun) {
+        TemplateTiming timing = context.templateFinished(testRun.getUniqueId());
+        if (timing != null) {
+            testRun.setExecutionTimeMillis(timing.getExecutionTimeMillis());
         }
         ProgressSpinner.stopSpinnerTask(testRun.getTestId());
         testRun.finish();
@@ -143,7 +150,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
             }
         }
 
-        finishAndTime(testRun);
+        finishAndTime(AnvilContextRegistry.byExtensionContext(extensionContext), testRun);
     }
 
     /**
@@ -152,7 +159,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
      * @param extensionContext context of the test template
      */
     @Override
-    public synchronized void testFailed(ExtensionContext extensionContext, Throwable cause) {
+    public void testFailed(ExtensionContext extensionContext, Throwable cause) {
         AnvilContext context = AnvilContextRegistry.byExtensionContext(extensionContext);
         if (context == null || context.isAborted()) {
             return;
@@ -192,10 +199,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
             if (context.getListener() != null) {
                 context.getListener().onTestCaseFinished(testCase, testRun.getTestId());
             }
-
-            if (testRun.isReadyForCompletion()) {
-                finishAndTime(testRun);
-            }
+            finishTestCase(context, testRun, testCase);
         }
     }
 
@@ -217,7 +221,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
                 extensionContext.getParent().get())) {
             // simple tests finish immediately
             testRun.finish();
-        } else if (testRun.isReadyForCompletion()) {
+        } else if (testRun.claimCompletion()) {
             testRun.finish();
         }
     }
@@ -234,13 +238,12 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
         LOGGER.trace(
                 "Test Inputs generated for " + extensionContext.getRequiredTestMethod().getName());
 
-        Long generationStartTime = generationTimes.get(extensionContext.getUniqueId());
-        if (generationStartTime != null) {
-            long generationTime = System.currentTimeMillis() - generationStartTime;
-            generationTimes.put(extensionContext.getUniqueId(), generationTime);
-            executionTimes.put(extensionContext.getUniqueId(), System.currentTimeMillis());
+        TemplateTiming timing =
+                AnvilContextRegistry.byExtensionContext(extensionContext)
+                        .getTemplateTiming(extensionContext.getUniqueId());
+        if (timing != null) {
             AnvilTestRun.forExtensionContext(extensionContext)
-                    .setGenerationTimeMillis(generationTime);
+                    .setGenerationTimeMillis(timing.generationFinished());
         }
     }
 
@@ -271,6 +274,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
     @Override
     public void testInputGroupFinished(TestInputGroupContext context) {
         AnvilTestRun.forExtensionContext(extensionContext).setReadyForCompletion(true);
+        AnvilCombinatorialTestExtension.signalGenerationFinished(extensionContext);
     }
 
     /**
@@ -307,6 +311,7 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
         LOGGER.trace("Execution of " + testPlan.toString() + " finished");
         ProgressSpinner.stopSpinner();
         logTestPlanExecutionSummary(context);
+        context.getMapper().flushResults();
         AnvilReport anvilReport = new AnvilReport(context, false);
         context.getMapper().saveReportToPath(anvilReport);
         context.getMapper().saveExtraFileToPath(context.getResultsTestRuns(), "result_map");
@@ -314,7 +319,11 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
             context.getListener().onReportFinished(anvilReport);
         }
         if (context.getConfig().isDoZip()) {
-            ZipUtil.packFolderToZip(context.getConfig().getOutputFolder(), "report.zip");
+            // include pcap files of the last test cases in the archive
+            if (!context.awaitPcapCaptures(2L * PcapCapturer.WAITING_TIME_AFTER_CLOSE_MILLI)) {
+                LOGGER.warn("Not all pcap captures completed before packing the results");
+            }
+            context.finishResultArchive();
         }
     }
 
@@ -352,8 +361,10 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
             LOGGER.trace(testIdentifier.getDisplayName() + " started");
         }
         if (testIdentifier.isContainer()) {
-            generationTimes.put(testIdentifier.getUniqueId(), System.currentTimeMillis());
-            executionTimes.put(testIdentifier.getUniqueId(), System.currentTimeMillis());
+            AnvilContext context = AnvilContextRegistry.getContext(contextId);
+            if (context != null) {
+                context.templateStarted(testIdentifier.getUniqueId());
+            }
             if (testIdentifier.getSource().isPresent()
                     && testIdentifier.getSource().get() instanceof MethodSource) {
                 ProgressSpinner.startSpinnerTask(
@@ -391,10 +402,10 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
             LOGGER.trace(testIdentifier.getDisplayName() + " finished");
         }
         if (testIdentifier.isContainer()) {
-            Long startTime = executionTimes.get(testIdentifier.getUniqueId());
-            if (startTime != null) {
-                long elapsedTime = System.currentTimeMillis() - startTime;
-                executionTimes.put(testIdentifier.getUniqueId(), elapsedTime);
+            AnvilContext context = AnvilContextRegistry.getContext(contextId);
+            if (context != null) {
+                // test runs that were not finished by their test cases do not report a time
+                context.templateFinished(testIdentifier.getUniqueId());
             }
             if (testIdentifier.getSource().isPresent()
                     && testIdentifier.getSource().get() instanceof MethodSource) {
@@ -468,12 +479,14 @@ public class AnvilTestWatcher implements TestWatcher, ExecutionReporter, TestExe
         if (testRunResult == TestResult.FULLY_FAILED
                 || testRunResult == TestResult.PARTIALLY_FAILED) {
             Map<String, Long> failedTestCasesDetailsSummary =
-                    context.getDetailsFailedTestCases().entrySet().stream()
+                    context.getFailureDetailCounts().entrySet().stream()
                             .filter(entry -> testRunsIds.contains(entry.getKey()))
-                            .map(Map.Entry::getValue)
-                            .flatMap(Collection::stream)
+                            .flatMap(entry -> entry.getValue().entrySet().stream())
                             .collect(
-                                    Collectors.groupingBy(String::toString, Collectors.counting()));
+                                    Collectors.toMap(
+                                            Map.Entry::getKey,
+                                            detail -> (long) detail.getValue(),
+                                            Long::sum));
 
             if (!failedTestCasesDetailsSummary.isEmpty()) {
                 logMessage.append("\n\t\tDetails of failed test cases:");
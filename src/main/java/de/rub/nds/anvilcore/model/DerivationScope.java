@@ -13,10 +13,15 @@ import de.rub.nds.anvilcore.coffee4j.model.ModelFromScope;
 import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.context.AnvilContextRegistry;
 import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.execution.StrengthScheduler;
 import de.rub.nds.anvilcore.model.constraint.ValueConstraint;
 import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import de.rub.nds.anvilcore.util.TestIdResolver;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -35,6 +40,8 @@ public class DerivationScope {
     private final ExtensionContext extensionContext;
     private final Set<ParameterIdentifier> manualConfigTypes;
     private final int testStrength;
+    // constrained values of each parameter, computed at most once per scope
+    private final Map<String, List<?>> constrainedParameterValues = new ConcurrentHashMap<>();
 
     private DerivationScope(ExtensionContext extensionContext) {
         this.extensionContext = extensionContext;
@@ -69,6 +76,27 @@ public class DerivationScope {
 
     // TODO Remove constructor, only for testing purposes
     public DerivationScope() {
+        this(3);
+    }
+
+    /**
+     * Creates a scope without an extension context that models all parameters of the single
+     * registered {@link AnvilContext} at the given strength. Only meant for tests and benchmarks.
+     *
+     * @param testStrength the strength of the scope
+     */
+    public DerivationScope(int testStrength) {
+        this(DefaultModelTypes.ALL_PARAMETERS, testStrength);
+    }
+
+    /**
+     * Creates a scope without an extension context that only defines the model type and the
+     * strength, e.g. to determine the model parameters of a template before it is executed.
+     *
+     * @param modelType the model type of the scope
+     * @param testStrength the strength of the scope
+     */
+    public DerivationScope(String modelType, int testStrength) {
         this.ipmLimitations = Collections.emptyList();
         this.ipmExtensions = Collections.emptyList();
         this.valueConstraints = Collections.emptyList();
@@ -76,24 +104,24 @@ public class DerivationScope {
         this.explicitModelingConstraints = Collections.emptyMap();
         this.extensionContext = null;
         this.manualConfigTypes = Collections.emptySet();
-        this.testStrength = 3;
-        this.modelType = DefaultModelTypes.ALL_PARAMETERS;
+        this.testStrength = testStrength;
+        this.modelType = modelType;
     }
 
     public static String resolveModelType(ExtensionContext extensionContext) {
+        return resolveModelType(
+                extensionContext.getRequiredTestClass(), extensionContext.getRequiredTestMethod());
+    }
+
+    public static String resolveModelType(Class<?> testClass, Method testMethod) {
         ModelFromScope closestAnnotation;
-        if (extensionContext.getRequiredTestMethod().getAnnotation(ModelFromScope.class) != null) {
-            closestAnnotation =
-                    extensionContext.getRequiredTestMethod().getAnnotation(ModelFromScope.class);
-        } else if (extensionContext.getRequiredTestClass().getAnnotation(ModelFromScope.class)
-                != null) {
-            closestAnnotation =
-                    extensionContext.getRequiredTestClass().getAnnotation(ModelFromScope.class);
+        if (testMethod.getAnnotation(ModelFromScope.class) != null) {
+            closestAnnotation = testMethod.getAnnotation(ModelFromScope.class);
+        } else if (testClass.getAnnotation(ModelFromScope.class) != null) {
+            closestAnnotation = testClass.getAnnotation(ModelFromScope.class);
         } else {
             closestAnnotation =
-                    AnnotationSupport.findAnnotation(
-                                    extensionContext.getRequiredTestMethod(), ModelFromScope.class)
-                            .orElse(null);
+                    AnnotationSupport.findAnnotation(testMethod, ModelFromScope.class).orElse(null);
         }
 
         if (closestAnnotation != null) {
@@ -146,6 +174,39 @@ public class DerivationScope {
         return explicitModelingConstraints.containsKey(parameterIdentifier);
     }
 
+    /**
+     * Returns the constrained values of a parameter within this scope. The values are computed on
+     * first access and reused by all subsequent calls, as the IPM provider and the conditional
+     * constraints query the same parameters repeatedly while building the model. The values are
+     * shared by all callers and must not be modified, linked values are created as copies by
+     * {@code DerivationParameter.createLinkedValue} instead.
+     *
+     * @param parameterIdentifier the identifier of the parameter
+     * @param computation computes the constrained values if they are not known yet
+     * @return an unmodifiable list of the constrained values
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<T> getConstrainedParameterValues(
+            ParameterIdentifier parameterIdentifier, Supplier<List<T>> computation) {
+        // identifiers are mutable (linked identifiers), hence we key by their current state
+        String key =
+                parameterIdentifier.hasLinkedParameterIdentifier()
+                        ? parameterIdentifier.name()
+                                + "->"
+                                + parameterIdentifier.getLinkedParameterIdentifier().name()
+                        : parameterIdentifier.name();
+        List<?> values = constrainedParameterValues.get(key);
+        if (values == null) {
+            // not using computeIfAbsent as computations may query further parameters
+            values = Collections.unmodifiableList(new ArrayList<>(computation.get()));
+            List<?> concurrentValues = constrainedParameterValues.putIfAbsent(key, values);
+            if (concurrentValues != null) {
+                values = concurrentValues;
+            }
+        }
+        return (List<T>) values;
+    }
+
     /**
      * Return a stream of entries where each entry consists of elements with the same index in
      * {@code firstArray} and {@code secondArray}.
@@ -369,11 +430,13 @@ public class DerivationScope {
     /**
      * Resolve the test strength for the test method in the current context.
      *
-     * <p>Returns the default test streng from the {@link AnvilContext} if the method was not found.
+     * <p>Returns the strength scheduled for the time budget or the default test strength from
+     * the {@link AnvilContext} if the method does not define a strength.
      *
      * @param extensionContext the current extension context
      * @return test strength
      * @see TestStrength
+     * @see StrengthScheduler
      * @see AnvilTestConfig#getStrength()
      */
     private static int resolveTestStrength(final ExtensionContext extensionContext) {
@@ -381,10 +444,21 @@ public class DerivationScope {
                         extensionContext.getRequiredTestMethod(), TestStrength.class)
                 .map(TestStrength::value)
                 .orElseGet(
-                        () ->
-                                AnvilContextRegistry.byExtensionContext(extensionContext)
-                                        .getConfig()
-                                        .getStrength());
+                        () -> {
+                            AnvilContext context =
+                                    AnvilContextRegistry.byExtensionContext(extensionContext);
+                            StrengthScheduler scheduler = context.getStrengthScheduler();
+                            Integer scheduledStrength =
+                                    scheduler != null
+                                            ? scheduler.getScheduledStrength(
+                                                    TestIdResolver.resolveTestId(
+                                                            extensionContext
+                                                                    .getRequiredTestMethod()))
+                                            : null;
+                            return scheduledStrength != null
+                                    ? scheduledStrength
+                                    : context.getConfig().getStrength();
+                        });
     }
 
     public boolean parameterListedForManualConfig(ParameterIdentifier identifier) {
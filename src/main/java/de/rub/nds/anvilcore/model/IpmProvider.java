@@ -16,7 +16,6 @@ import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
 import de.rwth.swc.coffee4j.junit.provider.model.ModelProvider;
 import de.rwth.swc.coffee4j.model.InputParameterModel;
 import de.rwth.swc.coffee4j.model.Parameter;
-import de.rwth.swc.coffee4j.model.Value;
 import de.rwth.swc.coffee4j.model.constraints.Constraint;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -94,20 +93,26 @@ public class IpmProvider implements ModelProvider, AnnotationConsumer<ModelFromS
         List<Parameter.Builder> parameterBuilders = new ArrayList<>();
         for (ParameterIdentifier parameterIdentifier : parameterIdentifiers) {
             DerivationParameter<Object, Object> parameter = parameterIdentifier.getInstance();
-            if (!parameter.getConstrainedParameterValues(derivationScope).isEmpty()) {
-                Parameter.Builder parameterBuilder = parameter.getParameterBuilder(derivationScope);
-                parameterBuilders.add(parameterBuilder);
-                if (parameterIdentifier.hasLinkedParameterIdentifier()) {
-                    parameterBuilder.build().getValues().stream()
-                            .map(Value::get)
-                            .forEach(
-                                    listedValue ->
-                                            ((DerivationParameter) listedValue)
-                                                    .getParameterIdentifier()
-                                                    .setLinkedParameterIdentifier(
-                                                            parameterIdentifier
-                                                                    .getLinkedParameterIdentifier()));
-                }
+            List<DerivationParameter<Object, Object>> values =
+                    parameter.getConstrainedParameterValues(derivationScope);
+            if (values.isEmpty()) {
+                continue;
+            }
+            if (parameterIdentifier.hasLinkedParameterIdentifier()) {
+                // the values are shared with the constraints of the scope, link copies instead
+                Object[] linkedValues =
+                        values.stream()
+                                .map(
+                                        value ->
+                                                value.createLinkedValue(
+                                                        parameterIdentifier
+                                                                .getLinkedParameterIdentifier()))
+                                .toArray();
+                parameterBuilders.add(
+                        Parameter.parameter(parameter.getParameterIdentifier().toString())
+                                .values(linkedValues));
+            } else {
+                parameterBuilders.add(parameter.getParameterBuilder(derivationScope));
             }
         }
         return parameterBuilders.toArray(Parameter.Builder[]::new);
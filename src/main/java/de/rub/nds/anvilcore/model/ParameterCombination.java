@@ -11,7 +11,11 @@ package de.rub.nds.anvilcore.model;
 import com.fasterxml.jackson.annotation.JsonValue;
 import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
 import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import de.rub.nds.anvilcore.model.parameter.ParameterScope;
+import de.rub.nds.anvilcore.model.parameter.ParameterType;
 import de.rwth.swc.coffee4j.model.Combination;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -19,18 +23,44 @@ import org.junit.jupiter.params.aggregator.ArgumentsAccessor;
 
 public class ParameterCombination {
     private static final Logger LOGGER = LogManager.getLogger();
+    private static final byte[] SEPARATOR_BYTES = ", ".getBytes(StandardCharsets.UTF_8);
 
     private final List<DerivationParameter> parameterValues;
     private DerivationScope derivationScope;
 
+    // lookup structures, built once as test templates query parameters repeatedly; parameters are
+    // indexed by type and scope, which unlike the linked identifier cannot change after creation
+    private final Map<IdentifierKey, DerivationParameter[]> parametersByIdentifier =
+            new HashMap<>();
+    private final Map<Class<?>, DerivationParameter> parametersByClass = new HashMap<>();
+    private final Set<Class<?>> ambiguousClasses = new HashSet<>();
+
+    // parameters ordered by their identifiers, the canonical order of toString()
+    private volatile DerivationParameter[] sortedParameters;
+
+    // parameters applied by applyToConfig, resolved for the derivation scope they belong to
+    private DerivationParameter[] configParameters;
+    private DerivationScope configParametersScope;
+
     public ParameterCombination(List<DerivationParameter> parameters) {
-        this.parameterValues = parameters;
+        this(parameters, null);
     }
 
     public ParameterCombination(
             List<DerivationParameter> parameters, DerivationScope derivationScope) {
-        this.parameterValues = parameters;
+        this.parameterValues = Collections.unmodifiableList(new ArrayList<>(parameters));
         this.derivationScope = derivationScope;
+
+        for (DerivationParameter parameter : parameterValues) {
+            // keep the order of the parameters, lookups return the first equal one
+            parametersByIdentifier.merge(
+                    IdentifierKey.of(parameter.getParameterIdentifier()),
+                    new DerivationParameter[] {parameter},
+                    ParameterCombination::concat);
+            if (parametersByClass.putIfAbsent(parameter.getClass(), parameter) != null) {
+                ambiguousClasses.add(parameter.getClass());
+            }
+        }
     }
 
     public static ParameterCombination fromCombination(Combination combination) {
@@ -69,44 +99,64 @@ public class ParameterCombination {
     }
 
     public DerivationParameter getParameter(ParameterIdentifier parameterIdentifier) {
-        for (DerivationParameter parameter : getParameterValues()) {
-            if (parameter.getParameterIdentifier().equals(parameterIdentifier)) {
-                return parameter;
+        DerivationParameter parameter = findParameter(parameterIdentifier);
+        if (parameter == null) {
+            throw new NoSuchElementException(
+                    "Found no Parameter for requested identifier " + parameterIdentifier);
+        }
+        return parameter;
+    }
+
+    private DerivationParameter findParameter(ParameterIdentifier parameterIdentifier) {
+        DerivationParameter[] candidates =
+                parametersByIdentifier.get(IdentifierKey.of(parameterIdentifier));
+        if (candidates != null) {
+            // candidates only differ in their linked identifiers, usually there is just one
+            for (DerivationParameter candidate : candidates) {
+                if (candidate.getParameterIdentifier().equals(parameterIdentifier)) {
+                    return candidate;
+                }
             }
         }
-        throw new NoSuchElementException(
-                "Found no Parameter for requested identifier " + parameterIdentifier);
+        return null;
+    }
+
+    private static DerivationParameter[] concat(
+            DerivationParameter[] first, DerivationParameter[] second) {
+        DerivationParameter[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    /** The part of a {@link ParameterIdentifier} that does not change once it was created. */
+    private record IdentifierKey(ParameterType type, ParameterScope scope) {
+        static IdentifierKey of(ParameterIdentifier parameterIdentifier) {
+            return new IdentifierKey(
+                    parameterIdentifier.getParameterType(),
+                    parameterIdentifier.getParameterScope());
+        }
     }
 
     public boolean hasParameter(ParameterIdentifier parameterIdentifier) {
-        return getParameterValues().stream()
-                .map(DerivationParameter::getParameterIdentifier)
-                .anyMatch(parameterIdentifier::equals);
+        return findParameter(parameterIdentifier) != null;
     }
 
     public boolean hasParameter(Class<?> clazz) {
-        return getParameterValues().stream().map(Object::getClass).anyMatch(clazz::equals);
+        return parametersByClass.containsKey(clazz);
     }
 
     public <T extends DerivationParameter<?, ?>> T getParameter(Class<T> clazz) {
-        T matchingFound = null;
-        for (DerivationParameter listed : getParameterValues()) {
-            if (clazz.equals(listed.getClass())) {
-                if (matchingFound == null) {
-                    matchingFound = (T) listed;
-                } else {
-                    throw new IllegalArgumentException(
-                            "Found multiple ParameterIdentifiers for "
-                                    + clazz
-                                    + ". Full ParameterIdentifier is required.");
-                }
-            }
+        if (ambiguousClasses.contains(clazz)) {
+            throw new IllegalArgumentException(
+                    "Found multiple ParameterIdentifiers for "
+                            + clazz
+                            + ". Full ParameterIdentifier is required.");
         }
-
+        DerivationParameter matchingFound = parametersByClass.get(clazz);
         if (matchingFound == null) {
             throw new NoSuchElementException("Found no Parameter for requested class " + clazz);
         }
-        return matchingFound;
+        return (T) matchingFound;
     }
 
     public DerivationParameter getLinkedParameter(ParameterIdentifier identifierWithRef) {
@@ -114,54 +164,81 @@ public class ParameterCombination {
             throw new IllegalArgumentException(
                     "Provided ParameterIdentifier has no linked parameter");
         }
-        for (DerivationParameter parameter : getParameterValues()) {
-            if (parameter
-                    .getParameterIdentifier()
-                    .equals(identifierWithRef.getLinkedParameterIdentifier())) {
-                return parameter;
-            }
-        }
-        return null;
+        return findParameter(identifierWithRef.getLinkedParameterIdentifier());
     }
 
     public void applyToConfig(Object config) {
-        for (DerivationParameter parameter : getParameterValues()) {
-            if (!derivationScope
-                    .getManualConfigTypes()
-                    .contains(parameter.getParameterIdentifier())) {
-                parameter.preProcessConfig(config, getDerivationScope());
-            }
+        DerivationParameter[] parameters = getConfigParameters();
+        for (DerivationParameter parameter : parameters) {
+            parameter.preProcessConfig(config, getDerivationScope());
         }
-        for (DerivationParameter parameter : getParameterValues()) {
-            if (!derivationScope
-                    .getManualConfigTypes()
-                    .contains(parameter.getParameterIdentifier())) {
-                parameter.applyToConfig(config, getDerivationScope());
-            }
+        for (DerivationParameter parameter : parameters) {
+            parameter.applyToConfig(config, getDerivationScope());
         }
-        for (DerivationParameter parameter : getParameterValues()) {
-            if (!derivationScope
-                    .getManualConfigTypes()
-                    .contains(parameter.getParameterIdentifier())) {
-                parameter.postProcessConfig(config, getDerivationScope());
-            }
+        for (DerivationParameter parameter : parameters) {
+            parameter.postProcessConfig(config, getDerivationScope());
         }
     }
 
+    private synchronized DerivationParameter[] getConfigParameters() {
+        if (configParameters == null || configParametersScope != derivationScope) {
+            Set<ParameterIdentifier> manualConfigTypes = derivationScope.getManualConfigTypes();
+            configParameters =
+                    parameterValues.stream()
+                            .filter(
+                                    parameter ->
+                                            !manualConfigTypes.contains(
+                                                    parameter.getParameterIdentifier()))
+                            .toArray(DerivationParameter[]::new);
+            configParametersScope = derivationScope;
+        }
+        return configParameters;
+    }
+
     @Override
     public String toString() {
         StringJoiner joiner = new StringJoiner(", ");
-        getParameterValues().stream()
-                .sorted(Comparator.comparing(dP -> dP.getParameterIdentifier().toString()))
-                .forEach((derivationParameter) -> joiner.add(derivationParameter.toString()));
+        for (DerivationParameter derivationParameter : getSortedParameters()) {
+            joiner.add(derivationParameter.toString());
+        }
         return joiner.toString();
     }
 
+    /**
+     * Feeds the canonical form of this combination, i.e. the UTF-8 encoding of {@link
+     * #toString()}, into the given digest without building the whole string.
+     *
+     * @param digest the digest to update
+     */
+    public void updateDigest(MessageDigest digest) {
+        DerivationParameter[] sortedParameters = getSortedParameters();
+        for (int i = 0; i < sortedParameters.length; i++) {
+            if (i > 0) {
+                digest.update(SEPARATOR_BYTES);
+            }
+            digest.update(sortedParameters[i].toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private DerivationParameter[] getSortedParameters() {
+        DerivationParameter[] parameters = sortedParameters;
+        if (parameters == null) {
+            parameters =
+                    parameterValues.stream()
+                            .sorted(
+                                    Comparator.comparing(
+                                            dP -> dP.getParameterIdentifier().toString()))
+                            .toArray(DerivationParameter[]::new);
+            sortedParameters = parameters;
+        }
+        return parameters;
+    }
+
     /**
      * @return the parameterValues
      */
     public List<DerivationParameter> getParameterValues() {
-        return Collections.unmodifiableList(parameterValues);
+        return parameterValues;
     }
 
     /**
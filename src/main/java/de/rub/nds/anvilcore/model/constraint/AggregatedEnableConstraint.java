@@ -24,6 +24,7 @@ public class AggregatedEnableConstraint<T> extends ConditionalConstraint {
     private final Set<ParameterIdentifier> dynamicParameters = new HashSet<>();
     private final Set<ParameterIdentifier> staticParameters = new HashSet<>();
     private final boolean staticTarget;
+    private final ConstraintTruthTable truthTable;
 
     public AggregatedEnableConstraint(
             DerivationScope derivationScope,
@@ -55,14 +56,25 @@ public class AggregatedEnableConstraint<T> extends ConditionalConstraint {
         for (ParameterIdentifier dynamicParameterIdentifier : dynamicParameters) {
             parameterNames.add(dynamicParameterIdentifier.name());
         }
+        truthTable =
+                ConstraintTruthTable.forConstraint(
+                        derivationScope,
+                        target,
+                        staticTarget,
+                        dynamicParameters,
+                        this::aggregatedPredicateAdapter);
         Constraint constraint =
                 new Constraint(
                         "aggregated-enable-constraint",
                         parameterNames,
-                        this::aggregatedPredicateAdapter);
+                        this::cachedPredicateAdapter);
         setConstraint(constraint);
     }
 
+    private boolean cachedPredicateAdapter(List<?> objects) {
+        return truthTable.test(objects);
+    }
+
     private boolean aggregatedPredicateAdapter(List<?> objects) {
         List<DerivationParameter> derivationParameters = new ArrayList<>();
         for (Object obj : objects) {
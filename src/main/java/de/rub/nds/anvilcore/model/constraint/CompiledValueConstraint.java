@@ -0,0 +1,127 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.model.constraint;
+
+import de.rub.nds.anvilcore.junit.Utils;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+/**
+ * A {@link ValueConstraint} resolved to a method handle that can be evaluated for many values
+ * without further reflective lookups. The method handles are shared by all compilations of the
+ * same evaluation method. For dynamic constraints, a single instance of the constraint class is
+ * created per compilation and used for all evaluated values.
+ */
+public final class CompiledValueConstraint {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final MethodType DYNAMIC_TYPE =
+            MethodType.methodType(boolean.class, Object.class, Object.class);
+    private static final MethodType STATIC_TYPE =
+            MethodType.methodType(boolean.class, Object.class);
+
+    private static final Map<HandleKey, MethodHandle> HANDLES = new ConcurrentHashMap<>();
+
+    private final ValueConstraint constraint;
+    // (Object)boolean, receives the value to check
+    private final MethodHandle predicate;
+
+    private record HandleKey(Class<?> owner, String methodName, Class<?> valueClass) {}
+
+    private CompiledValueConstraint(ValueConstraint constraint, MethodHandle predicate) {
+        this.constraint = constraint;
+        this.predicate = predicate;
+    }
+
+    /**
+     * @param constraint the constraint to compile
+     * @param valueClass the class of the values the constraint is evaluated for
+     * @param extensionContext the context passed to instances of dynamic constraint classes
+     * @return the compiled constraint
+     */
+    public static CompiledValueConstraint compile(
+            ValueConstraint constraint, Class<?> valueClass, ExtensionContext extensionContext) {
+        try {
+            if (constraint.isDynamic()) {
+                // dynamic - pass value to method of specified class
+                MethodHandle handle =
+                        getHandle(
+                                new HandleKey(
+                                        constraint.getClazz(),
+                                        constraint.getEvaluationMethod(),
+                                        valueClass),
+                                DYNAMIC_TYPE);
+                Object instance = constraint.getClazz().getConstructor().newInstance();
+                Utils.setExtensionContextIfAvailable(
+                        instance, constraint.getClazz(), extensionContext);
+                return new CompiledValueConstraint(constraint, handle.bindTo(instance));
+            } else {
+                // static - call value.method and use return value
+                MethodHandle handle =
+                        getHandle(
+                                new HandleKey(valueClass, constraint.getEvaluationMethod(), null),
+                                STATIC_TYPE);
+                return new CompiledValueConstraint(constraint, handle);
+            }
+        } catch (NoSuchMethodException
+                | InvocationTargetException
+                | InstantiationException
+                | IllegalAccessException e) {
+            LOGGER.error(
+                    "Was unable to compile constraint method for type "
+                            + constraint.getAffectedParameter(),
+                    e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static MethodHandle getHandle(HandleKey key, MethodType type)
+            throws NoSuchMethodException, IllegalAccessException {
+        MethodHandle handle = HANDLES.get(key);
+        if (handle == null) {
+            Method method =
+                    key.valueClass() != null
+                            ? key.owner().getMethod(key.methodName(), key.valueClass())
+                            : key.owner().getMethod(key.methodName());
+            handle = MethodHandles.publicLookup().unreflect(method).asType(type);
+            HANDLES.putIfAbsent(key, handle);
+        }
+        return handle;
+    }
+
+    /**
+     * @param value the value to check
+     * @return true if the value satisfies the constraint
+     */
+    public boolean isApplicable(Object value) {
+        try {
+            return (boolean) predicate.invokeExact(value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            LOGGER.error(
+                    "Was unable to invoke constraint method for type "
+                            + constraint.getAffectedParameter(),
+                    e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    public ValueConstraint getConstraint() {
+        return constraint;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.model.constraint;
+
+import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Caches the results of a constraint over the domains of its dynamic parameters. Coffee4j passes
+ * the same value objects that were used to build the input parameter model for every evaluation,
+ * hence a value can be mapped to its index by identity and the arguments to a cell of a
+ * mixed-radix table. Each cell is computed at most once, all further evaluations of the same
+ * arguments neither allocate nor call the constraint again. Arguments that are not part of the
+ * known domains are always passed to the constraint.
+ */
+@SuppressWarnings("rawtypes")
+final class ConstraintTruthTable {
+
+    // larger domain products are evaluated without caching
+    static final int MAX_TABLE_SIZE = 1 << 16;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private final Predicate<List<?>> constraint;
+    private final Map<Object, Integer>[] valueIndices;
+    private final int[] radices;
+    private final byte[] table;
+
+    @SuppressWarnings("unchecked")
+    private ConstraintTruthTable(List<? extends List<?>> domains, Predicate<List<?>> constraint) {
+        this.constraint = constraint;
+        valueIndices = new Map[domains.size()];
+        radices = new int[domains.size()];
+        long tableSize = 1;
+        for (int i = 0; i < domains.size(); i++) {
+            List<?> domain = domains.get(i);
+            valueIndices[i] = new IdentityHashMap<>();
+            for (int j = 0; j < domain.size(); j++) {
+                valueIndices[i].putIfAbsent(domain.get(j), j);
+            }
+            radices[i] = Math.max(domain.size(), 1);
+            tableSize = Math.min(tableSize * radices[i], MAX_TABLE_SIZE + 1L);
+        }
+        table = tableSize <= MAX_TABLE_SIZE ? new byte[(int) tableSize] : null;
+    }
+
+    /**
+     * Creates a truth table for a constraint whose arguments are the target (unless it is static)
+     * followed by the given dynamic parameters.
+     *
+     * @param derivationScope the scope the input parameter model is built for
+     * @param target the target of the constraint
+     * @param staticTarget whether the target is static and hence not passed to the constraint
+     * @param dynamicParameters the dynamic parameters in the order they are passed
+     * @param constraint evaluates the constraint if the result is not known yet
+     * @return the truth table
+     */
+    static ConstraintTruthTable forConstraint(
+            DerivationScope derivationScope,
+            DerivationParameter target,
+            boolean staticTarget,
+            Collection<ParameterIdentifier> dynamicParameters,
+            Predicate<List<?>> constraint) {
+        List<List<?>> domains = new ArrayList<>();
+        if (!staticTarget) {
+            domains.add(target.getConstrainedParameterValues(derivationScope));
+        }
+        for (ParameterIdentifier parameterIdentifier : dynamicParameters) {
+            DerivationParameter parameter = parameterIdentifier.getInstance();
+            domains.add(parameter.getConstrainedParameterValues(derivationScope));
+        }
+        return new ConstraintTruthTable(domains, constraint);
+    }
+
+    /**
+     * @param arguments the values passed by coffee4j
+     * @return the result of the constraint for the given arguments
+     */
+    boolean test(List<?> arguments) {
+        if (table == null || arguments.size() != radices.length) {
+            return constraint.test(arguments);
+        }
+        int offset = 0;
+        for (int i = 0; i < radices.length; i++) {
+            Integer index = valueIndices[i].get(arguments.get(i));
+            if (index == null) {
+                return constraint.test(arguments);
+            }
+            offset = offset * radices[i] + index;
+        }
+        byte cached = table[offset];
+        if (cached != UNKNOWN) {
+            return cached == TRUE;
+        }
+        // concurrent evaluations of the same cell store the same result
+        boolean result = constraint.test(arguments);
+        table[offset] = result ? TRUE : FALSE;
+        return result;
+    }
+}
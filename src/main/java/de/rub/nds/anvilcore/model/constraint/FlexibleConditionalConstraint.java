@@ -28,6 +28,7 @@ public class FlexibleConditionalConstraint extends ConditionalConstraint {
     private final Set<ParameterIdentifier> staticParameters = new HashSet<>();
     private final BiPredicate<DerivationParameter, List<DerivationParameter>> predicate;
     private final boolean staticTarget;
+    private final ConstraintTruthTable truthTable;
 
     public FlexibleConditionalConstraint(
             String constraintName,
@@ -61,11 +62,22 @@ public class FlexibleConditionalConstraint extends ConditionalConstraint {
         for (ParameterIdentifier parameterIdentifier : dynamicParameters) {
             dynamicParameterNames.add(parameterIdentifier.name());
         }
+        truthTable =
+                ConstraintTruthTable.forConstraint(
+                        derivationScope,
+                        target,
+                        staticTarget,
+                        dynamicParameters,
+                        this::predicateAdapter);
         Constraint constraint =
-                new Constraint(constraintName, dynamicParameterNames, this::predicateAdapter);
+                new Constraint(constraintName, dynamicParameterNames, this::cachedPredicateAdapter);
         setConstraint(constraint);
     }
 
+    private boolean cachedPredicateAdapter(List<?> objects) {
+        return truthTable.test(objects);
+    }
+
     private boolean predicateAdapter(List<?> objects) {
         // Cast objects
         List<DerivationParameter> parameterValues = new ArrayList<>();
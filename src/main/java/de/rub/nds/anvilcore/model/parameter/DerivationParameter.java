@@ -8,7 +8,9 @@
  */
 package de.rub.nds.anvilcore.model.parameter;
 
+import de.rub.nds.anvilcore.junit.Utils;
 import de.rub.nds.anvilcore.model.DerivationScope;
+import de.rub.nds.anvilcore.model.constraint.CompiledValueConstraint;
 import de.rub.nds.anvilcore.model.constraint.ConditionalConstraint;
 import de.rub.nds.anvilcore.model.constraint.ValueConstraint;
 import de.rwth.swc.coffee4j.model.Parameter;
@@ -73,20 +75,52 @@ public abstract class DerivationParameter<ConfigType, ValueType> {
 
     public List<DerivationParameter<ConfigType, ValueType>> getConstrainedParameterValues(
             DerivationScope derivationScope) {
+        return new ArrayList<>(
+                derivationScope.getConstrainedParameterValues(
+                        parameterIdentifier,
+                        () -> computeConstrainedParameterValues(derivationScope)));
+    }
+
+    private List<DerivationParameter<ConfigType, ValueType>> computeConstrainedParameterValues(
+            DerivationScope derivationScope) {
         if (derivationScope.hasExplicitValues(parameterIdentifier)) {
             return getExplicitValues(derivationScope);
         } else {
+            List<CompiledValueConstraint> constraints =
+                    compileValueConstraints(
+                            derivationScope.getExtensionContext(),
+                            derivationScope.getValueConstraints());
             return getParameterValues(derivationScope).stream()
                     .filter(
                             value ->
                                     valueApplicableUnderAllConstraints(
-                                            derivationScope.getExtensionContext(),
-                                            derivationScope.getValueConstraints(),
-                                            (ValueType) value.getSelectedValue()))
+                                            constraints, value.getSelectedValue()))
                     .collect(Collectors.toList());
         }
     }
 
+    private List<CompiledValueConstraint> compileValueConstraints(
+            ExtensionContext extensionContext, List<ValueConstraint> valueConstraints) {
+        List<CompiledValueConstraint> compiledConstraints = new ArrayList<>();
+        for (ValueConstraint constraint : valueConstraints) {
+            if (constraint.getAffectedParameter().equals(parameterIdentifier)) {
+                compiledConstraints.add(
+                        CompiledValueConstraint.compile(constraint, valueClass, extensionContext));
+            }
+        }
+        return compiledConstraints;
+    }
+
+    private boolean valueApplicableUnderAllConstraints(
+            List<CompiledValueConstraint> constraints, ValueType value) {
+        for (CompiledValueConstraint constraint : constraints) {
+            if (!constraint.isApplicable(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public List<ConditionalConstraint> getDefaultConditionalConstraints(
             DerivationScope derivationScope) {
         return new ArrayList<>();
@@ -119,6 +153,21 @@ public abstract class DerivationParameter<ConfigType, ValueType> {
     protected abstract DerivationParameter<ConfigType, ValueType> generateValue(
             ValueType selectedValue);
 
+    /**
+     * Creates a new value with the same selected value whose identifier is linked to another
+     * parameter. The values returned by {@link #getConstrainedParameterValues(DerivationScope)}
+     * are shared within the derivation scope and must therefore not be linked themselves.
+     *
+     * @param linkedParameterIdentifier the parameter the new value is linked to
+     * @return the linked value
+     */
+    public DerivationParameter<ConfigType, ValueType> createLinkedValue(
+            ParameterIdentifier linkedParameterIdentifier) {
+        DerivationParameter<ConfigType, ValueType> value = generateValue(getSelectedValue());
+        value.getParameterIdentifier().setLinkedParameterIdentifier(linkedParameterIdentifier);
+        return value;
+    }
+
     private List<DerivationParameter<ConfigType, ValueType>> getExplicitValues(
             DerivationScope derivationScope) {
         try {
@@ -132,7 +181,7 @@ public abstract class DerivationParameter<ConfigType, ValueType> {
                     derivationScope.getExtensionContext().getRequiredTestClass().getConstructor();
             Object instance = constructor.newInstance();
 
-            setExtensionContextIfAvailable(
+            Utils.setExtensionContextIfAvailable(
                     instance,
                     derivationScope.getExtensionContext().getRequiredTestClass(),
                     derivationScope.getExtensionContext());
@@ -148,52 +197,6 @@ public abstract class DerivationParameter<ConfigType, ValueType> {
         }
     }
 
-    private boolean valueApplicableUnderAllConstraints(
-            ExtensionContext extensionContext,
-            List<ValueConstraint> valueConstraints,
-            ValueType value) {
-        for (ValueConstraint constraint : valueConstraints) {
-            if (constraint.getAffectedParameter().equals(parameterIdentifier)) {
-                if (!valueApplicableUnderConstraint(extensionContext, constraint, value)) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    private boolean valueApplicableUnderConstraint(
-            ExtensionContext extensionContext, ValueConstraint constraint, ValueType value) {
-        try {
-            Method method;
-            Constructor constructor;
-            if (constraint.isDynamic()) {
-                // dynamic - pass value to method of specified class
-                method =
-                        constraint
-                                .getClazz()
-                                .getMethod(constraint.getEvaluationMethod(), valueClass);
-                constructor = constraint.getClazz().getConstructor();
-                Object instance = constructor.newInstance();
-
-                setExtensionContextIfAvailable(instance, constraint.getClazz(), extensionContext);
-
-                return (Boolean) method.invoke(instance, value);
-            } else {
-                // static - call value.method and use return value
-                method = valueClass.getMethod(constraint.getEvaluationMethod());
-                return (Boolean) method.invoke(value);
-            }
-        } catch (InvocationTargetException
-                | NoSuchMethodException
-                | InstantiationException
-                | IllegalAccessException e) {
-            LOGGER.error(
-                    "Was unable to invoke constraint method for type " + parameterIdentifier, e);
-            throw new RuntimeException(e);
-        }
-    }
-
     private List<ConditionalConstraint> getExplicitModelingConstraints(
             DerivationScope derivationScope) {
         try {
@@ -208,7 +211,7 @@ public abstract class DerivationParameter<ConfigType, ValueType> {
                     derivationScope.getExtensionContext().getRequiredTestClass().getConstructor();
             Object instance = constructor.newInstance();
 
-            setExtensionContextIfAvailable(
+            Utils.setExtensionContextIfAvailable(
                     instance,
                     derivationScope.getExtensionContext().getRequiredTestClass(),
                     derivationScope.getExtensionContext());
@@ -225,32 +228,6 @@ public abstract class DerivationParameter<ConfigType, ValueType> {
         }
     }
 
-    /**
-     * Attempts to set the ExtensionContext on an instance by looking for a setExtensionContext
-     * method. If the method exists, it invokes it with the provided ExtensionContext. This avoids
-     * errors where helper methods don't have access to their respective AnvilContext and other
-     * execution-specific context objects.
-     *
-     * @param instance The instance to set the ExtensionContext on
-     * @param clazz The class of the instance
-     * @param extensionContext The ExtensionContext to set
-     */
-    private void setExtensionContextIfAvailable(
-            Object instance, Class<?> clazz, ExtensionContext extensionContext) {
-        try {
-            Method setContextMethod =
-                    clazz.getMethod("setExtensionContext", ExtensionContext.class);
-            setContextMethod.setAccessible(true);
-            setContextMethod.invoke(instance, extensionContext);
-        } catch (NoSuchMethodException e) {
-            LOGGER.warn(
-                    "Class {} does not provide a setExtensionContext method. ExtensionContext will not be available to the instance.",
-                    clazz.getName());
-        } catch (InvocationTargetException | IllegalAccessException e) {
-            LOGGER.error("Failed to invoke setExtensionContext on class {}", clazz.getName(), e);
-        }
-    }
-
     @Override
     public String toString() {
         return parameterIdentifier.toString()
@@ -10,14 +10,18 @@ package de.rub.nds.anvilcore.teststate;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import de.rub.nds.anvilcore.model.ParameterCombination;
-import jakarta.xml.bind.DatatypeConverter;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -55,9 +59,17 @@ public class AnvilTestCase {
     private ExtensionContext extensionContext;
     protected AnvilTestRun associatedContainer;
 
-    private String caseSpecificPcapFilter = null;
+    private volatile String caseSpecificPcapFilter = null;
+    // notified when the case-specific pcap filter is set while its packets are captured
+    private volatile Consumer<String> caseSpecificPcapFilterListener;
     private String temporaryPcapFileName = null;
-    private static int pcapFileCounter = 0;
+    private static final AtomicInteger pcapFileCounter = new AtomicInteger();
+
+    // position in the test cases of the associated test run
+    int testRunIndex = -1;
+
+    // cached result of getUuid(), reset whenever one of its inputs is replaced
+    private volatile String uuid;
 
     public AnvilTestCase() {}
 
@@ -78,25 +90,47 @@ public class AnvilTestCase {
                         .get(AnvilTestCase.class.getName());
     }
 
+    /**
+     * The UUID identifies the test case across test runs. It is derived from the additional test
+     * information, the parameter combination and the test template and computed at most once
+     * until one of these inputs is replaced through this class.
+     *
+     * @return the hex encoded SHA-256 UUID of this test case
+     */
     @JsonProperty("uuid")
     public String getUuid() {
-        StringBuilder toHash = new StringBuilder();
-        toHash.append(this.getAdditionalTestInformation());
-        if (getParameterCombination() != null) {
-            toHash.append(this.getParameterCombination().toString());
+        String currentUuid = uuid;
+        if (currentUuid == null) {
+            currentUuid = computeUuid();
+            uuid = currentUuid;
         }
-        toHash.append(getAssociatedContainer().getTestClass().getName());
-        toHash.append(getAssociatedContainer().getTestMethod().getName());
+        return currentUuid;
+    }
 
+    private String computeUuid() {
         try {
+            // feeds the same bytes as hashing the concatenation of all parts
             MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(toHash.toString().getBytes(StandardCharsets.UTF_8));
-            return DatatypeConverter.printHexBinary(hash);
-        } catch (Exception e) {
+            updateDigest(digest, String.valueOf(getAdditionalTestInformation()));
+            if (getParameterCombination() != null) {
+                getParameterCombination().updateDigest(digest);
+            }
+            updateDigest(digest, getAssociatedContainer().getTestClass().getName());
+            updateDigest(digest, getAssociatedContainer().getTestMethod().getName());
+            return HexFormat.of().withUpperCase().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
             throw new RuntimeException("SHA-256 not possible...");
         }
     }
 
+    private static void updateDigest(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void invalidateUuid() {
+        uuid = null;
+    }
+
     @JsonProperty("Stacktrace")
     public String getStacktrace() {
         if (failedReason != null) {
@@ -147,6 +181,7 @@ public class AnvilTestCase {
 
     public void setParameterCombination(ParameterCombination parameterCombination) {
         this.parameterCombination = parameterCombination;
+        invalidateUuid();
     }
 
     public Throwable getFailedReason() {
@@ -165,12 +200,22 @@ public class AnvilTestCase {
         this.additionalResultInformation = additionalResultInformation;
     }
 
+    /**
+     * @return a read-only view of the additional test information, which can only be changed
+     *     through this class as it is part of the cached UUID
+     */
     public List<String> getAdditionalTestInformation() {
-        return additionalTestInformation;
+        return additionalTestInformation != null
+                ? Collections.unmodifiableList(additionalTestInformation)
+                : null;
     }
 
     public void setAdditionalTestInformation(List<String> additionalTestInformation) {
-        this.additionalTestInformation = additionalTestInformation;
+        this.additionalTestInformation =
+                additionalTestInformation != null
+                        ? new ArrayList<>(additionalTestInformation)
+                        : null;
+        invalidateUuid();
     }
 
     public ExtensionContext getExtensionContext() {
@@ -187,6 +232,7 @@ public class AnvilTestCase {
 
     public void setAssociatedContainer(AnvilTestRun associatedContainer) {
         this.associatedContainer = associatedContainer;
+        invalidateUuid();
     }
 
     /**
@@ -225,6 +271,7 @@ public class AnvilTestCase {
         }
 
         additionalTestInformation.add(info);
+        invalidateUuid();
     }
 
     public String getCaseSpecificPcapFilter() {
@@ -233,12 +280,24 @@ public class AnvilTestCase {
 
     public void setCaseSpecificPcapFilter(String caseSpecificPcapFilter) {
         this.caseSpecificPcapFilter = caseSpecificPcapFilter;
+        Consumer<String> listener = caseSpecificPcapFilterListener;
+        if (listener != null) {
+            listener.accept(caseSpecificPcapFilter);
+        }
+    }
+
+    /**
+     * @param listener notified with the new filter whenever the case-specific pcap filter is set,
+     *     or null to remove the listener
+     */
+    public void setCaseSpecificPcapFilterListener(Consumer<String> listener) {
+        this.caseSpecificPcapFilterListener = listener;
     }
 
     public String getTemporaryPcapFileName() {
         if (temporaryPcapFileName == null) {
-            temporaryPcapFileName = String.format("testcase_%d.pcap", pcapFileCounter);
-            pcapFileCounter++;
+            temporaryPcapFileName =
+                    String.format("testcase_%d.pcap", pcapFileCounter.getAndIncrement());
         }
         return temporaryPcapFileName;
     }
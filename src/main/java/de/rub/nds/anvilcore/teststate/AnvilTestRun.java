@@ -9,17 +9,21 @@
 package de.rub.nds.anvilcore.teststate;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.context.AnvilContextRegistry;
 import de.rub.nds.anvilcore.junit.Utils;
 import de.rub.nds.anvilcore.model.ParameterCombination;
-import de.rub.nds.anvilcore.teststate.reporting.MetadataFetcher;
+import de.rub.nds.anvilcore.teststate.reporting.MetadataIndex;
 import de.rub.nds.anvilcore.teststate.reporting.ScoreContainer;
+import de.rub.nds.anvilcore.teststate.reporting.TestMetadata;
 import de.rub.nds.anvilcore.util.TestIdResolver;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -35,7 +39,18 @@ public class AnvilTestRun {
     // set when the last finished has been reported by junit
     @JsonIgnore private boolean finished = false;
     // set when coffee4j reports that the input group has been finished
-    @JsonIgnore private boolean readyForCompletion = false;
+    @JsonIgnore private volatile boolean readyForCompletion = false;
+    // test cases that have been created but not yet been processed by the test watcher
+    @JsonIgnore private final AtomicInteger pendingTestCases = new AtomicInteger();
+    // ensures that only one thread finishes the test run
+    @JsonIgnore private final AtomicBoolean completionClaimed = new AtomicBoolean(false);
+    // number of test cases known in advance, e.g. when the test inputs were taken from the cache
+    @JsonIgnore private volatile int expectedTestCases = 0;
+    @JsonIgnore private final AtomicInteger completedTestCases = new AtomicInteger();
+    // results and failure details of the processed test cases
+    @JsonIgnore private TestCaseHistogram testCaseHistogram;
+    // number of test cases of a result that was reused from a previous run
+    @JsonIgnore private int reusedTestCases = -1;
 
     private final long startTime = System.currentTimeMillis();
     private int resultRaw = 0;
@@ -85,7 +100,7 @@ public class AnvilTestRun {
     }
 
     @JsonProperty("TestCases")
-    private List<AnvilTestCase> testCases = new ArrayList<>();
+    private List<AnvilTestCase> testCases = Collections.synchronizedList(new ArrayList<>());
 
     @JsonProperty("Result")
     private TestResult result;
@@ -102,6 +117,14 @@ public class AnvilTestRun {
     @JsonProperty("GenerationTime")
     private long generationTimeMillis;
 
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("GenerationCache")
+    private String generationCacheStatus;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @JsonProperty("Strength")
+    private Integer strength;
+
     @JsonProperty("FailureInducingCombinations")
     private List<ParameterCombination> failureInducingCombinations;
 
@@ -120,7 +143,7 @@ public class AnvilTestRun {
 
     @JsonProperty("CaseCount")
     private int getCaseCount() {
-        return testCases.size();
+        return reusedTestCases >= 0 ? reusedTestCases : testCases.size();
     }
 
     @JsonUnwrapped
@@ -129,50 +152,6 @@ public class AnvilTestRun {
         return AnvilContext.getMetadataFetcher().getRawMetadata(testId);
     }
 
-    private Map<TestResult, List<AnvilTestCase>> groupTestCasesByResult() {
-        Map<TestResult, List<AnvilTestCase>> testCasesByResult = new EnumMap<>(TestResult.class);
-        testCases.forEach(
-                testCase -> {
-                    TestResult testCaseResult = testCase.getTestResult();
-                    testCasesByResult
-                            .computeIfAbsent(testCaseResult, mapKey -> new ArrayList<>())
-                            .add(testCase);
-                });
-
-        return testCasesByResult;
-    }
-
-    private List<TestResult> getFailureTestResults() {
-        return Arrays.asList(TestResult.FULLY_FAILED, TestResult.PARTIALLY_FAILED);
-    }
-
-    private List<AnvilTestCase> filterTestCasesByResult(TestResult testResult) {
-        return testCases.stream()
-                .filter(testCase -> testCase.getTestResult() == testResult)
-                .collect(Collectors.toList());
-    }
-
-    private Map<String, Integer> filterUniqueFailedTestCases(TestResult testResult) {
-        if (!getFailureTestResults().contains(testResult)) {
-            String failureResults =
-                    getFailureTestResults().stream()
-                            .map(Enum::name)
-                            .collect(Collectors.joining(" or "));
-            throw new IllegalArgumentException("Test result must be either " + failureResults);
-        }
-
-        Map<String, Integer> failedTestCasesDetails = new HashMap<>();
-        List<AnvilTestCase> failedTestCases = filterTestCasesByResult(testResult);
-
-        // create a frequency map of failure details for all failed test cases
-        failedTestCases.forEach(
-                failedTestCase ->
-                        failedTestCasesDetails.merge(
-                                failedTestCase.getFailureDetails(), 1, Integer::sum));
-
-        return failedTestCasesDetails;
-    }
-
     /**
      * This method generates a summary of the failure details for a given test result.
      *
@@ -199,8 +178,7 @@ public class AnvilTestRun {
         return logMessage.toString();
     }
 
-    private String buildTestRunResultsSummary() {
-        Map<TestResult, List<AnvilTestCase>> testCasesByResult = groupTestCasesByResult();
+    private String buildTestRunResultsSummary(Map<TestResult, Integer> testCasesByResult) {
         int testCasesSize = testCases.size();
 
         StringJoiner logMessage = new StringJoiner("\n");
@@ -209,53 +187,55 @@ public class AnvilTestRun {
                         "\nTest cases of test run %s by result:",
                         testId != null ? testId : "undefined"));
         testCasesByResult.forEach(
-                (testResult, mappedTestCases) -> {
+                (testResult, count) -> {
                     logMessage.add(
                             String.format(
                                     "\t%d/%d test cases %s.",
-                                    mappedTestCases.size(), testCasesSize, testResult.toString()));
+                                    count,
+                                    testCasesSize,
+                                    testResult.toString()));
                 });
 
         return logMessage.toString();
     }
 
-    private String buildTestRunFailureDetailsSummary() {
-        Map<TestResult, List<AnvilTestCase>> testCasesByResult = groupTestCasesByResult();
+    private String buildTestRunFailureDetailsSummary(Map<TestResult, Integer> testCasesByResult) {
         StringBuilder logMessage = new StringBuilder();
 
         // add details of failed test cases if there are any
-        if (testCasesByResult.keySet().stream().anyMatch(getFailureTestResults()::contains)) {
+        if (testCasesByResult.keySet().stream().anyMatch(TestResult::isFailure)) {
             logMessage.append("\nDetails of failed test cases:\n");
         }
-        getFailureTestResults().stream()
-                .filter(testCasesByResult::containsKey)
+        testCasesByResult.keySet().stream()
+                .filter(TestResult::isFailure)
                 .forEach(
                         failureResult ->
                                 logMessage.append(
                                         buildTestCaseFailureDetailsSummary(
                                                 failureResult,
-                                                filterUniqueFailedTestCases(failureResult))));
+                                                getTestCaseHistogram()
+                                                        .getFailureDetailCounts(failureResult))));
 
         return logMessage.toString();
     }
 
     private void logTestRun() {
-        MetadataFetcher metadataFetcher = AnvilContext.getMetadataFetcher();
+        TestMetadata metadata = MetadataIndex.getInstance().get(testId);
         StringBuilder logMessage = new StringBuilder();
 
         String testName = getName() != null ? getName() : "undefined";
         String testIdValue = testId != null ? testId : "undefined";
         String rfcNumber =
-                metadataFetcher.getRfcNumber(testId) != null
-                        ? metadataFetcher.getRfcNumber(testId).toString()
+                metadata != null && metadata.getRfcNumber() != null
+                        ? metadata.getRfcNumber().toString()
                         : "undefined";
         String rfcSection =
-                metadataFetcher.getRfcSection(testId) != null
-                        ? metadataFetcher.getRfcSection(testId)
+                metadata != null && metadata.getRfcSection() != null
+                        ? metadata.getRfcSection()
                         : "undefined";
         String description =
-                metadataFetcher.getDescription(testId) != null
-                        ? metadataFetcher.getDescription(testId)
+                metadata != null && metadata.getDescription() != null
+                        ? metadata.getDescription()
                         : "undefined";
         int testCaseSize = testCases.size();
 
@@ -265,8 +245,9 @@ public class AnvilTestRun {
                         testName, testIdValue, rfcNumber, rfcSection, description, testCaseSize));
 
         if (!testCases.isEmpty()) {
-            logMessage.append(buildTestRunResultsSummary());
-            logMessage.append(buildTestRunFailureDetailsSummary());
+            Map<TestResult, Integer> testCasesByResult = getTestCaseHistogram().getResultCounts();
+            logMessage.append(buildTestRunResultsSummary(testCasesByResult));
+            logMessage.append(buildTestRunFailureDetailsSummary(testCasesByResult));
         }
 
         LOGGER.warn(logMessage.toString());
@@ -306,7 +287,7 @@ public class AnvilTestRun {
      * @param testClass The class determined externally
      * @param testMethod The test method determined externally
      */
-    private AnvilTestRun(Class<?> testClass, Method testMethod) {
+    AnvilTestRun(Class<?> testClass, Method testMethod) {
         this.testClass = testClass;
         this.testMethod = testMethod;
         this.uniqueId = getName();
@@ -326,18 +307,32 @@ public class AnvilTestRun {
         }
     }
 
-    public static synchronized AnvilTestRun forExtensionContext(ExtensionContext extensionContext) {
+    /**
+     * Creates a finished test run for a template that was not executed because the result of a
+     * previous run is reused. The test cases are not loaded, only their number is reported.
+     *
+     * @param testMethod the test method of the template
+     * @param result the result of the previous run
+     * @param testCaseCount the number of test cases of the previous run
+     * @return the finished test run
+     */
+    public static AnvilTestRun forReusedResult(
+            Method testMethod, TestResult result, long testCaseCount) {
+        AnvilTestRun testRun = new AnvilTestRun(testMethod.getDeclaringClass(), testMethod);
+        testRun.result = result;
+        testRun.reusedTestCases = (int) testCaseCount;
+        testRun.finished = true;
+        testRun.scoreContainer.updateForResult(result);
+        return testRun;
+    }
+
+    public static AnvilTestRun forExtensionContext(ExtensionContext extensionContext) {
         ExtensionContext resolvedContext =
                 Utils.getTemplateContainerExtensionContext(extensionContext);
         String testId = TestIdResolver.resolveTestId(resolvedContext.getRequiredTestMethod());
         AnvilContext anvilContext = AnvilContextRegistry.byExtensionContext(extensionContext);
-        if (anvilContext.getActiveTestRun(testId) != null) {
-            return anvilContext.getActiveTestRun(testId);
-        }
-
-        AnvilTestRun container = new AnvilTestRun(resolvedContext);
-        anvilContext.addActiveTestRun(container);
-        return container;
+        return anvilContext.getOrAddActiveTestRun(
+                testId, newTestId -> new AnvilTestRun(resolvedContext));
     }
 
     public void setResultRaw(int resultRaw) {
@@ -474,7 +469,71 @@ public class AnvilTestRun {
 
     public void addTestCase(AnvilTestCase testCase) {
         testCase.setAssociatedContainer(this);
-        this.testCases.add(testCase);
+        pendingTestCases.incrementAndGet();
+        synchronized (testCases) {
+            testCase.testRunIndex = testCases.size();
+            testCases.add(testCase);
+        }
+    }
+
+    /**
+     * @return the results and failure details of the test cases processed so far
+     */
+    public synchronized TestCaseHistogram getTestCaseHistogram() {
+        if (testCaseHistogram == null) {
+            FailureDetailDictionary failureDetails =
+                    extensionContext != null
+                            ? AnvilContextRegistry.byExtensionContext(extensionContext)
+                                    .getFailureDetails()
+                            : new FailureDetailDictionary();
+            testCaseHistogram = new TestCaseHistogram(failureDetails);
+        }
+        return testCaseHistogram;
+    }
+
+    /**
+     * Replaces a finished test case by its {@link CompactTestCase}, so the parameter combination,
+     * failure cause and extension context of the test case can be released once its result was
+     * written.
+     *
+     * @param testCase a finished test case of this test run
+     * @param failureDetails the dictionary of failure details of the test suite
+     */
+    public void compactTestCase(AnvilTestCase testCase, FailureDetailDictionary failureDetails) {
+        CompactTestCase compactTestCase = new CompactTestCase(testCase, failureDetails);
+        synchronized (testCases) {
+            int index = testCase.testRunIndex;
+            if (index >= 0 && index < testCases.size() && testCases.get(index) == testCase) {
+                compactTestCase.testRunIndex = index;
+                testCases.set(index, compactTestCase);
+            }
+        }
+    }
+
+    /**
+     * Marks a test case of this test run as processed. Test cases of the same test run may be
+     * processed concurrently, hence only the caller that processed the last test case after
+     * coffee4j finished the input group is allowed to finish the test run.
+     *
+     * @param testCase the processed test case
+     * @return true if the caller must finish the test run
+     */
+    public boolean testCaseCompleted(AnvilTestCase testCase) {
+        getTestCaseHistogram().record(testCase);
+        pendingTestCases.decrementAndGet();
+        completedTestCases.incrementAndGet();
+        return claimCompletion();
+    }
+
+    /**
+     * @return true exactly once, as soon as the test run is ready for completion and no test case
+     *     is pending anymore
+     */
+    public boolean claimCompletion() {
+        return readyForCompletion
+                && pendingTestCases.get() <= 0
+                && completedTestCases.get() >= expectedTestCases
+                && completionClaimed.compareAndSet(false, true);
     }
 
     public void setFailureInducingCombinations(
@@ -511,4 +570,37 @@ public class AnvilTestRun {
     public void setGenerationTimeMillis(long generationTimeMillis) {
         this.generationTimeMillis = generationTimeMillis;
     }
+
+    /**
+     * @return "hit" or "miss" if the test input cache was used for this test run, null otherwise
+     */
+    public String getGenerationCacheStatus() {
+        return generationCacheStatus;
+    }
+
+    public void setGenerationCacheStatus(String generationCacheStatus) {
+        this.generationCacheStatus = generationCacheStatus;
+    }
+
+    /**
+     * @return the strength the test inputs were generated with, null for non-combinatorial tests
+     */
+    public Integer getStrength() {
+        return strength;
+    }
+
+    public void setStrength(Integer strength) {
+        this.strength = strength;
+    }
+
+    /**
+     * Announces the number of test cases of this test run if it is known before the execution,
+     * i.e. when no coffee4j manager reports the end of the input group. The test run is then not
+     * completed before this many test cases have been processed.
+     *
+     * @param expectedTestCases the number of test cases that will be executed
+     */
+    public void setExpectedTestCases(int expectedTestCases) {
+        this.expectedTestCases = expectedTestCases;
+    }
 }
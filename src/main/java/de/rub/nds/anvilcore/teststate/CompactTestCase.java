@@ -0,0 +1,61 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate;
+
+/**
+ * Summary of a finished test case whose full result was already written to disk. It keeps the
+ * result, the uuid, the timing and the additional result information, which are needed to
+ * summarize the test run. If the test case failed, its failure details are referenced by their id
+ * in the {@link FailureDetailDictionary}. The parameter combination, the cause of a failure and
+ * the extension context are released.
+ */
+public class CompactTestCase extends AnvilTestCase {
+
+    private final String uuid;
+    private final int failureDetailId;
+    private final FailureDetailDictionary failureDetails;
+
+    /**
+     * @param testCase the finished test case
+     * @param failureDetails the dictionary the failure details are added to
+     */
+    public CompactTestCase(AnvilTestCase testCase, FailureDetailDictionary failureDetails) {
+        this.uuid = testCase.getUuid();
+        this.failureDetails = failureDetails;
+        this.failureDetailId =
+                testCase.getTestResult() != null && testCase.getTestResult().isFailure()
+                        ? failureDetails.idOf(testCase.getFailureDetails())
+                        : FailureDetailDictionary.NO_DETAIL;
+        this.associatedContainer = testCase.getAssociatedContainer();
+        setTestResult(testCase.getTestResult());
+        setDisplayName(testCase.getDisplayName());
+        setAdditionalResultInformation(testCase.getAdditionalResultInformation());
+        setSrcPort(testCase.getSrcPort());
+        setDstPort(testCase.getDstPort());
+        setStartTime(testCase.getStartTime());
+        setEndTime(testCase.getEndTime());
+    }
+
+    @Override
+    public String getUuid() {
+        return uuid;
+    }
+
+    @Override
+    public String getFailureDetails() {
+        if (failureDetailId == FailureDetailDictionary.NO_DETAIL) {
+            return super.getFailureDetails();
+        }
+        return failureDetails.get(failureDetailId);
+    }
+
+    public int getFailureDetailId() {
+        return failureDetailId;
+    }
+}
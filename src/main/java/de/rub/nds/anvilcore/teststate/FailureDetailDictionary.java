@@ -0,0 +1,88 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Assigns ids to failure details, such that every distinct failure detail of a test suite is only
+ * kept once. Failed test cases usually fail for one of a few reasons, hence their failure details
+ * are mostly identical strings. Details are normalized before they are looked up, so details that
+ * only differ in whitespace or in identity hash codes of objects share the same id. The normalized
+ * form is only used for grouping, an id stands for the first detail that was added with it.
+ */
+public class FailureDetailDictionary {
+
+    /** Id of test cases without failure details. */
+    public static final int NO_DETAIL = -1;
+
+    // e.g. the suffix of java.lang.Object@1b6d3586
+    private static final Pattern IDENTITY_HASH_CODE =
+            Pattern.compile("(?<=[\\w$])@[0-9a-f]{4,8}\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // ids by normalized detail
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> details = new ArrayList<>();
+
+    /**
+     * @param detail the failure detail
+     * @return the id of the failure detail, assigned on first use
+     */
+    public synchronized int idOf(String detail) {
+        if (detail == null) {
+            return NO_DETAIL;
+        }
+        String normalizedDetail = normalize(detail);
+        Integer id = ids.get(normalizedDetail);
+        if (id == null) {
+            id = details.size();
+            details.add(detail);
+            ids.put(normalizedDetail, id);
+        }
+        return id;
+    }
+
+    /**
+     * @param detail a failure detail
+     * @return the failure detail without identity hash codes and with collapsed whitespace
+     */
+    static String normalize(String detail) {
+        String withoutHashCodes = IDENTITY_HASH_CODE.matcher(detail).replaceAll("");
+        return WHITESPACE.matcher(withoutHashCodes).replaceAll(" ").trim();
+    }
+
+    /**
+     * @param id an id returned by {@link #idOf(String)}
+     * @return the first failure detail added with the id, or null for {@link #NO_DETAIL}
+     */
+    public synchronized String get(int id) {
+        if (id == NO_DETAIL) {
+            return null;
+        }
+        return details.get(id);
+    }
+
+    /**
+     * @param detail the failure detail
+     * @return the instance of the failure detail kept by this dictionary, which is the first
+     *     detail with the same normalized form
+     */
+    public String intern(String detail) {
+        return get(idOf(detail));
+    }
+
+    public synchronized int size() {
+        return details.size();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts the results of the finished test cases of a test run and, for failed test cases, their
+ * failure details. The counts are updated as test cases finish, so summaries of a test run only
+ * depend on the number of distinct results and failure details, not on the number of test cases.
+ */
+public class TestCaseHistogram {
+
+    private final FailureDetailDictionary failureDetails;
+    private final Map<TestResult, Integer> resultCounts = new EnumMap<>(TestResult.class);
+    private final Map<TestResult, Map<Integer, Integer>> failureDetailCounts =
+            new EnumMap<>(TestResult.class);
+    private int total = 0;
+
+    /**
+     * @param failureDetails the dictionary the failure details are interned in
+     */
+    public TestCaseHistogram(FailureDetailDictionary failureDetails) {
+        this.failureDetails = failureDetails;
+    }
+
+    /**
+     * Adds a finished test case to the histogram.
+     *
+     * @param testCase the finished test case
+     */
+    public void record(AnvilTestCase testCase) {
+        TestResult testResult = testCase.getTestResult();
+        int detailId =
+                testResult != null && testResult.isFailure()
+                        ? failureDetails.idOf(testCase.getFailureDetails())
+                        : FailureDetailDictionary.NO_DETAIL;
+        synchronized (this) {
+            total++;
+            if (testResult == null) {
+                return;
+            }
+            resultCounts.merge(testResult, 1, Integer::sum);
+            if (detailId != FailureDetailDictionary.NO_DETAIL) {
+                failureDetailCounts
+                        .computeIfAbsent(testResult, result -> new HashMap<>())
+                        .merge(detailId, 1, Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * @return the number of recorded test cases
+     */
+    public synchronized int getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the number of recorded test cases by result, ordered by result
+     */
+    public synchronized Map<TestResult, Integer> getResultCounts() {
+        return new EnumMap<>(resultCounts);
+    }
+
+    /**
+     * @param testResult a failure result
+     * @return the number of test cases with the given result by failure detail, most frequent
+     *     first
+     */
+    public Map<String, Integer> getFailureDetailCounts(TestResult testResult) {
+        Map<Integer, Integer> counts;
+        synchronized (this) {
+            counts = new HashMap<>(failureDetailCounts.getOrDefault(testResult, Map.of()));
+        }
+        Map<String, Integer> detailCounts = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed())
+                .forEach(
+                        entry ->
+                                detailCounts.put(
+                                        failureDetails.get(entry.getKey()), entry.getValue()));
+        return detailCounts;
+    }
+
+    /**
+     * @return the number of failed test cases by failure detail, regardless of the failure result
+     */
+    public Map<String, Integer> getFailureDetailCounts() {
+        Map<String, Integer> detailCounts = new HashMap<>();
+        for (TestResult testResult : TestResult.values()) {
+            if (testResult.isFailure()) {
+                getFailureDetailCounts(testResult)
+                        .forEach(
+                                (detail, count) -> detailCounts.merge(detail, count, Integer::sum));
+            }
+        }
+        return detailCounts;
+    }
+}
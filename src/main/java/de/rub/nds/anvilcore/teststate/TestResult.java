@@ -80,4 +80,12 @@ public enum TestResult {
     public int getScorePercentage() {
         return scorePercentage;
     }
+
+    /**
+     * @return true for the results of test cases that failed, i.e. the results for which failure
+     *     details are collected
+     */
+    public boolean isFailure() {
+        return this == PARTIALLY_FAILED || this == FULLY_FAILED;
+    }
 }
@@ -13,11 +13,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.teststate.AnvilTestCase;
 import de.rub.nds.anvilcore.teststate.AnvilTestRun;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -26,6 +28,7 @@ public class AnvilJsonMapper {
 
     private ObjectMapper mapper;
     private AnvilTestConfig config;
+    private ResultStreamWriter resultStreamWriter;
 
     public AnvilJsonMapper(AnvilTestConfig config) {
         mapper = new ObjectMapper();
@@ -33,14 +36,60 @@ public class AnvilJsonMapper {
         mapper.disable(MapperFeature.AUTO_DETECT_GETTERS);
         mapper.disable(MapperFeature.AUTO_DETECT_SETTERS);
         mapper.disable(MapperFeature.AUTO_DETECT_CREATORS);
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        if (config.isPrettyPrintJSON()) {
+            mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        }
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         mapper.setDateFormat(new StdDateFormat());
 
         this.config = config;
+        if (config.isStreamResults() || config.isBoundedMemory()) {
+            resultStreamWriter = new ResultStreamWriter(config, mapper);
+        }
+    }
+
+    /**
+     * Hands a finished test case to the result stream, if results are streamed. Otherwise, the test
+     * case is saved with its test run.
+     *
+     * @param testRun the test run the test case belongs to
+     * @param testCase the finished test case
+     */
+    public void appendTestCase(AnvilTestRun testRun, AnvilTestCase testCase) {
+        if (resultStreamWriter != null) {
+            resultStreamWriter.appendTestCase(testRun, testCase);
+        }
+    }
+
+    /**
+     * @return completes once all results handed over so far are written
+     */
+    public CompletableFuture<Void> resultsWritten() {
+        if (resultStreamWriter == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return resultStreamWriter.written();
+    }
+
+    /** Waits until all streamed results are written. */
+    public void flushResults() {
+        if (resultStreamWriter != null) {
+            resultStreamWriter.flush();
+        }
+    }
+
+    /** Writes all streamed results and releases the thread writing them. */
+    public void closeResults() {
+        if (resultStreamWriter != null) {
+            resultStreamWriter.close();
+        }
     }
 
     public void saveTestRunToPath(AnvilTestRun testRun) {
+        if (resultStreamWriter != null) {
+            resultStreamWriter.finishTestRun(testRun);
+            return;
+        }
         Path filePath = Paths.get(config.getOutputFolder(), "results", testRun.getTestId());
         filePath = filePath.resolve("_testRun.json");
         File f = new File(filePath.toString());
@@ -17,7 +17,6 @@ import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.teststate.TestResult;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 import org.apache.logging.log4j.LogManager;
@@ -113,11 +112,11 @@ public class AnvilReport {
                         .computeIfAbsent(TestResult.TEST_SUITE_ERROR, k -> new HashSet<>())
                         .size();
         this.detailsFailedTestCases =
-                context.getDetailsFailedTestCases().values().stream()
-                        .flatMap(List::stream)
+                context.getFailureDetailCounts().values().stream()
+                        .flatMap(details -> details.entrySet().stream())
                         .collect(
-                                Collectors.groupingBy(
-                                        String::toString, Collectors.summingInt(detail -> 1)));
+                                Collectors.toMap(
+                                        Map.Entry::getKey, Map.Entry::getValue, Integer::sum));
         this.totalTests = context.getTotalTestRuns();
         this.finishedTests = context.getTestRunsDone();
         this.testCaseCount = context.getTestCases();
@@ -8,63 +8,55 @@
  */
 package de.rub.nds.anvilcore.teststate.reporting;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.Map;
 import java.util.Set;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+/** Accessor for the test metadata, backed by the shared {@link MetadataIndex}. */
 public class MetadataFetcher {
 
     private static final Logger LOGGER = LogManager.getLogger();
 
-    private Map<String, ?> metadataMap = null;
+    private final MetadataIndex metadataIndex;
 
     public MetadataFetcher() {
-        InputStream is = MetadataFetcher.class.getResourceAsStream("/metadata.json");
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            this.metadataMap = mapper.readValue(is, Map.class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        this.metadataIndex = MetadataIndex.getInstance();
     }
 
     public Map<String, Integer> getTestSeverityLevels(String id) {
-        if (this.metadataMap.get(id) == null) return null;
-        return (Map<String, Integer>) ((Map<?, ?>) this.metadataMap.get(id)).get("severityLevels");
+        return metadataIndex.getSeverityLevels(id);
     }
 
     public String getDescription(String id) {
-        if (this.metadataMap.get(id) == null) return null;
-        return (String) ((Map<?, ?>) this.metadataMap.get(id)).get("description");
+        TestMetadata metadata = metadataIndex.get(id);
+        return metadata != null ? metadata.getDescription() : null;
     }
 
     public Map<String, ?> getRfc(String id) {
-        if (this.metadataMap.get(id) == null) return null;
-        return (Map<String, ?>) ((Map<?, ?>) this.metadataMap.get(id)).get("rfc");
+        Map<?, ?> rawMetadata = metadataIndex.getRawMetadata(id);
+        if (rawMetadata == null) return null;
+        return (Map<String, ?>) rawMetadata.get("rfc");
     }
 
     public Integer getRfcNumber(String id) {
-        if (this.getRfc(id) == null) return null;
-        return (Integer) getRfc(id).get("number");
+        TestMetadata metadata = metadataIndex.get(id);
+        return metadata != null ? metadata.getRfcNumber() : null;
     }
 
     public String getRfcSection(String id) {
-        if (this.getRfc(id) == null) return null;
-        return (String) getRfc(id).get("section");
+        TestMetadata metadata = metadataIndex.get(id);
+        return metadata != null ? metadata.getRfcSection() : null;
     }
 
     public Map<?, ?> getRawMetadata(String id) {
-        if (!metadataMap.containsKey(id)) {
+        if (!metadataIndex.contains(id)) {
             LOGGER.error("No metadata found for test with id: " + id);
         }
-        return (Map<?, ?>) this.metadataMap.get(id);
+        return metadataIndex.getRawMetadata(id);
     }
 
     public Set<String> getAllTestIds() {
-        return this.metadataMap.keySet();
+        return metadataIndex.getAllTestIds();
     }
 }
@@ -0,0 +1,266 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate.reporting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Immutable, process-wide index of the test metadata shipped with the test suite. The index is
+ * built once on first access and shared by all contexts, test runs and score containers instead of
+ * parsing the metadata resource for every new object.
+ *
+ * <p>If the classpath contains a precomputed binary snapshot ({@value #SNAPSHOT_RESOURCE}), it is
+ * preferred over the JSON resource ({@value #METADATA_RESOURCE}). Snapshots can be created at
+ * build time using {@link #main(String[])}.
+ */
+public final class MetadataIndex {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    public static final String METADATA_RESOURCE = "/metadata.json";
+    public static final String SNAPSHOT_RESOURCE = "/metadata.bin";
+
+    private static final int SNAPSHOT_MAGIC = 0x414e564d;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_STRING = 1;
+    private static final byte TAG_INTEGER = 2;
+    private static final byte TAG_LONG = 3;
+    private static final byte TAG_DOUBLE = 4;
+    private static final byte TAG_BOOLEAN = 5;
+    private static final byte TAG_MAP = 6;
+    private static final byte TAG_LIST = 7;
+
+    private final Map<String, TestMetadata> entries;
+
+    private static final class Holder {
+        private static final MetadataIndex INSTANCE = loadFromClasspath();
+    }
+
+    private MetadataIndex(Map<String, ?> rawMetadata) {
+        Map<String, TestMetadata> parsedEntries = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : rawMetadata.entrySet()) {
+            if (entry.getValue() instanceof Map<?, ?> rawEntry) {
+                parsedEntries.put(entry.getKey(), new TestMetadata(entry.getKey(), rawEntry));
+            }
+        }
+        this.entries = Collections.unmodifiableMap(parsedEntries);
+    }
+
+    /**
+     * @return the shared index of the metadata found on the classpath
+     */
+    public static MetadataIndex getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    private static MetadataIndex loadFromClasspath() {
+        try (InputStream snapshot = MetadataIndex.class.getResourceAsStream(SNAPSHOT_RESOURCE)) {
+            if (snapshot != null) {
+                return readSnapshot(snapshot);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Failed to read metadata snapshot, falling back to JSON metadata", e);
+        }
+
+        try (InputStream json = MetadataIndex.class.getResourceAsStream(METADATA_RESOURCE)) {
+            if (json == null) {
+                LOGGER.error("No test metadata found on classpath at " + METADATA_RESOURCE);
+                return new MetadataIndex(Collections.emptyMap());
+            }
+            return fromJson(json);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public static MetadataIndex fromJson(InputStream inputStream) throws IOException {
+        Map<String, ?> rawMetadata = new ObjectMapper().readValue(inputStream, Map.class);
+        return new MetadataIndex(rawMetadata);
+    }
+
+    public static MetadataIndex readSnapshot(InputStream inputStream) throws IOException {
+        DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+        if (input.readInt() != SNAPSHOT_MAGIC) {
+            throw new IOException("Not a metadata snapshot");
+        }
+        int version = input.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unsupported metadata snapshot version " + version);
+        }
+        Object rawMetadata = readValue(input);
+        if (!(rawMetadata instanceof Map<?, ?>)) {
+            throw new IOException("Metadata snapshot does not contain a map");
+        }
+        return new MetadataIndex((Map<String, ?>) rawMetadata);
+    }
+
+    public void writeSnapshot(OutputStream outputStream) throws IOException {
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outputStream));
+        output.writeInt(SNAPSHOT_MAGIC);
+        output.writeInt(SNAPSHOT_VERSION);
+        Map<String, Object> rawMetadata = new LinkedHashMap<>();
+        entries.forEach((testId, metadata) -> rawMetadata.put(testId, metadata.getRawMetadata()));
+        writeValue(output, rawMetadata);
+        output.flush();
+    }
+
+    private static void writeValue(DataOutputStream output, Object value) throws IOException {
+        if (value == null) {
+            output.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            output.writeByte(TAG_STRING);
+            writeString(output, (String) value);
+        } else if (value instanceof Integer) {
+            output.writeByte(TAG_INTEGER);
+            output.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            output.writeByte(TAG_LONG);
+            output.writeLong((Long) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            output.writeByte(TAG_DOUBLE);
+            output.writeDouble(((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            output.writeByte(TAG_BOOLEAN);
+            output.writeBoolean((Boolean) value);
+        } else if (value instanceof Map<?, ?> map) {
+            output.writeByte(TAG_MAP);
+            output.writeInt(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(output, String.valueOf(entry.getKey()));
+                writeValue(output, entry.getValue());
+            }
+        } else if (value instanceof List<?> list) {
+            output.writeByte(TAG_LIST);
+            output.writeInt(list.size());
+            for (Object element : list) {
+                writeValue(output, element);
+            }
+        } else {
+            LOGGER.warn(
+                    "Storing unsupported metadata value of type {} as string",
+                    value.getClass().getName());
+            output.writeByte(TAG_STRING);
+            writeString(output, value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream input) throws IOException {
+        byte tag = input.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return readString(input);
+            case TAG_INTEGER:
+                return input.readInt();
+            case TAG_LONG:
+                return input.readLong();
+            case TAG_DOUBLE:
+                return input.readDouble();
+            case TAG_BOOLEAN:
+                return input.readBoolean();
+            case TAG_MAP:
+                int mapSize = input.readInt();
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < mapSize; i++) {
+                    String key = readString(input);
+                    map.put(key, readValue(input));
+                }
+                return map;
+            case TAG_LIST:
+                int listSize = input.readInt();
+                List<Object> list = new ArrayList<>(listSize);
+                for (int i = 0; i < listSize; i++) {
+                    list.add(readValue(input));
+                }
+                return list;
+            default:
+                throw new IOException("Unknown value tag " + tag + " in metadata snapshot");
+        }
+    }
+
+    // DataOutputStream#writeUTF is limited to 64KB, descriptions may be longer
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param testId the id of the test template
+     * @return the metadata of the test, or null if there is none
+     */
+    public TestMetadata get(String testId) {
+        return testId != null ? entries.get(testId) : null;
+    }
+
+    public Map<String, Integer> getSeverityLevels(String testId) {
+        TestMetadata metadata = get(testId);
+        return metadata != null ? metadata.getSeverityLevels() : null;
+    }
+
+    public Map<?, ?> getRawMetadata(String testId) {
+        TestMetadata metadata = get(testId);
+        return metadata != null ? metadata.getRawMetadata() : null;
+    }
+
+    public boolean contains(String testId) {
+        return get(testId) != null;
+    }
+
+    public Set<String> getAllTestIds() {
+        return entries.keySet();
+    }
+
+    /**
+     * Converts a JSON metadata file into a binary snapshot that can be placed on the classpath as
+     * {@value #SNAPSHOT_RESOURCE}.
+     *
+     * @param args the path of the JSON metadata file followed by the path of the snapshot to write
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: MetadataIndex <metadata.json> <metadata.bin>");
+            System.exit(1);
+        }
+        MetadataIndex index;
+        try (InputStream json = Files.newInputStream(Path.of(args[0]))) {
+            index = fromJson(json);
+        }
+        try (OutputStream snapshot = Files.newOutputStream(Path.of(args[1]))) {
+            index.writeSnapshot(snapshot);
+        }
+    }
+}
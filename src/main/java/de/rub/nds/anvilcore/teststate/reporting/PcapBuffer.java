@@ -0,0 +1,162 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate.reporting;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import org.pcap4j.core.BpfProgram;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * A pcap file that is assembled in a direct buffer. The buffer grows on demand up to a fixed
+ * maximum size, packets that do not fit anymore are dropped. Packets can be filtered in place, so
+ * a capture needs neither a temporary file nor a second buffer to apply the case-specific filter.
+ */
+final class PcapBuffer {
+
+    private static final int PCAP_MAGIC = 0xa1b2c3d4;
+    private static final short PCAP_VERSION_MAJOR = 2;
+    private static final short PCAP_VERSION_MINOR = 4;
+    private static final int GLOBAL_HEADER_LENGTH = 24;
+    private static final int RECORD_HEADER_LENGTH = 16;
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+
+    private final int maxCapacity;
+    private ByteBuffer buffer;
+    private int packetCount = 0;
+    private int droppedPackets = 0;
+
+    /**
+     * @param dataLinkType the data link type of all packets
+     * @param maxCapacity the maximum size of the pcap file in bytes
+     */
+    PcapBuffer(DataLinkType dataLinkType, int maxCapacity) {
+        this.maxCapacity = Math.max(maxCapacity, GLOBAL_HEADER_LENGTH);
+        buffer =
+                ByteBuffer.allocateDirect(Math.min(INITIAL_CAPACITY, this.maxCapacity))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(PCAP_MAGIC);
+        buffer.putShort(PCAP_VERSION_MAJOR);
+        buffer.putShort(PCAP_VERSION_MINOR);
+        // time zone offset and timestamp accuracy
+        buffer.putInt(0);
+        buffer.putInt(0);
+        buffer.putInt(PcapCapturer.SNAPSHOT_LENGTH_BYTES);
+        buffer.putInt(dataLinkType.value());
+    }
+
+    /**
+     * @param packet the raw packet data
+     * @param timestamp the time the packet was captured
+     * @return false if the packet was dropped because the maximum size is reached
+     */
+    synchronized boolean append(byte[] packet, Timestamp timestamp) {
+        int recordLength = RECORD_HEADER_LENGTH + packet.length;
+        if (!ensureRemaining(recordLength)) {
+            droppedPackets++;
+            return false;
+        }
+        buffer.putInt((int) Math.floorDiv(timestamp.getTime(), 1000L));
+        buffer.putInt(timestamp.getNanos() / 1000);
+        buffer.putInt(packet.length);
+        buffer.putInt(packet.length);
+        buffer.put(packet);
+        packetCount++;
+        return true;
+    }
+
+    private boolean ensureRemaining(int length) {
+        if (buffer.remaining() >= length) {
+            return true;
+        }
+        long required = (long) buffer.position() + length;
+        if (required > maxCapacity) {
+            return false;
+        }
+        int newCapacity = (int) Math.min(Math.max(required, 2L * buffer.capacity()), maxCapacity);
+        ByteBuffer grown = ByteBuffer.allocateDirect(newCapacity).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+        return true;
+    }
+
+    /**
+     * Removes all packets that do not match the given filter. Matching packets are moved towards
+     * the start of the buffer, the buffer is not reallocated.
+     *
+     * @param filter the filter to apply
+     */
+    synchronized void retainMatching(BpfProgram filter) {
+        int end = buffer.position();
+        int readPosition = GLOBAL_HEADER_LENGTH;
+        int writePosition = GLOBAL_HEADER_LENGTH;
+        int retained = 0;
+        while (readPosition < end) {
+            int packetLength = buffer.getInt(readPosition + 8);
+            int recordLength = RECORD_HEADER_LENGTH + packetLength;
+            // the filter evaluates the whole array, hence it must match the packet length
+            byte[] packet = new byte[packetLength];
+            buffer.get(readPosition + RECORD_HEADER_LENGTH, packet);
+            if (filter.applyFilter(packet)) {
+                if (writePosition != readPosition) {
+                    for (int offset = 0; offset < RECORD_HEADER_LENGTH; offset += 4) {
+                        buffer.putInt(writePosition + offset, buffer.getInt(readPosition + offset));
+                    }
+                    buffer.put(writePosition + RECORD_HEADER_LENGTH, packet);
+                }
+                writePosition += recordLength;
+                retained++;
+            }
+            readPosition += recordLength;
+        }
+        buffer.position(writePosition);
+        packetCount = retained;
+    }
+
+    /**
+     * @return a read-only view of the pcap file, sharing the content of this buffer
+     */
+    synchronized ByteBuffer view() {
+        return buffer.duplicate().flip().asReadOnlyBuffer();
+    }
+
+    /**
+     * Writes the pcap file to the given path, replacing an existing file.
+     *
+     * @param path the path of the pcap file
+     * @throws IOException if the file cannot be written
+     */
+    void writeTo(Path path) throws IOException {
+        ByteBuffer content = view();
+        try (FileChannel channel =
+                FileChannel.open(
+                        path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    synchronized int getPacketCount() {
+        return packetCount;
+    }
+
+    synchronized int getDroppedPackets() {
+        return droppedPackets;
+    }
+}
@@ -8,6 +8,8 @@
  */
 package de.rub.nds.anvilcore.teststate.reporting;
 
+import de.rub.nds.anvilcore.constants.PcapCaptureMode;
+import de.rub.nds.anvilcore.context.AnvilContext;
 import de.rub.nds.anvilcore.context.AnvilContextRegistry;
 import de.rub.nds.anvilcore.teststate.AnvilTestCase;
 import java.io.EOFException;
@@ -15,12 +17,11 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeoutException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.pcap4j.core.BpfProgram;
 import org.pcap4j.core.BpfProgram.BpfCompileMode;
 import org.pcap4j.core.NotOpenException;
 import org.pcap4j.core.PacketListener;
@@ -31,6 +32,7 @@ import org.pcap4j.core.PcapNetworkInterface;
 import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
 import org.pcap4j.core.Pcaps;
 import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.namednumber.DataLinkType;
 
 /**
  * Capturer that records <a href="https://en.wikipedia.org/wiki/Pcap">PCAP files</a> while a code
@@ -42,13 +44,19 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
     private final PcapHandle pcapHandle;
     private final String tmpFilepath;
     private final PcapDumper pcapDumper;
+    private final PcapBuffer pcapBuffer;
+    private final DataLinkType dataLinkType;
     private final Thread captureThread;
     private final AnvilTestCase testCase;
     private final String generalFilter;
     private final String interfaceName;
+    private final long drainIdleMillis;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private volatile PcapDrain pcapDrain;
 
-    private static final int SNAPSHOT_LENGTH_BYTES = 65_535;
-    private static final int READ_TIMEOUT_MILLIS = 50;
+    static final int SNAPSHOT_LENGTH_BYTES = 65_535;
+    static final int READ_TIMEOUT_MILLIS = 50;
+    /** Maximum time packets are still captured after a test case finished. */
     public static final int WAITING_TIME_AFTER_CLOSE_MILLI = 5000;
 
     /**
@@ -62,33 +70,41 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
     public PcapCapturer(AnvilTestCase testCase)
             throws PcapNativeException, NotOpenException, IOException {
         this.testCase = testCase;
-        interfaceName =
-                AnvilContextRegistry.byExtensionContext(testCase.getExtensionContext())
-                        .getConfig()
-                        .getNetworkInterface();
-        final PcapNetworkInterface device = getNetworkInterface();
+        AnvilContext context =
+                AnvilContextRegistry.byExtensionContext(testCase.getExtensionContext());
+        interfaceName = context.getConfig().getNetworkInterface();
+        drainIdleMillis = context.getConfig().getPcapDrainIdleMillis();
+        final PcapNetworkInterface device = getNetworkInterface(interfaceName);
         this.pcapHandle =
                 device.openLive(
                         SNAPSHOT_LENGTH_BYTES, PromiscuousMode.NONPROMISCUOUS, READ_TIMEOUT_MILLIS);
-        this.tmpFilepath = getTemporaryFilePath();
-
-        this.pcapDumper = this.pcapHandle.dumpOpen(tmpFilepath);
-        generalFilter =
-                AnvilContextRegistry.byExtensionContext(testCase.getExtensionContext())
-                        .getConfig()
-                        .getGeneralPcapFilter();
+        this.dataLinkType = pcapHandle.getDlt();
+        if (context.getConfig().getPcapCaptureMode() == PcapCaptureMode.BUFFERED) {
+            this.tmpFilepath = null;
+            this.pcapDumper = null;
+            this.pcapBuffer = new PcapBuffer(dataLinkType, context.getConfig().getPcapBufferSize());
+        } else {
+            this.tmpFilepath = getTemporaryFilePath();
+            this.pcapDumper = this.pcapHandle.dumpOpen(tmpFilepath);
+            this.pcapBuffer = null;
+        }
+        generalFilter = context.getConfig().getGeneralPcapFilter();
         if (generalFilter != null && !generalFilter.isEmpty()) {
             this.pcapHandle.setFilter(generalFilter, BpfCompileMode.OPTIMIZE);
         }
 
         this.captureThread = new Thread(this, "pcap-capture");
         this.captureThread.start();
+        context.registerPcapCapture(completion);
     }
 
     private String getTemporaryFilePath() throws IOException {
-        String testId = testCase.getAssociatedContainer().getTestId();
         String tmpId = testCase.getTemporaryPcapFileName();
+        return getResultFolder(testCase).resolve(tmpId).toString();
+    }
 
+    static Path getResultFolder(AnvilTestCase testCase) throws IOException {
+        String testId = testCase.getAssociatedContainer().getTestId();
         Path folderPath =
                 Paths.get(
                         AnvilContextRegistry.byExtensionContext(testCase.getExtensionContext())
@@ -97,10 +113,10 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
                         "results",
                         testId);
         Files.createDirectories(folderPath);
-        return folderPath.resolve(tmpId).toString();
+        return folderPath;
     }
 
-    private PcapNetworkInterface getNetworkInterface() {
+    static PcapNetworkInterface getNetworkInterface(String interfaceName) {
         if (System.getProperty("os.name").toLowerCase().contains("win")
                 && interfaceName.equals("any")) {
             LOGGER.error(
@@ -126,18 +142,35 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
 
     @Override
     public void gotPacket(final Packet packet) {
-        try {
-            this.pcapDumper.dump(packet, this.pcapHandle.getTimestamp());
-        } catch (NotOpenException err) {
-            // throw new AnvilException("Failed to dump captured PCAP packet (file not open)", err);
+        if (pcapBuffer != null) {
+            pcapBuffer.append(packet.getRawData(), this.pcapHandle.getTimestamp());
+        } else {
+            try {
+                this.pcapDumper.dump(packet, this.pcapHandle.getTimestamp());
+            } catch (NotOpenException err) {
+                // throw new AnvilException("Failed to dump captured PCAP packet (file not open)",
+                // err);
+            }
+        }
+        PcapDrain currentDrain = pcapDrain;
+        if (currentDrain != null) {
+            currentDrain.packetReceived(packet.getRawData());
         }
     }
 
     @Override
+    public void run() {
+        try {
+            capture();
+        } finally {
+            completion.complete(null);
+        }
+    }
+
     // PMD may complain about the cyclomatic complexity (due to all the `throw`
     // statements), but it's fine to ignore this here.
     @SuppressWarnings("PMD.CyclomaticComplexity")
-    public void run() {
+    private void capture() {
         // First, loop over available packets. This will wait for more packets
         // if none are available, unless `breakLoop()` has been called.
         try {
@@ -170,6 +203,12 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
             throw new RuntimeException();
         }
 
+        if (pcapBuffer != null) {
+            this.pcapHandle.close();
+            writeBuffer();
+            return;
+        }
+
         // At this point all packets have been processed, flush the dump and
         // close the handle.
         try {
@@ -185,6 +224,57 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
         reFilter();
     }
 
+    private void writeBuffer() {
+        String caseFilter = testCase.getCaseSpecificPcapFilter();
+        if (caseFilter != null && !caseFilter.isEmpty()) {
+            try (PcapHandle deadHandle = Pcaps.openDead(dataLinkType, SNAPSHOT_LENGTH_BYTES)) {
+                BpfProgram filter =
+                        deadHandle.compileFilter(
+                                caseFilter, BpfCompileMode.OPTIMIZE, PcapDrain.NETMASK_UNKNOWN);
+                pcapBuffer.retainMatching(filter);
+                filter.free();
+            } catch (PcapNativeException | NotOpenException e) {
+                LOGGER.error("Error filtering pcap dump: ", e);
+            }
+        }
+        if (pcapBuffer.getDroppedPackets() > 0) {
+            LOGGER.warn(
+                    "Dropped {} packets of test case, the pcap buffer is full",
+                    pcapBuffer.getDroppedPackets());
+        }
+        if (pcapBuffer.getPacketCount() == 0) {
+            LOGGER.warn(
+                    "TCP dump failed to identify any packets on interface '{}' using general filter '{}'' and test case filter '{}'",
+                    interfaceName,
+                    generalFilter,
+                    caseFilter);
+        }
+        writeAndPublish(testCase, pcapBuffer);
+    }
+
+    /**
+     * Writes the final pcap file of a test case and passes a view of the buffer to the listener.
+     *
+     * @param testCase the test case the packets were captured for
+     * @param pcapBuffer the filtered packets of the test case
+     */
+    static void writeAndPublish(AnvilTestCase testCase, PcapBuffer pcapBuffer) {
+        try {
+            Path pcapPath =
+                    getResultFolder(testCase)
+                            .resolve(String.format("dump_%s.pcap", testCase.getUuid()));
+            pcapBuffer.writeTo(pcapPath);
+        } catch (IOException e) {
+            LOGGER.error("Error writing pcap dump: ", e);
+        }
+
+        AnvilContext context =
+                AnvilContextRegistry.byExtensionContext(testCase.getExtensionContext());
+        if (context.getListener() != null) {
+            context.getListener().onPcapCaptured(testCase, pcapBuffer.view());
+        }
+    }
+
     private void reFilter() {
         // filter the pcap files according to used ports and save them with their uuid
         Path tmpFile = Path.of(tmpFilepath);
@@ -248,18 +338,18 @@ public class PcapCapturer implements AutoCloseable, Runnable, PacketListener {
 
     @Override
     public void close() throws PcapNativeException {
-        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.schedule(
-                () -> {
-                    try {
-                        this.pcapHandle.breakLoop();
-                    } catch (NotOpenException err) {
-                        LOGGER.error("Failed to break PCAP capture loop (handle not open)", err);
-                    } finally {
-                        scheduler.shutdown();
-                    }
-                },
-                WAITING_TIME_AFTER_CLOSE_MILLI,
-                TimeUnit.MILLISECONDS);
+        pcapDrain =
+                PcapDrain.start(
+                        pcapHandle.getDlt(),
+                        testCase.getCaseSpecificPcapFilter(),
+                        drainIdleMillis,
+                        () -> {
+                            try {
+                                this.pcapHandle.breakLoop();
+                            } catch (NotOpenException err) {
+                                LOGGER.error(
+                                        "Failed to break PCAP capture loop (handle not open)", err);
+                            }
+                        });
     }
 }
@@ -0,0 +1,202 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate.reporting;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pcap4j.core.BpfProgram;
+import org.pcap4j.core.BpfProgram.BpfCompileMode;
+import org.pcap4j.core.NotOpenException;
+import org.pcap4j.core.PcapHandle;
+import org.pcap4j.core.PcapNativeException;
+import org.pcap4j.core.Pcaps;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Decides when the capture of a finished test case can be stopped. After the test case ended,
+ * packets are still collected until either no packet matching the case-specific filter was
+ * received for the configured idle gap, the connection of the test case was closed or {@link
+ * PcapCapturer#WAITING_TIME_AFTER_CLOSE_MILLI} milliseconds passed. A connection counts as closed
+ * once a TCP RST or a FIN in both directions was seen, in which case the capture still waits for
+ * one check interval without packets to include the final acknowledgement. All drains are checked
+ * by one shared scheduler.
+ */
+final class PcapDrain {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "pcap-drain");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+    private static final long MIN_CHECK_INTERVAL_MILLIS = 10;
+    static final Inet4Address NETMASK_UNKNOWN = getUnknownNetmask();
+
+    // the direction of a segment is told apart by comparing its ports
+    private static final String FROM_LOWER_PORT = "tcp[0:2] < tcp[2:2]";
+    private static final String FROM_HIGHER_PORT = "tcp[0:2] > tcp[2:2]";
+
+    private final long idleNanos;
+    private final long closedIdleNanos;
+    private final long deadlineNanos;
+    private final Runnable onDrained;
+    // the programs are null if the case filter is unknown
+    private BpfProgram caseFilter;
+    private BpfProgram resetFilter;
+    private BpfProgram finFromLowerPortFilter;
+    private BpfProgram finFromHigherPortFilter;
+    private volatile long lastPacketNanos;
+    private boolean finFromLowerPort = false;
+    private boolean finFromHigherPort = false;
+    private volatile boolean connectionClosed = false;
+    private boolean drained = false;
+    private ScheduledFuture<?> check;
+
+    private PcapDrain(long idleMillis, long checkIntervalMillis, Runnable onDrained) {
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.closedIdleNanos = TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+        this.lastPacketNanos = System.nanoTime();
+        this.deadlineNanos =
+                lastPacketNanos
+                        + TimeUnit.MILLISECONDS.toNanos(
+                                PcapCapturer.WAITING_TIME_AFTER_CLOSE_MILLI);
+        this.onDrained = onDrained;
+    }
+
+    private static Inet4Address getUnknownNetmask() {
+        try {
+            // 255.255.255.255, i.e. PCAP_NETMASK_UNKNOWN
+            return (Inet4Address) InetAddress.getByAddress(new byte[] {-1, -1, -1, -1});
+        } catch (UnknownHostException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Starts draining the capture of a test case that just finished.
+     *
+     * @param dataLinkType the data link type of the captured packets
+     * @param caseFilter the case-specific pcap filter of the test case, may be null
+     * @param idleMillis the idle gap after which the capture is considered complete
+     * @param onDrained called once on the scheduler thread when the capture can be stopped
+     * @return the started drain
+     */
+    static PcapDrain start(
+            DataLinkType dataLinkType, String caseFilter, long idleMillis, Runnable onDrained) {
+        long checkInterval = Math.max(idleMillis / 4, MIN_CHECK_INTERVAL_MILLIS);
+        PcapDrain drain = new PcapDrain(idleMillis, checkInterval, onDrained);
+        drain.compileFilters(dataLinkType, caseFilter);
+        synchronized (drain) {
+            drain.check =
+                    SCHEDULER.scheduleWithFixedDelay(
+                            drain::check, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+        return drain;
+    }
+
+    private synchronized void compileFilters(DataLinkType dataLinkType, String caseFilter) {
+        if (caseFilter == null || caseFilter.isEmpty()) {
+            // packets of parallel test cases cannot be told apart, only the idle gap applies
+            return;
+        }
+        String tcpFlags = "(" + caseFilter + ") and tcp[tcpflags] & ";
+        try (PcapHandle deadHandle =
+                Pcaps.openDead(dataLinkType, PcapCapturer.SNAPSHOT_LENGTH_BYTES)) {
+            this.caseFilter = compile(deadHandle, caseFilter);
+            resetFilter = compile(deadHandle, tcpFlags + "tcp-rst != 0");
+            finFromLowerPortFilter =
+                    compile(deadHandle, tcpFlags + "tcp-fin != 0 and " + FROM_LOWER_PORT);
+            finFromHigherPortFilter =
+                    compile(deadHandle, tcpFlags + "tcp-fin != 0 and " + FROM_HIGHER_PORT);
+        } catch (PcapNativeException | NotOpenException e) {
+            LOGGER.warn("Cannot detect end of connection for filter '{}'", caseFilter, e);
+            freeFilters();
+        }
+    }
+
+    private static BpfProgram compile(PcapHandle deadHandle, String filter)
+            throws PcapNativeException, NotOpenException {
+        return deadHandle.compileFilter(filter, BpfCompileMode.OPTIMIZE, NETMASK_UNKNOWN);
+    }
+
+    private synchronized void freeFilters() {
+        for (BpfProgram program :
+                new BpfProgram[] {
+                    caseFilter, resetFilter, finFromLowerPortFilter, finFromHigherPortFilter
+                }) {
+            if (program != null) {
+                program.free();
+            }
+        }
+        caseFilter = null;
+        resetFilter = null;
+        finFromLowerPortFilter = null;
+        finFromHigherPortFilter = null;
+    }
+
+    /**
+     * Called for every packet captured while draining. Only packets matching the case-specific
+     * filter count as activity of the test case.
+     *
+     * @param packet the raw packet data
+     */
+    synchronized void packetReceived(byte[] packet) {
+        if (drained) {
+            return;
+        }
+        if (caseFilter == null) {
+            lastPacketNanos = System.nanoTime();
+            return;
+        }
+        if (!caseFilter.applyFilter(packet)) {
+            return;
+        }
+        lastPacketNanos = System.nanoTime();
+        if (resetFilter.applyFilter(packet)) {
+            connectionClosed = true;
+        } else if (finFromLowerPortFilter.applyFilter(packet)) {
+            finFromLowerPort = true;
+        } else if (finFromHigherPortFilter.applyFilter(packet)) {
+            finFromHigherPort = true;
+        }
+        if (finFromLowerPort && finFromHigherPort) {
+            connectionClosed = true;
+        }
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        long requiredIdleNanos = connectionClosed ? closedIdleNanos : idleNanos;
+        if (now - lastPacketNanos < requiredIdleNanos && now - deadlineNanos < 0) {
+            return;
+        }
+        synchronized (this) {
+            if (drained) {
+                return;
+            }
+            drained = true;
+            check.cancel(false);
+            freeFilters();
+        }
+        try {
+            onDrained.run();
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to stop pcap capture", e);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate.reporting;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.teststate.AnvilTestCase;
+import de.rub.nds.anvilcore.teststate.AnvilTestRun;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Writes the results of test cases as soon as they finished instead of serializing whole test runs
+ * at the end. Every test case is appended as one line to {@code _testCases.ndjson} in the result
+ * folder of its test run. When the test run finishes, its {@code _testRun.json} is assembled from
+ * the test run without its test cases and the lines of the log, which is deleted afterwards. All
+ * files are written by a single I/O thread, the test execution only hands over the objects.
+ */
+public class ResultStreamWriter {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    static final String TEST_CASE_LOG_FILE_NAME = "_testCases.ndjson";
+    static final String TEST_RUN_FILE_NAME = "_testRun.json";
+
+    private final AnvilTestConfig config;
+    private final ObjectMapper mapper;
+    private final ObjectMapper testRunMapper;
+    private final ExecutorService ioExecutor;
+    // only accessed by the I/O thread
+    private final Map<String, SequenceWriter> testCaseLogs = new HashMap<>();
+
+    @JsonIgnoreProperties({"TestCases"})
+    private abstract static class TestRunWithoutTestCases {}
+
+    /**
+     * @param config the config providing the output folder and formatting options
+     * @param mapper the configured mapper of the {@link AnvilJsonMapper}
+     */
+    ResultStreamWriter(AnvilTestConfig config, ObjectMapper mapper) {
+        this.config = config;
+        this.mapper = mapper;
+        this.testRunMapper =
+                mapper.copy().addMixIn(AnvilTestRun.class, TestRunWithoutTestCases.class);
+        this.ioExecutor =
+                Executors.newSingleThreadExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "result-writer");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+    }
+
+    /**
+     * Appends a finished test case to the log of its test run.
+     *
+     * @param testRun the test run the test case belongs to
+     * @param testCase the finished test case
+     */
+    public void appendTestCase(AnvilTestRun testRun, AnvilTestCase testCase) {
+        String testId = testRun.getTestId();
+        ioExecutor.execute(
+                () -> {
+                    try {
+                        SequenceWriter testCaseLog = testCaseLogs.get(testId);
+                        if (testCaseLog == null) {
+                            Path logPath = getResultFolder(testId).resolve(TEST_CASE_LOG_FILE_NAME);
+                            AnvilJsonMapper.createEmptyFile(logPath.toString());
+                            testCaseLog =
+                                    mapper.writer()
+                                            .without(SerializationFeature.INDENT_OUTPUT)
+                                            .withRootValueSeparator("\n")
+                                            .writeValues(logPath.toFile());
+                            testCaseLogs.put(testId, testCaseLog);
+                        }
+                        testCaseLog.write(testCase);
+                    } catch (IOException e) {
+                        LOGGER.error("Failed to append test case of {}", testId, e);
+                    }
+                });
+    }
+
+    /**
+     * Writes the {@code _testRun.json} of a finished test run. The test run is serialized without
+     * its test cases immediately, the test cases are taken from the log.
+     *
+     * @param testRun the finished test run
+     */
+    public void finishTestRun(AnvilTestRun testRun) {
+        String testId = testRun.getTestId();
+        JsonNode testRunNode = testRunMapper.valueToTree(testRun);
+        ioExecutor.execute(
+                () -> {
+                    try {
+                        writeTestRun(testId, testRunNode);
+                    } catch (IOException e) {
+                        LOGGER.error("Failed to save AnvilTestRun ({})", testRun.getName(), e);
+                    }
+                });
+    }
+
+    private void writeTestRun(String testId, JsonNode testRunNode) throws IOException {
+        SequenceWriter testCaseLog = testCaseLogs.remove(testId);
+        if (testCaseLog != null) {
+            testCaseLog.close();
+        }
+        Path resultFolder = getResultFolder(testId);
+        Path logPath = resultFolder.resolve(TEST_CASE_LOG_FILE_NAME);
+        Path testRunPath = resultFolder.resolve(TEST_RUN_FILE_NAME);
+        AnvilJsonMapper.createEmptyFile(testRunPath.toString());
+        try (JsonGenerator generator =
+                mapper.getFactory()
+                        .createGenerator(
+                                Files.newBufferedWriter(testRunPath, StandardCharsets.UTF_8))) {
+            if (config.isPrettyPrintJSON()) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = testRunNode.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                generator.writeTree(field.getValue());
+            }
+            generator.writeArrayFieldStart("TestCases");
+            if (Files.exists(logPath)) {
+                try (BufferedReader reader = Files.newBufferedReader(logPath)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isBlank()) {
+                            generator.writeRawValue(line);
+                        }
+                    }
+                }
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        Files.deleteIfExists(logPath);
+    }
+
+    private Path getResultFolder(String testId) {
+        return Paths.get(config.getOutputFolder(), "results", testId);
+    }
+
+    /**
+     * @return completes once all results handed over so far are written
+     */
+    public CompletableFuture<Void> written() {
+        return CompletableFuture.runAsync(() -> {}, ioExecutor);
+    }
+
+    /** Waits until all handed over results are written. */
+    public void flush() {
+        try {
+            written().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed to flush results", e);
+        }
+    }
+
+    /**
+     * Writes all handed over results and stops the I/O thread. Logs of test runs that never
+     * finished are closed as they are, no results are accepted afterwards.
+     */
+    public void close() {
+        ioExecutor.execute(
+                () -> {
+                    for (Map.Entry<String, SequenceWriter> testCaseLog : testCaseLogs.entrySet()) {
+                        try {
+                            testCaseLog.getValue().close();
+                        } catch (IOException e) {
+                            LOGGER.error(
+                                    "Failed to close test case log of {}",
+                                    testCaseLog.getKey(),
+                                    e);
+                        }
+                    }
+                    testCaseLogs.clear();
+                });
+        flush();
+        ioExecutor.shutdown();
+    }
+}
@@ -24,7 +24,7 @@ public class ScoreContainer {
     public ScoreContainer() {}
 
     public ScoreContainer(String testId) {
-        Map<String, Integer> severityLevels = new MetadataFetcher().getTestSeverityLevels(testId);
+        Map<String, Integer> severityLevels = MetadataIndex.getInstance().getSeverityLevels(testId);
         if (severityLevels == null) {
             LOGGER.error("No severity levels set for test with id: " + testId);
             return;
@@ -0,0 +1,347 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate.reporting;
+
+import de.rub.nds.anvilcore.context.AnvilContext;
+import de.rub.nds.anvilcore.context.AnvilContextRegistry;
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import de.rub.nds.anvilcore.teststate.AnvilTestCase;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.pcap4j.core.BpfProgram;
+import org.pcap4j.core.BpfProgram.BpfCompileMode;
+import org.pcap4j.core.NotOpenException;
+import org.pcap4j.core.PcapHandle;
+import org.pcap4j.core.PcapNativeException;
+import org.pcap4j.core.PcapNetworkInterface;
+import org.pcap4j.core.PcapNetworkInterface.PromiscuousMode;
+import org.pcap4j.core.Pcaps;
+import org.pcap4j.core.RawPacketListener;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Captures the packets of all test cases with a single long-lived handle per network interface and
+ * general filter. Every received packet is handed to the capture sessions of the test cases that
+ * are running at that time. Each session assembles the packets in a {@link PcapBuffer} of bounded
+ * size. As soon as the case-specific filter of its test case is known, packets not matching it are
+ * no longer kept and the packets kept before are filtered. When a session ends, the pcap file is
+ * written for the test case. In contrast to the {@link PcapCapturer}, the kernel copies every
+ * packet only once, regardless of how many test cases are executed in parallel, and no temporary
+ * pcap files are written.
+ *
+ * <p>Engines are shared by all {@link AnvilContext AnvilContexts} with the same network interface
+ * and general filter. An engine is closed once no context that used it is running anymore.
+ */
+public class SharedPcapCaptureEngine implements RawPacketListener, Runnable {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    private static final Map<EngineKey, SharedPcapCaptureEngine> ENGINES =
+            new ConcurrentHashMap<>();
+    private static final ExecutorService SESSION_WRITER =
+            Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "pcap-session-writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private final PcapHandle pcapHandle;
+    private final DataLinkType dataLinkType;
+    private final Thread captureThread;
+    private final String interfaceName;
+    private final String generalFilter;
+    private final Set<CaptureSession> activeSessions = new CopyOnWriteArraySet<>();
+    // contexts that started sessions and did not close the engine yet, guarded by ENGINES
+    private final Set<AnvilContext> users = new HashSet<>();
+
+    private record EngineKey(String interfaceName, String generalFilter) {}
+
+    private SharedPcapCaptureEngine(String interfaceName, String generalFilter)
+            throws PcapNativeException, NotOpenException {
+        this.interfaceName = interfaceName;
+        this.generalFilter = generalFilter;
+        PcapNetworkInterface device = PcapCapturer.getNetworkInterface(interfaceName);
+        this.pcapHandle =
+                device.openLive(
+                        PcapCapturer.SNAPSHOT_LENGTH_BYTES,
+                        PromiscuousMode.NONPROMISCUOUS,
+                        PcapCapturer.READ_TIMEOUT_MILLIS);
+        if (generalFilter != null && !generalFilter.isEmpty()) {
+            this.pcapHandle.setFilter(generalFilter, BpfCompileMode.OPTIMIZE);
+        }
+        this.dataLinkType = pcapHandle.getDlt();
+        this.captureThread = new Thread(this, "pcap-capture-shared");
+        this.captureThread.setDaemon(true);
+        this.captureThread.start();
+    }
+
+    /**
+     * Starts capturing the packets of the given test case using the engine for the network
+     * interface and general filter of its context. The engine is opened on first use.
+     *
+     * @param testCase the AnvilTestCase related to the capturing
+     * @return the session that collects the packets until it is closed
+     * @throws PcapNativeException if an error occurs in the pcap native library
+     * @throws NotOpenException if the pcap handle is not open
+     */
+    public static CaptureSession startSession(AnvilTestCase testCase)
+            throws PcapNativeException, NotOpenException {
+        AnvilContext context =
+                AnvilContextRegistry.byExtensionContext(testCase.getExtensionContext());
+        AnvilTestConfig config = context.getConfig();
+        EngineKey key = new EngineKey(config.getNetworkInterface(), config.getGeneralPcapFilter());
+        SharedPcapCaptureEngine engine;
+        synchronized (ENGINES) {
+            engine = ENGINES.get(key);
+            if (engine == null) {
+                engine = new SharedPcapCaptureEngine(key.interfaceName(), key.generalFilter());
+                ENGINES.put(key, engine);
+            }
+            engine.users.add(context);
+        }
+        CaptureSession session =
+                engine.new CaptureSession(
+                        testCase,
+                        context,
+                        config.getPcapDrainIdleMillis(),
+                        config.getPcapBufferSize());
+        context.registerPcapCapture(session.completion);
+        testCase.setCaseSpecificPcapFilterListener(session::updateCaseFilter);
+        session.updateCaseFilter(testCase.getCaseSpecificPcapFilter());
+        engine.activeSessions.add(session);
+        return session;
+    }
+
+    /**
+     * Writes the pcap files of all sessions of the given context without waiting for trailing
+     * packets any longer. Engines that are not used by any other context anymore are closed, they
+     * are opened again when the next session is started.
+     *
+     * @param context the context whose test cases finished
+     */
+    public static void close(AnvilContext context) {
+        List<CaptureSession> sessions = new ArrayList<>();
+        List<SharedPcapCaptureEngine> unusedEngines = new ArrayList<>();
+        synchronized (ENGINES) {
+            Iterator<SharedPcapCaptureEngine> engines = ENGINES.values().iterator();
+            while (engines.hasNext()) {
+                SharedPcapCaptureEngine engine = engines.next();
+                if (!engine.users.remove(context)) {
+                    continue;
+                }
+                for (CaptureSession session : engine.activeSessions) {
+                    if (session.context == context) {
+                        sessions.add(session);
+                    }
+                }
+                if (engine.users.isEmpty()) {
+                    unusedEngines.add(engine);
+                    engines.remove();
+                }
+            }
+        }
+        // the pcap files are written and published without blocking other contexts
+        for (CaptureSession session : sessions) {
+            SESSION_WRITER.execute(session::finish);
+        }
+        for (SharedPcapCaptureEngine engine : unusedEngines) {
+            engine.stop();
+        }
+        // wait for the sessions of the context to be written
+        try {
+            SESSION_WRITER.submit(() -> {}).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOGGER.error("Failed to await pcap session writer", e);
+        }
+    }
+
+    @Override
+    public void gotPacket(byte[] packet) {
+        if (activeSessions.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = pcapHandle.getTimestamp();
+        for (CaptureSession session : activeSessions) {
+            session.add(packet, timestamp);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            this.pcapHandle.loop(-1, this);
+        } catch (PcapNativeException | NotOpenException err) {
+            LOGGER.error("Failed to capture PCAP packets", err);
+        } catch (InterruptedException err) {
+            LOGGER.debug("breakLoop()` has been called, stop capturing");
+        }
+        this.pcapHandle.close();
+    }
+
+    private void stop() {
+        try {
+            this.pcapHandle.breakLoop();
+            this.captureThread.join(PcapCapturer.WAITING_TIME_AFTER_CLOSE_MILLI);
+        } catch (NotOpenException err) {
+            LOGGER.error("Failed to break PCAP capture loop (handle not open)", err);
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collects the packets received by the engine while a test case is running. Closing the session
+     * keeps collecting packets until the {@link PcapDrain} considers the capture complete, then the
+     * pcap file of the test case is written.
+     */
+    public class CaptureSession implements AutoCloseable {
+        private final AnvilTestCase testCase;
+        private final AnvilContext context;
+        private final long drainIdleMillis;
+        private final PcapBuffer pcapBuffer;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile PcapDrain pcapDrain;
+        // guarded by this
+        private boolean finished = false;
+        private String caseFilter;
+        private BpfProgram compiledCaseFilter;
+
+        private CaptureSession(
+                AnvilTestCase testCase,
+                AnvilContext context,
+                long drainIdleMillis,
+                int pcapBufferSize) {
+            this.testCase = testCase;
+            this.context = context;
+            this.drainIdleMillis = drainIdleMillis;
+            this.pcapBuffer = new PcapBuffer(dataLinkType, pcapBufferSize);
+        }
+
+        private void add(byte[] packet, Timestamp timestamp) {
+            synchronized (this) {
+                if (finished || !matchesCaseFilter(packet)) {
+                    return;
+                }
+                pcapBuffer.append(packet, timestamp);
+            }
+            PcapDrain currentDrain = pcapDrain;
+            if (currentDrain != null) {
+                currentDrain.packetReceived(packet);
+            }
+        }
+
+        private synchronized boolean matchesCaseFilter(byte[] packet) {
+            return compiledCaseFilter == null || compiledCaseFilter.applyFilter(packet);
+        }
+
+        /**
+         * Compiles the case-specific filter once the test case set it and removes the packets kept
+         * before that do not match it.
+         *
+         * @param currentFilter the case-specific filter of the test case
+         */
+        private synchronized void updateCaseFilter(String currentFilter) {
+            if (!finished
+                    && currentFilter != null
+                    && !currentFilter.isEmpty()
+                    && !currentFilter.equals(caseFilter)) {
+                freeCaseFilter();
+                caseFilter = currentFilter;
+                try (PcapHandle deadHandle =
+                        Pcaps.openDead(dataLinkType, PcapCapturer.SNAPSHOT_LENGTH_BYTES)) {
+                    compiledCaseFilter =
+                            deadHandle.compileFilter(
+                                    currentFilter,
+                                    BpfCompileMode.OPTIMIZE,
+                                    PcapDrain.NETMASK_UNKNOWN);
+                    pcapBuffer.retainMatching(compiledCaseFilter);
+                } catch (PcapNativeException | NotOpenException e) {
+                    LOGGER.error("Error compiling pcap filter '{}': ", currentFilter, e);
+                }
+            }
+        }
+
+        private synchronized void freeCaseFilter() {
+            if (compiledCaseFilter != null) {
+                compiledCaseFilter.free();
+                compiledCaseFilter = null;
+            }
+        }
+
+        /**
+         * @return false if the session was finished before
+         */
+        private boolean drain() {
+            activeSessions.remove(this);
+            testCase.setCaseSpecificPcapFilterListener(null);
+            synchronized (this) {
+                if (finished) {
+                    return false;
+                }
+                // the filter is usually compiled as soon as the test case set it
+                updateCaseFilter(testCase.getCaseSpecificPcapFilter());
+                freeCaseFilter();
+                finished = true;
+                return true;
+            }
+        }
+
+        @Override
+        public void close() {
+            pcapDrain =
+                    PcapDrain.start(
+                            dataLinkType,
+                            testCase.getCaseSpecificPcapFilter(),
+                            drainIdleMillis,
+                            () -> SESSION_WRITER.execute(this::finish));
+        }
+
+        private void finish() {
+            try {
+                writePcap();
+            } finally {
+                completion.complete(null);
+            }
+        }
+
+        private void writePcap() {
+            if (!drain()) {
+                return;
+            }
+            if (pcapBuffer.getDroppedPackets() > 0) {
+                LOGGER.warn(
+                        "Dropped {} packets of test case, the pcap buffer is full",
+                        pcapBuffer.getDroppedPackets());
+            }
+            if (pcapBuffer.getPacketCount() == 0) {
+                LOGGER.warn(
+                        "TCP dump failed to identify any packets on interface '{}' using general filter '{}'' and test case filter '{}'",
+                        interfaceName,
+                        generalFilter,
+                        caseFilter);
+            }
+            PcapCapturer.writeAndPublish(testCase, pcapBuffer);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate.reporting;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Typed, immutable view of the metadata entry of a single test template. */
+public final class TestMetadata {
+
+    private final String testId;
+    private final Map<String, Integer> severityLevels;
+    private final Integer rfcNumber;
+    private final String rfcSection;
+    private final String description;
+    private final Map<?, ?> rawMetadata;
+
+    TestMetadata(String testId, Map<?, ?> rawMetadata) {
+        this.testId = testId;
+        this.rawMetadata = Collections.unmodifiableMap(rawMetadata);
+        this.severityLevels = parseSeverityLevels(rawMetadata.get("severityLevels"));
+        this.description = asString(rawMetadata.get("description"));
+
+        Object rfc = rawMetadata.get("rfc");
+        if (rfc instanceof Map<?, ?> rfcMap) {
+            Object number = rfcMap.get("number");
+            this.rfcNumber = number instanceof Number ? ((Number) number).intValue() : null;
+            this.rfcSection = asString(rfcMap.get("section"));
+        } else {
+            this.rfcNumber = null;
+            this.rfcSection = null;
+        }
+    }
+
+    private static Map<String, Integer> parseSeverityLevels(Object severityLevels) {
+        if (!(severityLevels instanceof Map<?, ?> levelMap)) {
+            return null;
+        }
+        Map<String, Integer> parsed = new LinkedHashMap<>();
+        for (Map.Entry<?, ?> entry : levelMap.entrySet()) {
+            if (entry.getValue() instanceof Number) {
+                parsed.put(
+                        String.valueOf(entry.getKey()), ((Number) entry.getValue()).intValue());
+            }
+        }
+        return Collections.unmodifiableMap(parsed);
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    public String getTestId() {
+        return testId;
+    }
+
+    /**
+     * @return the severity level per category, or null if the entry does not define any
+     */
+    public Map<String, Integer> getSeverityLevels() {
+        return severityLevels;
+    }
+
+    /**
+     * @return the highest severity level of any category, or 0 if none are defined
+     */
+    public int getMaxSeverityLevel() {
+        if (severityLevels == null) {
+            return 0;
+        }
+        return severityLevels.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    public Integer getRfcNumber() {
+        return rfcNumber;
+    }
+
+    public String getRfcSection() {
+        return rfcSection;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Map<?, ?> getRawMetadata() {
+        return rawMetadata;
+    }
+}
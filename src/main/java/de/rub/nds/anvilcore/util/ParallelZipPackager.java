@@ -0,0 +1,367 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Packs a folder into a zip archive while the folder is still being filled. Subfolders that are
+ * complete can be added at any time, the remaining files are added when the packager is finished.
+ * Files are compressed in parallel on a fork-join pool and written to the archive in the order
+ * they were added by a single writer thread. Pcap files are compressed with their own compression
+ * level, files that are already compressed or do not shrink are stored.
+ */
+public class ParallelZipPackager {
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Compression level of entries that are stored without compression. */
+    public static final int LEVEL_STORED = 0;
+
+    // larger files are compressed into a temporary file instead of memory
+    private static final long IN_MEMORY_LIMIT = 8L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final List<String> COMPRESSED_EXTENSIONS =
+            List.of(".zip", ".gz", ".tgz", ".bz2", ".xz", ".zst", ".7z", ".png", ".jpg", ".jpeg");
+
+    private final Path sourceDir;
+    private final Path zipFilePath;
+    private final int compressionLevel;
+    private final int pcapCompressionLevel;
+    private final ForkJoinPool compressionPool;
+    // walks folders and submits their files, the order of submission is the order in the archive
+    private final ExecutorService scanExecutor;
+    private final ExecutorService writerExecutor;
+    // limits the number of compressed entries waiting for the writer
+    private final Semaphore pendingEntries;
+    // only accessed by the scan thread
+    private final Set<Path> addedFiles = new HashSet<>();
+    private boolean finished = false;
+    // only accessed by the writer thread
+    private ZipArchiveWriter archiveWriter;
+    private boolean archiveFailed = false;
+
+    /**
+     * A compressed entry waiting to be written.
+     *
+     * @param header the header of the entry
+     * @param content the content of the entry, or null if it is read from contentFile
+     * @param contentFile the file holding the content of the entry
+     * @param temporary whether contentFile has to be deleted after it was written
+     */
+    private record CompressedEntry(
+            ZipArchiveWriter.EntryHeader header,
+            byte[] content,
+            Path contentFile,
+            boolean temporary) {}
+
+    /**
+     * @param sourceDir the folder to pack
+     * @param zipFilename the name of the archive, created in the source folder
+     * @param compressionLevel the compression level of files, -1 for the default level
+     * @param pcapCompressionLevel the compression level of pcap files, -1 for the default level
+     */
+    public ParallelZipPackager(
+            Path sourceDir, String zipFilename, int compressionLevel, int pcapCompressionLevel) {
+        this.sourceDir = sourceDir;
+        this.zipFilePath = sourceDir.resolve(zipFilename);
+        this.compressionLevel = compressionLevel;
+        this.pcapCompressionLevel = pcapCompressionLevel;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        this.compressionPool = new ForkJoinPool(parallelism);
+        this.pendingEntries = new Semaphore(2 * parallelism);
+        this.scanExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("zip-scanner"));
+        this.writerExecutor = Executors.newSingleThreadExecutor(daemonThreadFactory("zip-writer"));
+    }
+
+    private static ThreadFactory daemonThreadFactory(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Adds all files of a folder that will not change anymore. Files that were added before are
+     * skipped.
+     *
+     * @param folder a folder within the source folder
+     */
+    public void addFolder(Path folder) {
+        try {
+            scanExecutor.execute(() -> scan(folder));
+        } catch (RejectedExecutionException e) {
+            // the packager has been finished and already added all files
+        }
+    }
+
+    /** Adds all remaining files of the source folder and completes the archive. */
+    public void finish() {
+        try {
+            scanExecutor
+                    .submit(
+                            () -> {
+                                scan(sourceDir);
+                                finished = true;
+                            })
+                    .get();
+            writerExecutor.submit(this::closeArchive).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while writing zip file");
+        } catch (ExecutionException e) {
+            LOGGER.error("Error writing zip file: ", e);
+        } finally {
+            scanExecutor.shutdown();
+            writerExecutor.shutdown();
+            compressionPool.shutdown();
+        }
+    }
+
+    private void scan(Path folder) {
+        if (finished || !Files.isDirectory(folder)) {
+            return;
+        }
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(folder)) {
+            files =
+                    paths.filter(path -> !Files.isDirectory(path))
+                            .filter(path -> !path.equals(zipFilePath))
+                            .sorted()
+                            .collect(Collectors.toList());
+        } catch (IOException e) {
+            LOGGER.error("Error reading folder {} for zip file: ", folder, e);
+            return;
+        }
+        for (Path file : files) {
+            if (addedFiles.add(file)) {
+                submit(file);
+            }
+        }
+    }
+
+    private void submit(Path file) {
+        try {
+            pendingEntries.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        CompletableFuture<CompressedEntry> entry =
+                CompletableFuture.supplyAsync(() -> compress(file), compressionPool);
+        writerExecutor.execute(
+                () -> {
+                    try {
+                        write(entry.join());
+                    } catch (CompletionException e) {
+                        LOGGER.error("Error writing to zip file: ", e.getCause());
+                    } finally {
+                        pendingEntries.release();
+                    }
+                });
+    }
+
+    private CompressedEntry compress(Path file) {
+        try {
+            String name = sourceDir.relativize(file).toString().replace(File.separatorChar, '/');
+            long lastModified = Files.getLastModifiedTime(file).toMillis();
+            long size = Files.size(file);
+            int level = getCompressionLevel(name);
+            if (size <= IN_MEMORY_LIMIT) {
+                return compressInMemory(name, lastModified, Files.readAllBytes(file), level);
+            }
+            return compressToFile(name, lastModified, file, size, level);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private int getCompressionLevel(String name) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        if (COMPRESSED_EXTENSIONS.stream().anyMatch(lowerCaseName::endsWith)) {
+            return LEVEL_STORED;
+        }
+        return lowerCaseName.endsWith(".pcap") ? pcapCompressionLevel : compressionLevel;
+    }
+
+    private static CompressedEntry compressInMemory(
+            String name, long lastModified, byte[] content, int level) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        if (level != LEVEL_STORED) {
+            Deflater deflater = new Deflater(level, true);
+            try {
+                deflater.setInput(content);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                byte[] buffer = new byte[BUFFER_SIZE];
+                while (!deflater.finished() && compressed.size() < content.length) {
+                    int length = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, length);
+                }
+                if (deflater.finished() && compressed.size() < content.length) {
+                    return new CompressedEntry(
+                            new ZipArchiveWriter.EntryHeader(
+                                    name,
+                                    ZipArchiveWriter.METHOD_DEFLATED,
+                                    crc.getValue(),
+                                    compressed.size(),
+                                    content.length,
+                                    lastModified),
+                            compressed.toByteArray(),
+                            null,
+                            false);
+                }
+            } finally {
+                deflater.end();
+            }
+        }
+        return new CompressedEntry(
+                new ZipArchiveWriter.EntryHeader(
+                        name,
+                        ZipArchiveWriter.METHOD_STORED,
+                        crc.getValue(),
+                        content.length,
+                        content.length,
+                        lastModified),
+                content,
+                null,
+                false);
+    }
+
+    private static CompressedEntry compressToFile(
+            String name, long lastModified, Path file, long size, int level) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        if (level == LEVEL_STORED) {
+            try (InputStream input = Files.newInputStream(file)) {
+                int length;
+                while ((length = input.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, length);
+                }
+            }
+            return storedFromFile(name, lastModified, file, size, crc.getValue());
+        }
+        Path compressedFile = Files.createTempFile("anvil-zip-", ".deflate");
+        Deflater deflater = new Deflater(level, true);
+        try {
+            try (InputStream input = Files.newInputStream(file);
+                    OutputStream output =
+                            new DeflaterOutputStream(
+                                    Files.newOutputStream(compressedFile), deflater, BUFFER_SIZE)) {
+                int length;
+                while ((length = input.read(buffer)) >= 0) {
+                    crc.update(buffer, 0, length);
+                    output.write(buffer, 0, length);
+                }
+            }
+            long compressedSize = deflater.getBytesWritten();
+            if (compressedSize < size) {
+                return new CompressedEntry(
+                        new ZipArchiveWriter.EntryHeader(
+                                name,
+                                ZipArchiveWriter.METHOD_DEFLATED,
+                                crc.getValue(),
+                                compressedSize,
+                                size,
+                                lastModified),
+                        null,
+                        compressedFile,
+                        true);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(compressedFile);
+            throw e;
+        } finally {
+            deflater.end();
+        }
+        Files.deleteIfExists(compressedFile);
+        return storedFromFile(name, lastModified, file, size, crc.getValue());
+    }
+
+    private static CompressedEntry storedFromFile(
+            String name, long lastModified, Path file, long size, long crc) {
+        return new CompressedEntry(
+                new ZipArchiveWriter.EntryHeader(
+                        name, ZipArchiveWriter.METHOD_STORED, crc, size, size, lastModified),
+                null,
+                file,
+                false);
+    }
+
+    private void write(CompressedEntry entry) {
+        try {
+            if (archiveWriter == null && !archiveFailed) {
+                archiveWriter = new ZipArchiveWriter(zipFilePath);
+            }
+            if (archiveWriter == null) {
+                return;
+            }
+            if (entry.content() != null) {
+                archiveWriter.writeEntry(entry.header(), entry.content());
+            } else {
+                archiveWriter.writeEntry(entry.header(), entry.contentFile());
+            }
+        } catch (IOException e) {
+            if (archiveWriter == null) {
+                archiveFailed = true;
+                LOGGER.error("Error writing zip file: ", e);
+            } else {
+                LOGGER.error("Error writing to zip file: ", e);
+            }
+        } finally {
+            if (entry.temporary()) {
+                try {
+                    Files.deleteIfExists(entry.contentFile());
+                } catch (IOException e) {
+                    LOGGER.warn("Failed to delete temporary file {}", entry.contentFile());
+                }
+            }
+        }
+    }
+
+    private void closeArchive() {
+        try {
+            if (archiveWriter == null && !archiveFailed) {
+                archiveWriter = new ZipArchiveWriter(zipFilePath);
+            }
+            if (archiveWriter != null) {
+                archiveWriter.close();
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error writing zip file: ", e);
+        }
+    }
+}
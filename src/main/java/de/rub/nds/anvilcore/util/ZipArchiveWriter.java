@@ -0,0 +1,260 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.util;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Writes a zip archive from entries whose content was already compressed. {@link
+ * java.util.zip.ZipOutputStream} compresses entries itself while writing them, hence it cannot
+ * write entries that were deflated in parallel. Zip64 records are added when an archive exceeds
+ * the limits of the classic format.
+ */
+final class ZipArchiveWriter implements Closeable {
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final short ZIP64_EXTRA_ID = 0x0001;
+    private static final short VERSION_DEFAULT = 20;
+    private static final short VERSION_ZIP64 = 45;
+    // names are encoded in UTF-8
+    private static final short FLAG_UTF8 = 0x0800;
+    private static final long ZIP64_LIMIT = 0xFFFFFFFFL;
+    private static final int ZIP64_ENTRY_LIMIT = 0xFFFF;
+
+    /**
+     * Header fields of an entry.
+     *
+     * @param name the name of the entry, using / as separator
+     * @param method {@link #METHOD_STORED} or {@link #METHOD_DEFLATED}
+     * @param crc the CRC-32 of the uncompressed content
+     * @param compressedSize the size of the content as written to the archive
+     * @param size the size of the uncompressed content
+     * @param lastModifiedMillis the modification time of the entry
+     */
+    record EntryHeader(
+            String name,
+            int method,
+            long crc,
+            long compressedSize,
+            long size,
+            long lastModifiedMillis) {}
+
+    private final OutputStream output;
+    private final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+    private long offset = 0;
+    private long entryCount = 0;
+
+    /**
+     * @param path the path of the archive, which must not exist yet
+     * @throws IOException if the archive cannot be created
+     */
+    ZipArchiveWriter(Path path) throws IOException {
+        output =
+                new BufferedOutputStream(
+                        Files.newOutputStream(
+                                path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                        64 * 1024);
+    }
+
+    /**
+     * Writes an entry whose content is held in memory.
+     *
+     * @param header the header of the entry
+     * @param content the content as written to the archive
+     * @throws IOException if the entry cannot be written
+     */
+    void writeEntry(EntryHeader header, byte[] content) throws IOException {
+        writeLocalHeader(header);
+        output.write(content);
+        offset += content.length;
+    }
+
+    /**
+     * Writes an entry whose content is read from a file.
+     *
+     * @param header the header of the entry
+     * @param content file holding the content as written to the archive
+     * @throws IOException if the entry cannot be written
+     */
+    void writeEntry(EntryHeader header, Path content) throws IOException {
+        writeLocalHeader(header);
+        offset += Files.copy(content, output);
+    }
+
+    private void writeLocalHeader(EntryHeader header) throws IOException {
+        byte[] name = header.name().getBytes(StandardCharsets.UTF_8);
+        boolean zip64 = header.size() >= ZIP64_LIMIT || header.compressedSize() >= ZIP64_LIMIT;
+        int[] dosTime = toDosTime(header.lastModifiedMillis());
+        ByteBuffer buffer = allocate(30 + name.length + (zip64 ? 20 : 0));
+        buffer.putInt(LOCAL_HEADER_SIGNATURE);
+        buffer.putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        buffer.putShort(FLAG_UTF8);
+        buffer.putShort((short) header.method());
+        buffer.putShort((short) dosTime[0]);
+        buffer.putShort((short) dosTime[1]);
+        buffer.putInt((int) header.crc());
+        buffer.putInt((int) (zip64 ? ZIP64_LIMIT : header.compressedSize()));
+        buffer.putInt((int) (zip64 ? ZIP64_LIMIT : header.size()));
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) (zip64 ? 20 : 0));
+        buffer.put(name);
+        if (zip64) {
+            buffer.putShort(ZIP64_EXTRA_ID);
+            buffer.putShort((short) 16);
+            buffer.putLong(header.size());
+            buffer.putLong(header.compressedSize());
+        }
+        long headerOffset = offset;
+        write(buffer);
+        addCentralHeader(header, name, dosTime, headerOffset);
+        entryCount++;
+    }
+
+    private void addCentralHeader(EntryHeader header, byte[] name, int[] dosTime, long headerOffset)
+            throws IOException {
+        boolean sizeZip64 = header.size() >= ZIP64_LIMIT;
+        boolean compressedSizeZip64 = header.compressedSize() >= ZIP64_LIMIT;
+        boolean offsetZip64 = headerOffset >= ZIP64_LIMIT;
+        int extraLength =
+                (sizeZip64 ? 8 : 0) + (compressedSizeZip64 ? 8 : 0) + (offsetZip64 ? 8 : 0);
+        boolean zip64 = extraLength > 0;
+        ByteBuffer buffer = allocate(46 + name.length + (zip64 ? 4 + extraLength : 0));
+        buffer.putInt(CENTRAL_HEADER_SIGNATURE);
+        buffer.putShort(VERSION_ZIP64);
+        buffer.putShort(zip64 ? VERSION_ZIP64 : VERSION_DEFAULT);
+        buffer.putShort(FLAG_UTF8);
+        buffer.putShort((short) header.method());
+        buffer.putShort((short) dosTime[0]);
+        buffer.putShort((short) dosTime[1]);
+        buffer.putInt((int) header.crc());
+        buffer.putInt((int) (compressedSizeZip64 ? ZIP64_LIMIT : header.compressedSize()));
+        buffer.putInt((int) (sizeZip64 ? ZIP64_LIMIT : header.size()));
+        buffer.putShort((short) name.length);
+        buffer.putShort((short) (zip64 ? 4 + extraLength : 0));
+        // comment length, disk number, internal and external attributes
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putShort((short) 0);
+        buffer.putInt(0);
+        buffer.putInt((int) (offsetZip64 ? ZIP64_LIMIT : headerOffset));
+        buffer.put(name);
+        if (zip64) {
+            buffer.putShort(ZIP64_EXTRA_ID);
+            buffer.putShort((short) extraLength);
+            if (sizeZip64) {
+                buffer.putLong(header.size());
+            }
+            if (compressedSizeZip64) {
+                buffer.putLong(header.compressedSize());
+            }
+            if (offsetZip64) {
+                buffer.putLong(headerOffset);
+            }
+        }
+        centralDirectory.write(buffer.array());
+    }
+
+    /** Writes the central directory and closes the archive. */
+    @Override
+    public void close() throws IOException {
+        try {
+            long centralDirectoryOffset = offset;
+            long centralDirectorySize = centralDirectory.size();
+            centralDirectory.writeTo(output);
+            offset += centralDirectorySize;
+            boolean zip64 =
+                    entryCount >= ZIP64_ENTRY_LIMIT
+                            || centralDirectoryOffset >= ZIP64_LIMIT
+                            || centralDirectorySize >= ZIP64_LIMIT;
+            if (zip64) {
+                writeZip64End(centralDirectoryOffset, centralDirectorySize);
+            }
+            ByteBuffer buffer = allocate(22);
+            buffer.putInt(END_SIGNATURE);
+            // number of this disk and of the disk with the central directory
+            buffer.putShort((short) 0);
+            buffer.putShort((short) 0);
+            buffer.putShort((short) Math.min(entryCount, ZIP64_ENTRY_LIMIT));
+            buffer.putShort((short) Math.min(entryCount, ZIP64_ENTRY_LIMIT));
+            buffer.putInt((int) Math.min(centralDirectorySize, ZIP64_LIMIT));
+            buffer.putInt((int) Math.min(centralDirectoryOffset, ZIP64_LIMIT));
+            buffer.putShort((short) 0);
+            write(buffer);
+        } finally {
+            output.close();
+        }
+    }
+
+    private void writeZip64End(long centralDirectoryOffset, long centralDirectorySize)
+            throws IOException {
+        long endOffset = offset;
+        ByteBuffer buffer = allocate(56 + 20);
+        buffer.putInt(ZIP64_END_SIGNATURE);
+        // size of the remaining record
+        buffer.putLong(44);
+        buffer.putShort(VERSION_ZIP64);
+        buffer.putShort(VERSION_ZIP64);
+        buffer.putInt(0);
+        buffer.putInt(0);
+        buffer.putLong(entryCount);
+        buffer.putLong(entryCount);
+        buffer.putLong(centralDirectorySize);
+        buffer.putLong(centralDirectoryOffset);
+        buffer.putInt(ZIP64_LOCATOR_SIGNATURE);
+        buffer.putInt(0);
+        buffer.putLong(endOffset);
+        // total number of disks
+        buffer.putInt(1);
+        write(buffer);
+    }
+
+    private static ByteBuffer allocate(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        output.write(buffer.array(), 0, buffer.position());
+        offset += buffer.position();
+    }
+
+    /**
+     * @return the MS-DOS time and date of the given time in the local time zone
+     */
+    private static int[] toDosTime(long millis) {
+        LocalDateTime time =
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            return new int[] {0, (1 << 5) | 1};
+        }
+        int dosTime = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() / 2);
+        int dosDate =
+                ((time.getYear() - 1980) << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+        return new int[] {dosTime, dosDate};
+    }
+}
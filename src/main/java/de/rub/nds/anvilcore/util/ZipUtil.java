@@ -8,42 +8,23 @@
  */
 package de.rub.nds.anvilcore.util;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.stream.Stream;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import java.util.zip.Deflater;
 
 public class ZipUtil {
-    private static final Logger LOGGER = LogManager.getLogger();
-
+    /**
+     * Packs a folder into a zip archive, which is created inside the folder.
+     *
+     * @param sourceDir the folder to pack
+     * @param zipFilename the name of the archive
+     */
     public static void packFolderToZip(String sourceDir, String zipFilename) {
-        try {
-            Path sourceDirPath = Paths.get(sourceDir);
-            Path zipFilePath = Files.createFile(sourceDirPath.resolve(zipFilename));
-            try (ZipOutputStream zs = new ZipOutputStream(Files.newOutputStream(zipFilePath));
-                    Stream<Path> paths = Files.walk(sourceDirPath)) {
-                paths.filter(path -> !Files.isDirectory(path))
-                        .filter(path -> !path.equals(zipFilePath))
-                        .forEach(
-                                path -> {
-                                    ZipEntry zipEntry =
-                                            new ZipEntry(sourceDirPath.relativize(path).toString());
-                                    try {
-                                        zs.putNextEntry(zipEntry);
-                                        Files.copy(path, zs);
-                                        zs.closeEntry();
-                                    } catch (IOException e) {
-                                        LOGGER.error("Error writing to zip file: ", e);
-                                    }
-                                });
-            }
-        } catch (IOException e) {
-            LOGGER.error("Error writing zip file: ", e);
-        }
+        ParallelZipPackager packager =
+                new ParallelZipPackager(
+                        Paths.get(sourceDir),
+                        zipFilename,
+                        Deflater.DEFAULT_COMPRESSION,
+                        Deflater.DEFAULT_COMPRESSION);
+        packager.finish();
     }
 }
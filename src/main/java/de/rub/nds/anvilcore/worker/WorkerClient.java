@@ -28,6 +28,8 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
@@ -45,6 +47,10 @@ public class WorkerClient implements AnvilListener {
     private static final Logger LOGGER = LogManager.getLogger();
     private static final String API_URL = "/api/v2/";
     private static final int POLLING_TIME = 10;
+    // first delay before the command channel is opened again after the controller closed it
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+    // how long the end of a job waits for its updates to be sent
+    private static final long FLUSH_TIMEOUT_SECONDS = 30;
 
     private enum WorkerStatus {
         IDLE,
@@ -61,15 +67,20 @@ public class WorkerClient implements AnvilListener {
 
     private String workerId;
     private boolean alive;
-    private WorkerStatus status;
+    private volatile WorkerStatus status;
+    // all jobs of this worker that are queued or running, in the order they were received
     private Map<String, Map<?, ?>> jobs;
-    private CompletableFuture<Void> currentTestRun = null;
-    private String activeJobId = null;
+    private final Map<String, JobExecution> runningJobs = new LinkedHashMap<>();
+    private int maxConcurrentJobs = 1;
     private ExecutorService pool;
-    private AnvilContext anvilContext;
 
     private AnvilListener listener;
     private Consumer<TestRunner> testRunnerCallback;
+    private volatile boolean batchUpdates = false;
+    private volatile WorkerUpdatePipeline updatePipeline;
+    private volatile boolean pushCommands = true;
+    private volatile WorkerStatus reportedStatus;
+    private long pollingMillis = TimeUnit.SECONDS.toMillis(POLLING_TIME);
 
     public WorkerClient(String hostname, ParameterIdentifierProvider provider, String workerName) {
         this(hostname, provider);
@@ -132,6 +143,64 @@ public class WorkerClient implements AnvilListener {
         this.listener = listener;
     }
 
+    public int getMaxConcurrentJobs() {
+        return maxConcurrentJobs;
+    }
+
+    /**
+     * Sets how many jobs are executed concurrently. Every job uses its own {@link AnvilContext},
+     * further jobs are queued until a running job finished.
+     *
+     * @param maxConcurrentJobs the maximum number of concurrently executed jobs, at least 1
+     */
+    public synchronized void setMaxConcurrentJobs(int maxConcurrentJobs) {
+        this.maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
+    }
+
+    /**
+     * Receives commands from the controller through a server-sent event channel instead of
+     * polling {@code worker/fetch}. While the channel is open, status and logs are only sent when
+     * they changed. If the controller does not offer the channel, the worker falls back to
+     * polling. Enabled by default.
+     *
+     * @param pushCommands whether commands should be pushed by the controller
+     */
+    public void setPushCommands(boolean pushCommands) {
+        this.pushCommands = pushCommands;
+    }
+
+    /**
+     * Sends all updates through a single sender thread that batches them into compressed {@code
+     * worker/update/batch} requests and uploads pcaps as binary multipart requests. The controller
+     * must support these endpoints. By default, every update is posted individually. Disabling
+     * the batching sends the pending updates before it returns.
+     *
+     * @param batchUpdates whether updates should be batched
+     */
+    public void setBatchUpdates(boolean batchUpdates) {
+        synchronized (this) {
+            this.batchUpdates = batchUpdates;
+            if (batchUpdates && updatePipeline == null) {
+                updatePipeline = new WorkerUpdatePipeline(client, "http://" + hostname + API_URL);
+            }
+        }
+        if (!batchUpdates) {
+            closeUpdatePipeline();
+        }
+    }
+
+    private void closeUpdatePipeline() {
+        WorkerUpdatePipeline closedPipeline;
+        synchronized (this) {
+            closedPipeline = updatePipeline;
+            updatePipeline = null;
+        }
+        if (closedPipeline != null) {
+            // close outside of the lock, commands must not wait for the remaining updates
+            closedPipeline.close();
+        }
+    }
+
     /**
      * Sets a callback that will be invoked when a TestRunner object is created. The callback
      * receives the TestRunner instance as a parameter. This callback is optional and can be used to
@@ -143,6 +212,14 @@ public class WorkerClient implements AnvilListener {
         this.testRunnerCallback = callback;
     }
 
+    /**
+     * @param pollingMillis the interval of polling and heartbeats, which also bounds the delay
+     *     before the command channel is opened again
+     */
+    void setPollingMillis(long pollingMillis) {
+        this.pollingMillis = pollingMillis;
+    }
+
     public void run() throws InterruptedException {
         LOGGER.info("WorkerClient starting");
         int MAX_TRIES = 3;
@@ -156,9 +233,58 @@ public class WorkerClient implements AnvilListener {
             return;
         }
         LOGGER.info("Connected");
-        while (this.alive) {
+        // the pipeline of a previous run was closed when it ended
+        setBatchUpdates(batchUpdates);
+        WorkerCommandChannel commandChannel =
+                new WorkerCommandChannel(
+                        client, "http://" + hostname + API_URL, mapper, this::queueCommand);
+        ScheduledExecutorService heartbeat =
+                Executors.newSingleThreadScheduledExecutor(
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "worker-heartbeat");
+                            thread.setDaemon(true);
+                            return thread;
+                        });
+        heartbeat.scheduleWithFixedDelay(
+                this::sendHeartbeat, pollingMillis, pollingMillis, TimeUnit.MILLISECONDS);
+        long initialReconnectDelay = Math.min(RECONNECT_DELAY_MILLIS, pollingMillis);
+        long reconnectDelay = initialReconnectDelay;
+        try {
+            while (this.alive) {
+                if (pushCommands) {
+                    long openedAt = System.nanoTime();
+                    WorkerCommandChannel.ListenResult result = commandChannel.listen(workerId);
+                    if (result == WorkerCommandChannel.ListenResult.CLOSED) {
+                        // a controller closing the channel right away must not be flooded with
+                        // reconnects, the delay is reset once a channel stayed open for a while
+                        if (System.nanoTime() - openedAt
+                                >= TimeUnit.MILLISECONDS.toNanos(pollingMillis)) {
+                            reconnectDelay = initialReconnectDelay;
+                        }
+                        Thread.sleep(reconnectDelay);
+                        reconnectDelay = Math.min(reconnectDelay * 2, pollingMillis);
+                        continue;
+                    }
+                    if (result == WorkerCommandChannel.ListenResult.UNSUPPORTED) {
+                        LOGGER.info("Backend offers no command channel, polling for commands");
+                        pushCommands = false;
+                    }
+                }
+                fetch();
+                Thread.sleep(pollingMillis);
+            }
+        } finally {
+            heartbeat.shutdownNow();
+            closeUpdatePipeline();
+        }
+    }
+
+    private void sendHeartbeat() {
+        // status and logs are part of every fetch, when polling no heartbeat is needed
+        if (pushCommands
+                && this.alive
+                && (status != reportedStatus || logWriter.getBuffer().length() > 0)) {
             fetch();
-            Thread.sleep(POLLING_TIME * 1000);
         }
     }
 
@@ -178,14 +304,16 @@ public class WorkerClient implements AnvilListener {
         }
     }
 
-    private void fetch() {
+    private synchronized void fetch() {
         Map<String, String> body = new LinkedHashMap<>();
+        WorkerStatus currentStatus = this.status;
         body.put("id", this.workerId);
-        body.put("status", this.status.toString());
+        body.put("status", currentStatus.toString());
         body.put("logs", logWriter.toString());
         logWriter.getBuffer().delete(0, logWriter.getBuffer().length());
         try {
             Map<?, ?> command = postRequest("worker/fetch", body);
+            reportedStatus = currentStatus;
             queueCommand(command);
         } catch (InterruptedException | IOException e) {
             LOGGER.error("Connection to backend lost: " + e.getMessage());
@@ -193,7 +321,7 @@ public class WorkerClient implements AnvilListener {
         }
     }
 
-    public void queueCommand(Map<?, ?> commandObject) {
+    public synchronized void queueCommand(Map<?, ?> commandObject) {
         String command = (String) commandObject.get("command");
         switch (command) {
             case "QUEUE_RUN":
@@ -237,15 +365,24 @@ public class WorkerClient implements AnvilListener {
     }
 
     private void queueJob(Map<?, ?> job) {
-        // if we are still working, put job to queue, else we can start the run
-        if (this.status == WorkerStatus.WORKING) {
-            jobs.put((String) job.get("id"), job);
-        } else {
-            startTestRun(job);
+        // start the job if a slot is free, else keep it queued
+        jobs.put((String) job.get("id"), job);
+        startQueuedJobs();
+    }
+
+    private synchronized void startQueuedJobs() {
+        for (Map<?, ?> job : new ArrayList<>(jobs.values())) {
+            if (runningJobs.size() >= maxConcurrentJobs) {
+                break;
+            }
+            if (!runningJobs.containsKey((String) job.get("id"))) {
+                startTestRun(job);
+            }
         }
+        status = runningJobs.isEmpty() ? WorkerStatus.IDLE : WorkerStatus.WORKING;
     }
 
-    private void startTestRun(Map<?, ?> job) {
+    private synchronized void startTestRun(Map<?, ?> job) {
         String anvilConfigString = (String) job.get("config");
         String additionalConfigString = (String) job.get("additionalConfig");
         AnvilTestConfig anvilConfig = new AnvilTestConfig();
@@ -261,82 +398,107 @@ public class WorkerClient implements AnvilListener {
             listener.gotConfig(anvilConfig, additionalConfigString);
         }
 
-        activeJobId = (String) job.get("id");
+        JobExecution execution = new JobExecution((String) job.get("id"), job);
         status = WorkerStatus.WORKING;
-        jobs.put(activeJobId, job);
+        jobs.put(execution.jobId, job);
+        runningJobs.put(execution.jobId, execution);
         LOGGER.info("Starting new test execution.");
-        if (this.pool == null || this.pool.isTerminated()) {
-            this.pool = Executors.newFixedThreadPool(1);
+        if (this.pool == null || this.pool.isShutdown()) {
+            this.pool = Executors.newCachedThreadPool();
         }
         AnvilTestConfig finalAnvilConfig = anvilConfig;
-        currentTestRun =
-                CompletableFuture.runAsync(
-                                () -> {
-                                    TestRunner runner =
-                                            new TestRunner(
-                                                    finalAnvilConfig,
-                                                    additionalConfigString,
-                                                    parameterIdentifierProvider);
-                                    runner.setListener(this);
-
-                                    // Invoke the test runner callback if one is set, for example,
-                                    // to spawn companion context objects
-                                    if (testRunnerCallback != null) {
-                                        testRunnerCallback.accept(runner);
-                                    }
-                                    anvilContext =
-                                            AnvilContextRegistry.getContext(runner.getContextId());
-                                    runner.runTests();
-                                })
-                        .thenRun(
-                                () -> {
-                                    jobs.remove(activeJobId);
-                                    Optional<Map<?, ?>> nextJob =
-                                            jobs.values().stream().findFirst();
-                                    if (nextJob.isPresent()) {
-                                        startTestRun(nextJob.get());
-                                    } else {
-                                        status = WorkerStatus.IDLE;
-                                    }
-                                });
-    }
-
-    private void stopRun(String jobId, boolean restart) {
-        // cancel current run if jobId matches
-        if (jobId.equals(activeJobId)) {
-            LOGGER.info("Canceling current test execution.");
-            if (listener != null) {
-                listener.onAborted();
-            }
-            anvilContext.abortRemainingTests();
-            pool.shutdown();
-            currentTestRun.cancel(true);
-            CompletableFuture.runAsync(
-                    () -> {
+        // the job keeps its slot until its thread finished, even if it was stopped
+        execution.testRun.whenComplete(
+                (result, exception) -> {
+                    if (execution.stopped) {
                         // send last report
-                        AnvilReport report = new AnvilReport(anvilContext, false);
-                        postTestReportUpdate(report, true);
-                        // next job if available
-                        Optional<Map<?, ?>> nextJob;
-                        if (restart) { // if we want to restart, keep current job
-                            nextJob = Optional.of(jobs.get(activeJobId));
-                        } else {
-                            nextJob = jobs.values().stream().findFirst();
+                        if (execution.anvilContext != null) {
+                            AnvilReport report = new AnvilReport(execution.anvilContext, false);
+                            execution.postTestReportUpdate(report, true);
                         }
-                        if (nextJob.isPresent()) {
-                            startTestRun(nextJob.get());
-                        } else {
-                            status = WorkerStatus.IDLE;
+                    } else if (exception != null) {
+                        LOGGER.error("Test execution failed", exception);
+                    }
+                    flushUpdates();
+                    jobFinished(execution);
+                });
+        pool.execute(
+                () -> {
+                    execution.started();
+                    try {
+                        TestRunner runner =
+                                new TestRunner(
+                                        finalAnvilConfig,
+                                        additionalConfigString,
+                                        parameterIdentifierProvider);
+                        runner.setListener(execution);
+
+                        // Invoke the test runner callback if one is set, for example,
+                        // to spawn companion context objects
+                        if (testRunnerCallback != null) {
+                            testRunnerCallback.accept(runner);
                         }
-                    },
-                    CompletableFuture.delayedExecutor(5, TimeUnit.SECONDS));
+                        execution.anvilContext =
+                                AnvilContextRegistry.getContext(runner.getContextId());
+                        // stopRun aborts the context if it was already set
+                        if (!execution.stopped) {
+                            runner.runTests();
+                        }
+                        execution.finished();
+                        execution.testRun.complete(null);
+                    } catch (Throwable e) {
+                        execution.finished();
+                        execution.testRun.completeExceptionally(e);
+                    }
+                });
+    }
+
+    private synchronized void jobFinished(JobExecution execution) {
+        if (runningJobs.remove(execution.jobId, execution) && !execution.restart) {
+            jobs.remove(execution.jobId, execution.job);
+        }
+        startQueuedJobs();
+    }
+
+    private synchronized void stopRun(String jobId, boolean restart) {
+        // stop the run of the job if it is running, it is removed once its thread finished
+        JobExecution execution = runningJobs.get(jobId);
+        if (execution != null) {
+            if (restart) {
+                // the job is started again once the stopped run finished
+                execution.restart = true;
+                jobs.putIfAbsent(jobId, execution.job);
+            }
+            if (!execution.stopped) {
+                LOGGER.info("Canceling test execution of job {}.", jobId);
+                if (listener != null) {
+                    listener.onAborted();
+                }
+                execution.stopped = true;
+                if (execution.anvilContext != null) {
+                    execution.anvilContext.abortRemainingTests();
+                }
+                execution.interrupt();
+            }
         }
         if (!restart) {
             // remove job from list
-            Map<?, ?> job = jobs.get(jobId);
-            if (job != null) {
-                jobs.remove(jobId);
+            jobs.remove(jobId);
+        }
+    }
+
+    /** Waits until the updates submitted so far were sent, if updates are batched. */
+    private void flushUpdates() {
+        WorkerUpdatePipeline pipeline = updatePipeline;
+        if (pipeline == null) {
+            return;
+        }
+        try {
+            if (!pipeline.flush(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.warn("Timed out sending the updates of the finished job to backend");
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -346,74 +508,72 @@ public class WorkerClient implements AnvilListener {
         // todo reimplement
     }
 
+    /**
+     * Returns the execution the listener methods of the worker itself refer to. These are only
+     * unambiguous while at most one job is running, concurrent jobs report through their own
+     * {@link JobExecution}.
+     */
+    private synchronized JobExecution getSingleExecution() {
+        if (runningJobs.size() != 1) {
+            LOGGER.warn("Cannot assign update to a job, {} jobs are running", runningJobs.size());
+            return null;
+        }
+        return runningJobs.values().iterator().next();
+    }
+
     @Override
     public void onTestCaseFinished(AnvilTestCase testCase, String testRunId) {
-        if (listener != null) {
-            listener.onTestCaseFinished(testCase, testRunId);
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.onTestCaseFinished(testCase, testRunId);
         }
-        Map<String, Object> testCaseUpdate = new LinkedHashMap<>();
-        testCaseUpdate.put("jobId", activeJobId);
-        testCaseUpdate.put("testId", testRunId);
-        testCaseUpdate.put("testCase", testCase);
-
-        postUpdateAsync("worker/update/testcase", testCaseUpdate);
     }
 
     @Override
     public void onPcapCaptured(AnvilTestCase testCase, byte[] pcapData) {
-        if (listener != null) {
-            listener.onPcapCaptured(testCase, pcapData);
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.onPcapCaptured(testCase, pcapData);
         }
+    }
 
-        Map<String, Object> pcapUpdate = new LinkedHashMap<>();
-        pcapUpdate.put("jobId", activeJobId);
-        pcapUpdate.put("testId", testCase.getAssociatedContainer().getTestId());
-        pcapUpdate.put("uuid", testCase.getUuid());
-        pcapUpdate.put("pcapData", Base64.getEncoder().encodeToString(pcapData));
-
-        postUpdateAsync("worker/update/pcap", pcapUpdate);
+    @Override
+    public void onPcapCaptured(AnvilTestCase testCase, ByteBuffer pcapData) {
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.onPcapCaptured(testCase, pcapData);
+        }
     }
 
     @Override
     public void onTestRunFinished(AnvilTestRun testRun) {
-        if (listener != null) {
-            listener.onTestRunFinished(testRun);
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.onTestRunFinished(testRun);
         }
-        Map<String, Object> testUpdate = new LinkedHashMap<>();
-        testUpdate.put("jobId", activeJobId);
-        testUpdate.put("testRun", testRun);
-        testUpdate.put("finished", true);
-
-        postUpdateAsync("worker/update/testrun", testUpdate);
     }
 
     @Override
     public void onReportFinished(AnvilReport anvilReport) {
-        if (listener != null) {
-            listener.onReportFinished(anvilReport);
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.onReportFinished(anvilReport);
         }
-        postTestReportUpdate(anvilReport, true);
     }
 
     public void postTestReportUpdate(AnvilReport anvilReport, boolean finished) {
-        Map<String, Object> reportUpdate = new LinkedHashMap<>();
-        reportUpdate.put("jobId", activeJobId);
-        reportUpdate.put("report", anvilReport);
-        reportUpdate.put("finished", finished);
-
-        postUpdateAsync("worker/update/report", reportUpdate);
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.postTestReportUpdate(anvilReport, finished);
+        }
     }
 
     @Override
     public void onStarted() {
-        if (listener != null) {
-            listener.onStarted();
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            execution.onStarted();
         }
-        Map<String, Object> statusUpdate = new LinkedHashMap<>();
-        statusUpdate.put("jobId", activeJobId);
-        statusUpdate.put("status", "TESTING");
-
-        postUpdateAsync("worker/update/status", statusUpdate);
     }
 
     @Override
@@ -425,18 +585,183 @@ public class WorkerClient implements AnvilListener {
 
     @Override
     public boolean beforeStart(TestPlan testPlan, long totalTests) {
+        JobExecution execution = getSingleExecution();
+        if (execution != null) {
+            return execution.beforeStart(testPlan, totalTests);
+        }
+        return listener == null || listener.beforeStart(testPlan, totalTests);
+    }
+
+    /**
+     * A job that is currently executed by this worker. It is the listener of the test runner of the
+     * job and sends all updates of the job to the controller.
+     */
+    private class JobExecution implements AnvilListener {
+        private final String jobId;
+        private final Map<?, ?> job;
+        private final CompletableFuture<Void> testRun = new CompletableFuture<>();
+        private volatile AnvilContext anvilContext;
+        private volatile boolean stopped = false;
+        // whether the job is started again after it was stopped, guarded by WorkerClient.this
+        private boolean restart = false;
+        // the thread executing the job while it runs, guarded by this
+        private Thread thread;
+
+        private JobExecution(String jobId, Map<?, ?> job) {
+            this.jobId = jobId;
+            this.job = job;
+        }
 
-        Map<String, Object> statusUpdate = new LinkedHashMap<>();
-        statusUpdate.put("jobId", activeJobId);
-        statusUpdate.put("status", "SCANNING");
-        statusUpdate.put("totalTests", totalTests);
+        private synchronized void started() {
+            thread = Thread.currentThread();
+        }
 
-        postUpdateAsync("worker/update/status", statusUpdate);
+        private synchronized void finished() {
+            thread = null;
+            // the pooled thread must not carry the interrupt of a stopped job to the next one
+            Thread.interrupted();
+        }
 
-        if (listener != null) {
-            return listener.beforeStart(testPlan, totalTests);
-        } else {
-            return true;
+        /** Interrupts the thread of the job, if it is still running. */
+        private synchronized void interrupt() {
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        @Override
+        public void onTestCaseFinished(AnvilTestCase testCase, String testRunId) {
+            if (listener != null) {
+                listener.onTestCaseFinished(testCase, testRunId);
+            }
+            Map<String, Object> testCaseUpdate = new LinkedHashMap<>();
+            testCaseUpdate.put("jobId", jobId);
+            testCaseUpdate.put("testId", testRunId);
+            testCaseUpdate.put("testCase", testCase);
+
+            postUpdateAsync("worker/update/testcase", testCaseUpdate);
+        }
+
+        @Override
+        public void onPcapCaptured(AnvilTestCase testCase, byte[] pcapData) {
+            if (listener != null) {
+                listener.onPcapCaptured(testCase, pcapData);
+            }
+
+            WorkerUpdatePipeline pipeline = updatePipeline;
+            if (pipeline != null) {
+                postPcapUpload(pipeline, testCase, pcapData);
+            } else {
+                postPcapUpdate(testCase, Base64.getEncoder().encodeToString(pcapData));
+            }
+        }
+
+        @Override
+        public void onPcapCaptured(AnvilTestCase testCase, ByteBuffer pcapData) {
+            if (listener != null) {
+                listener.onPcapCaptured(testCase, pcapData.duplicate());
+            }
+
+            WorkerUpdatePipeline pipeline = updatePipeline;
+            if (pipeline != null) {
+                byte[] pcapBytes = new byte[pcapData.remaining()];
+                pcapData.duplicate().get(pcapBytes);
+                postPcapUpload(pipeline, testCase, pcapBytes);
+            } else {
+                // encode directly from the buffer instead of copying it to an array first
+                ByteBuffer encoded = Base64.getEncoder().encode(pcapData.duplicate());
+                postPcapUpdate(testCase, StandardCharsets.ISO_8859_1.decode(encoded).toString());
+            }
+        }
+
+        private void postPcapUpload(
+                WorkerUpdatePipeline pipeline, AnvilTestCase testCase, byte[] pcapData) {
+            Map<String, Object> pcapMetadata = new LinkedHashMap<>();
+            pcapMetadata.put("jobId", jobId);
+            pcapMetadata.put("testId", testCase.getAssociatedContainer().getTestId());
+            pcapMetadata.put("uuid", testCase.getUuid());
+            try {
+                pipeline.submitBinary(
+                        "worker/update/pcap", mapper.writeValueAsBytes(pcapMetadata), pcapData);
+            } catch (JsonProcessingException e) {
+                LOGGER.error("Error serializing pcap metadata: " + e);
+            }
+        }
+
+        private void postPcapUpdate(AnvilTestCase testCase, String encodedPcapData) {
+            Map<String, Object> pcapUpdate = new LinkedHashMap<>();
+            pcapUpdate.put("jobId", jobId);
+            pcapUpdate.put("testId", testCase.getAssociatedContainer().getTestId());
+            pcapUpdate.put("uuid", testCase.getUuid());
+            pcapUpdate.put("pcapData", encodedPcapData);
+
+            postUpdateAsync("worker/update/pcap", pcapUpdate);
+        }
+
+        @Override
+        public void onTestRunFinished(AnvilTestRun testRun) {
+            if (listener != null) {
+                listener.onTestRunFinished(testRun);
+            }
+            Map<String, Object> testUpdate = new LinkedHashMap<>();
+            testUpdate.put("jobId", jobId);
+            testUpdate.put("testRun", testRun);
+            testUpdate.put("finished", true);
+
+            postUpdateAsync("worker/update/testrun", testUpdate);
+        }
+
+        @Override
+        public void onReportFinished(AnvilReport anvilReport) {
+            if (listener != null) {
+                listener.onReportFinished(anvilReport);
+            }
+            postTestReportUpdate(anvilReport, true);
+        }
+
+        private void postTestReportUpdate(AnvilReport anvilReport, boolean finished) {
+            Map<String, Object> reportUpdate = new LinkedHashMap<>();
+            reportUpdate.put("jobId", jobId);
+            reportUpdate.put("report", anvilReport);
+            reportUpdate.put("finished", finished);
+
+            postUpdateAsync("worker/update/report", reportUpdate);
+        }
+
+        @Override
+        public void onStarted() {
+            if (listener != null) {
+                listener.onStarted();
+            }
+            Map<String, Object> statusUpdate = new LinkedHashMap<>();
+            statusUpdate.put("jobId", jobId);
+            statusUpdate.put("status", "TESTING");
+
+            postUpdateAsync("worker/update/status", statusUpdate);
+        }
+
+        @Override
+        public void onAborted() {
+            if (listener != null) {
+                listener.onAborted();
+            }
+        }
+
+        @Override
+        public boolean beforeStart(TestPlan testPlan, long totalTests) {
+
+            Map<String, Object> statusUpdate = new LinkedHashMap<>();
+            statusUpdate.put("jobId", jobId);
+            statusUpdate.put("status", "SCANNING");
+            statusUpdate.put("totalTests", totalTests);
+
+            postUpdateAsync("worker/update/status", statusUpdate);
+
+            if (listener != null) {
+                return listener.beforeStart(testPlan, totalTests);
+            } else {
+                return true;
+            }
         }
     }
 
@@ -471,6 +796,16 @@ public class WorkerClient implements AnvilListener {
     }
 
     private void postUpdateAsync(String location, Map<?, ?> object) {
+        WorkerUpdatePipeline pipeline = updatePipeline;
+        if (pipeline != null) {
+            // serialize now, the objects may change until the update is sent
+            try {
+                pipeline.submit(location, mapper.writeValueAsBytes(object));
+            } catch (JsonProcessingException e) {
+                LOGGER.error("Error serializing update for backend: " + e);
+            }
+            return;
+        }
         CompletableFuture.supplyAsync(
                         () -> {
                             try {
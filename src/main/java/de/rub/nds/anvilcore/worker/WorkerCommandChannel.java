@@ -0,0 +1,130 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.worker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Receives the commands of the controller as server-sent events from {@code
+ * worker/commands/<workerId>}. Every event carries one command as JSON in its data lines, the same
+ * object the controller returns for {@code worker/fetch}. Commands are hence handled as soon as
+ * the controller issues them and an idle worker does not send any requests.
+ */
+class WorkerCommandChannel {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    /** Result of listening to the channel. */
+    enum ListenResult {
+        /** The controller closed the stream, the channel can be opened again. */
+        CLOSED,
+        /** The channel could not be opened or was interrupted by a connection error. */
+        FAILED,
+        /** The controller does not offer the channel. */
+        UNSUPPORTED
+    }
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final ObjectMapper mapper;
+    private final Consumer<Map<?, ?>> commandHandler;
+
+    WorkerCommandChannel(
+            HttpClient client,
+            String baseUrl,
+            ObjectMapper mapper,
+            Consumer<Map<?, ?>> commandHandler) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.mapper = mapper;
+        this.commandHandler = commandHandler;
+    }
+
+    /**
+     * Opens the channel and passes all received commands to the command handler until the stream
+     * ends.
+     *
+     * @param workerId the id the worker was registered with
+     * @return why listening stopped
+     * @throws InterruptedException if the thread was interrupted while opening the channel
+     */
+    ListenResult listen(String workerId) throws InterruptedException {
+        HttpRequest request =
+                HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl + "worker/commands/" + workerId))
+                        .header("Accept", "text/event-stream")
+                        .GET()
+                        .build();
+        HttpResponse<Stream<String>> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        } catch (IOException e) {
+            LOGGER.debug("Could not open command channel: " + e.getMessage());
+            return ListenResult.FAILED;
+        }
+        try (Stream<String> lines = response.body()) {
+            if (response.statusCode() != 200) {
+                return response.statusCode() == 404 || response.statusCode() == 405
+                        ? ListenResult.UNSUPPORTED
+                        : ListenResult.FAILED;
+            }
+            StringBuilder data = new StringBuilder();
+            Iterator<String> iterator = lines.iterator();
+            while (iterator.hasNext()) {
+                String line = iterator.next();
+                if (line.isEmpty()) {
+                    dispatch(data);
+                } else if (line.startsWith("data:")) {
+                    if (data.length() > 0) {
+                        data.append('\n');
+                    }
+                    data.append(line.substring(line.startsWith("data: ") ? 6 : 5));
+                }
+                // comments (keep-alive), event names and ids are ignored
+            }
+            dispatch(data);
+            return ListenResult.CLOSED;
+        } catch (RuntimeException e) {
+            // connection errors while reading are wrapped by the line stream
+            LOGGER.debug("Command channel interrupted: " + e.getMessage());
+            return ListenResult.FAILED;
+        }
+    }
+
+    private void dispatch(StringBuilder data) {
+        if (data.length() == 0) {
+            return;
+        }
+        String event = data.toString();
+        data.setLength(0);
+        Map<?, ?> command;
+        try {
+            command = mapper.readValue(event, Map.class);
+        } catch (IOException e) {
+            LOGGER.error("Received malformed command from controller: " + event);
+            return;
+        }
+        try {
+            commandHandler.accept(command);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to handle command from controller", e);
+        }
+    }
+}
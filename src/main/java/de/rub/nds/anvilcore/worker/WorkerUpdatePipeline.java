@@ -0,0 +1,336 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.worker;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Sends the updates of a {@link WorkerClient} to the controller from a single sender thread.
+ * Updates are serialized when they are submitted and collected in a bounded queue. JSON updates
+ * are combined into gzip compressed requests to {@code worker/update/batch}, which are sent once a
+ * batch is full or the oldest update waited for {@link #BATCH_DELAY_MILLIS}. Pcaps are uploaded as
+ * binary multipart requests. Submitting blocks while the queue is full, so a slow controller slows
+ * down the test execution instead of piling up requests. Requests that fail with a connection
+ * error or a transient status are retried up to {@link #MAX_ATTEMPTS} times. {@link #flush(long,
+ * TimeUnit)} waits until all submitted updates were sent, {@link #close()} additionally stops the
+ * sender thread.
+ */
+class WorkerUpdatePipeline implements Runnable {
+
+    private static final Logger LOGGER = LogManager.getLogger();
+
+    static final int QUEUE_CAPACITY = 1024;
+    static final int MAX_BATCH_UPDATES = 256;
+    static final int MAX_BATCH_BYTES = 4 * 1024 * 1024;
+    static final long BATCH_DELAY_MILLIS = 250;
+    static final int MAX_ATTEMPTS = 3;
+    static final long RETRY_DELAY_MILLIS = 500;
+    static final long CLOSE_TIMEOUT_SECONDS = 30;
+
+    private static final byte[] BATCH_PREFIX = bytes("{\"updates\":[");
+    private static final byte[] BATCH_SUFFIX = bytes("]}");
+    private static final byte[] LOCATION_PREFIX = bytes("{\"location\":\"");
+    private static final byte[] UPDATE_PREFIX = bytes("\",\"update\":");
+    private static final byte[] UPDATE_SUFFIX = bytes("}");
+    private static final byte[] SEPARATOR = bytes(",");
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final BlockingQueue<PendingUpdate> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread senderThread;
+    // number of submitted and of sent or dropped updates, guarded by this
+    private long submitted = 0;
+    private long processed = 0;
+    private volatile boolean closed = false;
+
+    /**
+     * An update waiting to be sent.
+     *
+     * @param location the endpoint the update was addressed to
+     * @param json the serialized update
+     * @param binary binary content uploaded next to the update, or null for JSON updates
+     */
+    private record PendingUpdate(String location, byte[] json, byte[] binary) {}
+
+    WorkerUpdatePipeline(HttpClient client, String baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.senderThread = new Thread(this, "worker-update-sender");
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Queues a JSON update, blocking while the queue is full.
+     *
+     * @param location the endpoint the update is addressed to, must not contain quotes
+     * @param json the serialized update
+     */
+    void submit(String location, byte[] json) {
+        enqueue(new PendingUpdate(location, json, null));
+    }
+
+    /**
+     * Queues a binary upload, blocking while the queue is full.
+     *
+     * @param location the endpoint the upload is sent to
+     * @param metadata the serialized metadata of the upload
+     * @param binary the uploaded content
+     */
+    void submitBinary(String location, byte[] metadata, byte[] binary) {
+        enqueue(new PendingUpdate(location, metadata, binary));
+    }
+
+    private void enqueue(PendingUpdate update) {
+        if (closed) {
+            LOGGER.error("Update pipeline is closed, dropping update to {}", update.location());
+            return;
+        }
+        try {
+            queue.put(update);
+            synchronized (this) {
+                submitted++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while queueing update for backend, dropping it");
+        }
+    }
+
+    private synchronized void processed(int count) {
+        processed += count;
+        notifyAll();
+    }
+
+    /**
+     * Waits until all updates submitted before the call were sent or finally failed.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit the unit of the timeout
+     * @return true if all updates were processed, false if the timeout elapsed
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    synchronized boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long target = submitted;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (processed < target) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || !senderThread.isAlive()) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    /**
+     * Sends the pending updates and stops the sender thread. Updates submitted afterwards are
+     * dropped.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (!flush(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.error("Timed out sending the remaining updates to backend, dropping them");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOGGER.error("Interrupted while sending the remaining updates to backend");
+        }
+        senderThread.interrupt();
+    }
+
+    @Override
+    public void run() {
+        List<PendingUpdate> batch = new ArrayList<>();
+        while (true) {
+            try {
+                PendingUpdate first = queue.take();
+                if (first.binary() != null) {
+                    sendBinary(first);
+                    continue;
+                }
+                batch.add(first);
+                collectBatch(batch);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                LOGGER.error("Error posting update to backend: " + e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<PendingUpdate> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_DELAY_MILLIS);
+        int batchBytes = batch.get(0).json().length;
+        while (batch.size() < MAX_BATCH_UPDATES && batchBytes < MAX_BATCH_BYTES) {
+            PendingUpdate next = queue.peek();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+            } else {
+                queue.poll();
+            }
+            if (next.binary() != null) {
+                // keep the order of updates, send the pending batch first
+                sendBatch(batch);
+                batch.clear();
+                sendBinary(next);
+                return;
+            }
+            batch.add(next);
+            batchBytes += next.json().length;
+        }
+    }
+
+    private void sendBatch(List<PendingUpdate> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (OutputStream output = new GZIPOutputStream(compressed)) {
+                output.write(BATCH_PREFIX);
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        output.write(SEPARATOR);
+                    }
+                    output.write(LOCATION_PREFIX);
+                    output.write(bytes(batch.get(i).location()));
+                    output.write(UPDATE_PREFIX);
+                    output.write(batch.get(i).json());
+                    output.write(UPDATE_SUFFIX);
+                }
+                output.write(BATCH_SUFFIX);
+            }
+            HttpRequest request =
+                    HttpRequest.newBuilder()
+                            .uri(URI.create(baseUrl + "worker/update/batch"))
+                            .header("Content-Type", "application/json")
+                            .header("Content-Encoding", "gzip")
+                            .POST(HttpRequest.BodyPublishers.ofByteArray(compressed.toByteArray()))
+                            .build();
+            send(request);
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.error("Error posting update batch to backend: " + e);
+        } finally {
+            processed(batch.size());
+        }
+    }
+
+    private void sendBinary(PendingUpdate update) {
+        String boundary = "anvil-" + UUID.randomUUID();
+        List<byte[]> parts = new ArrayList<>();
+        parts.add(
+                bytes(
+                        "--"
+                                + boundary
+                                + "\r\nContent-Disposition: form-data; name=\"metadata\""
+                                + "\r\nContent-Type: application/json\r\n\r\n"));
+        parts.add(update.json());
+        parts.add(
+                bytes(
+                        "\r\n--"
+                                + boundary
+                                + "\r\nContent-Disposition: form-data; name=\"data\";"
+                                + " filename=\"data.bin\""
+                                + "\r\nContent-Type: application/octet-stream\r\n\r\n"));
+        parts.add(update.binary());
+        parts.add(bytes("\r\n--" + boundary + "--\r\n"));
+        HttpRequest request =
+                HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl + update.location()))
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofByteArrays(parts))
+                        .build();
+        try {
+            send(request);
+        } catch (IOException | InterruptedException e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.error("Error uploading to backend: " + e);
+        } finally {
+            processed(1);
+        }
+    }
+
+    /**
+     * Sends a request, retrying it with an increasing delay if it failed with a connection error
+     * or a status that indicates a temporary problem of the controller.
+     *
+     * @throws IOException if the last attempt failed with a connection error
+     */
+    private void send(HttpRequest request) throws IOException, InterruptedException {
+        long delay = RETRY_DELAY_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                HttpResponse<Void> response =
+                        client.send(request, HttpResponse.BodyHandlers.discarding());
+                int statusCode = response.statusCode();
+                if (statusCode < 400) {
+                    return;
+                }
+                if (!isTransient(statusCode) || attempt >= MAX_ATTEMPTS) {
+                    LOGGER.error(
+                            "Backend rejected update to {} with status {}",
+                            request.uri(),
+                            statusCode);
+                    return;
+                }
+            } catch (IOException e) {
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+            LOGGER.debug("Posting update to {} failed, retrying in {} ms", request.uri(), delay);
+            Thread.sleep(delay);
+            delay *= 2;
+        }
+    }
+
+    private static boolean isTransient(int statusCode) {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.coffee4j.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+public class SynchronizedExtensionProxyTest {
+
+    private static class OverlapDetector implements BeforeEachCallback, AfterEachCallback {
+        private final AtomicInteger active = new AtomicInteger();
+        private final AtomicInteger maxActive = new AtomicInteger();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void beforeEach(ExtensionContext context) throws Exception {
+            track();
+        }
+
+        @Override
+        public void afterEach(ExtensionContext context) throws Exception {
+            track();
+        }
+
+        private void track() throws InterruptedException {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(1);
+            calls.incrementAndGet();
+            active.decrementAndGet();
+        }
+    }
+
+    @Test
+    public void wrap_neverRunsCallbacksConcurrently() throws Exception {
+        OverlapDetector detector = new OverlapDetector();
+        Object proxy = SynchronizedExtensionProxy.wrap(detector, new Object());
+        assertTrue(proxy instanceof BeforeEachCallback);
+        assertTrue(proxy instanceof AfterEachCallback);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                boolean before = i % 2 == 0;
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    if (before) {
+                                        ((BeforeEachCallback) proxy).beforeEach(null);
+                                    } else {
+                                        ((AfterEachCallback) proxy).afterEach(null);
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(200, detector.calls.get());
+        assertEquals(1, detector.maxActive.get());
+    }
+
+    @Test
+    public void wrap_rethrowsExceptionsOfTheExtension() {
+        IllegalStateException failure = new IllegalStateException("submission failed");
+        BeforeEachCallback proxy =
+                (BeforeEachCallback)
+                        SynchronizedExtensionProxy.wrap(
+                                (BeforeEachCallback)
+                                        context -> {
+                                            throw failure;
+                                        },
+                                new Object());
+
+        assertSame(
+                failure, assertThrows(IllegalStateException.class, () -> proxy.beforeEach(null)));
+    }
+}
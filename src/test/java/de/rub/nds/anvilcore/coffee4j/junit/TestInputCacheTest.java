@@ -0,0 +1,42 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.coffee4j.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class TestInputCacheTest {
+
+    @Test
+    public void encodeValue_encodesArraysByContent() {
+        assertEquals(
+                TestInputCache.encodeValue(new byte[] {0x01, 0x02}),
+                TestInputCache.encodeValue(new byte[] {0x01, 0x02}));
+        assertNotEquals(
+                TestInputCache.encodeValue(new byte[] {0x01, 0x02}),
+                TestInputCache.encodeValue(new byte[] {0x01, 0x03}));
+        assertEquals(
+                TestInputCache.encodeValue(new int[][] {{1}, {2, 3}}),
+                TestInputCache.encodeValue(List.of(List.of(1), List.of(2, 3))));
+        assertEquals(
+                "java.util.concurrent.TimeUnit.SECONDS",
+                TestInputCache.encodeValue(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void encodeValue_rejectsIdentityBasedValues() {
+        assertNull(TestInputCache.encodeValue(new Object()));
+        assertNull(TestInputCache.encodeValue(List.of("a", new Object())));
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.coffee4j.junit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.rwth.swc.coffee4j.model.Combination;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class TestInputCompletionWatcherTest {
+
+    private static Combination testInput() {
+        return new Combination(Map.of());
+    }
+
+    @Test
+    public void hasNext_waitsForInputsOfTestCasesInFlight() throws Exception {
+        TestInputIterator iterator = new TestInputIterator(() -> false);
+        TestInputCompletionWatcher watcher = new TestInputCompletionWatcher(iterator);
+        iterator.add(testInput());
+        assertTrue(iterator.hasNext());
+        iterator.next();
+
+        CompletableFuture<Boolean> hasNext = CompletableFuture.supplyAsync(iterator::hasNext);
+        Thread.sleep(100);
+        assertFalse(hasNext.isDone());
+
+        // e.g. a fault characterization input derived from the result of the test case
+        iterator.add(testInput());
+        assertTrue(hasNext.get(5, TimeUnit.SECONDS));
+        iterator.next();
+
+        watcher.testFailed(null, new AssertionError());
+        hasNext = CompletableFuture.supplyAsync(iterator::hasNext);
+        Thread.sleep(100);
+        assertFalse(hasNext.isDone());
+        watcher.testSuccessful(null);
+        assertFalse(hasNext.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void hasNext_endsOnceGenerationFinished() throws Exception {
+        TestInputIterator iterator = new TestInputIterator(() -> false);
+        iterator.add(testInput());
+        iterator.next();
+
+        CompletableFuture<Boolean> hasNext = CompletableFuture.supplyAsync(iterator::hasNext);
+        Thread.sleep(100);
+        assertFalse(hasNext.isDone());
+        iterator.generationFinished();
+        assertFalse(hasNext.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void hasNext_handsOutAllInputsOfConcurrentTestCases() throws Exception {
+        TestInputIterator iterator = new TestInputIterator(() -> false);
+        TestInputCompletionWatcher watcher = new TestInputCompletionWatcher(iterator);
+        for (int i = 0; i < 50; i++) {
+            iterator.add(testInput());
+        }
+        AtomicInteger executed = new AtomicInteger();
+        AtomicInteger derived = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                executor.execute(
+                        () -> {
+                            // every fifth test case leads to an additional test input
+                            if (executed.incrementAndGet() % 5 == 0) {
+                                derived.incrementAndGet();
+                                iterator.add(testInput());
+                            }
+                            watcher.testSuccessful(null);
+                        });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(62, executed.get());
+        assertEquals(12, derived.get());
+        assertTrue(iterator.getTestInputQueue().isEmpty());
+    }
+
+    @Test
+    public void whenDrained_runsOnceTheLastTestCaseFinished() throws Exception {
+        TestInputIterator iterator = new TestInputIterator(() -> false);
+        TestInputCompletionWatcher watcher = new TestInputCompletionWatcher(iterator);
+        AtomicInteger drained = new AtomicInteger();
+        iterator.whenDrained(drained::incrementAndGet);
+        iterator.add(testInput());
+        iterator.add(testInput());
+        iterator.next();
+        iterator.next();
+        iterator.generationFinished();
+
+        assertFalse(iterator.hasNext());
+        assertEquals(0, drained.get());
+        watcher.testSuccessful(null);
+        assertEquals(0, drained.get());
+        watcher.testFailed(null, new AssertionError());
+        assertEquals(1, drained.get());
+        assertFalse(iterator.hasNext());
+        assertEquals(1, drained.get());
+    }
+
+    @Test
+    public void hasNext_endsOnceTestRunTerminated() throws Exception {
+        AtomicInteger terminated = new AtomicInteger();
+        TestInputIterator iterator = new TestInputIterator(() -> terminated.get() > 0);
+        iterator.add(testInput());
+        iterator.next();
+
+        CompletableFuture<Boolean> hasNext = CompletableFuture.supplyAsync(iterator::hasNext);
+        terminated.incrementAndGet();
+        assertFalse(hasNext.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.rub.nds.anvilcore.annotation.TestStrength;
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import java.lang.reflect.Method;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class IncrementalRunTest {
+
+    @TestStrength(2)
+    void templateWithStrength() {}
+
+    @TestStrength(3)
+    void otherTemplateWithStrength() {}
+
+    @Test
+    public void fingerprint_isStable() throws NoSuchMethodException {
+        Method template = IncrementalRunTest.class.getDeclaredMethod("templateWithStrength");
+        assertEquals(
+                IncrementalRun.fingerprint(template, 2, "config", "model"),
+                IncrementalRun.fingerprint(template, 2, "config", "model"));
+    }
+
+    @Test
+    public void fingerprint_coversStrengthConfigScopeAndModel() throws NoSuchMethodException {
+        Method template = IncrementalRunTest.class.getDeclaredMethod("templateWithStrength");
+        Method other = IncrementalRunTest.class.getDeclaredMethod("otherTemplateWithStrength");
+        String fingerprint = IncrementalRun.fingerprint(template, 2, "config", "model");
+        assertNotEquals(fingerprint, IncrementalRun.fingerprint(template, 3, "config", "model"));
+        assertNotEquals(fingerprint, IncrementalRun.fingerprint(template, 2, "changed", "model"));
+        assertNotEquals(fingerprint, IncrementalRun.fingerprint(other, 2, "config", "model"));
+        assertNotEquals(fingerprint, IncrementalRun.fingerprint(template, 2, "config", "changed"));
+    }
+
+    @Test
+    public void fingerprintConfig_ignoresExecutionOptions() throws JsonProcessingException {
+        AnvilTestConfig config = new AnvilTestConfig();
+        config.setOutputFolder("first");
+        String fingerprint = IncrementalRun.fingerprintConfig(config, configString(config));
+        config.setOutputFolder("second");
+        assertEquals(fingerprint, IncrementalRun.fingerprintConfig(config, configString(config)));
+        config.setStrength(3);
+        assertNotEquals(
+                fingerprint, IncrementalRun.fingerprintConfig(config, configString(config)));
+    }
+
+    private static String configString(AnvilTestConfig config) throws JsonProcessingException {
+        // implementations usually embed the anvil config in their own config
+        return new ObjectMapper()
+                .writeValueAsString(Map.of("anvilTestConfig", config, "timeout", 100));
+    }
+}
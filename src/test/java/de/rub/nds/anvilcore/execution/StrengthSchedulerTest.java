@@ -0,0 +1,59 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class StrengthSchedulerTest {
+
+    private static StrengthHistory history(long millisPerCase) {
+        StrengthHistory history = new StrengthHistory();
+        history.record("high", 1, 10, 10 * millisPerCase);
+        history.record("high", 2, 40, 40 * millisPerCase);
+        history.record("low", 1, 10, 10 * millisPerCase);
+        return history;
+    }
+
+    private static StrengthScheduler scheduler(StrengthHistory history, int timeBudget) {
+        AnvilTestConfig config = new AnvilTestConfig();
+        config.setTimeBudget(timeBudget);
+        return new StrengthScheduler(config, history);
+    }
+
+    @Test
+    public void predictTestCases_extrapolatesGrowth() {
+        StrengthHistory history = history(100);
+        assertEquals(40, history.predictTestCases("high", 2));
+        assertEquals(160, history.predictTestCases("high", 3));
+        assertEquals(160, history.predictTestCases("low", 3));
+        assertEquals(40, history.predictTestCases("unknown", 2));
+        assertEquals(100, history.predictMillisPerCase("unknown"), 0.001);
+    }
+
+    @Test
+    public void schedule_raisesStrengthWithinBudget() {
+        StrengthScheduler scheduler = scheduler(history(100), 1);
+        Map<String, Integer> strengths = scheduler.schedule(Map.of("high", 100, "low", 20), 1);
+        assertEquals(3, strengths.get("high"));
+        assertEquals(2, strengths.get("low"));
+        assertEquals(3, scheduler.getScheduledStrength("high"));
+    }
+
+    @Test
+    public void schedule_prefersHighSeverity() {
+        StrengthScheduler scheduler = scheduler(history(1000), 1);
+        Map<String, Integer> strengths = scheduler.schedule(Map.of("high", 100, "low", 20), 1);
+        assertEquals(2, strengths.get("high"));
+        assertEquals(1, strengths.get("low"));
+    }
+}
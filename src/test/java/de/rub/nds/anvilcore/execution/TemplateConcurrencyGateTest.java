@@ -0,0 +1,133 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.execution;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.rub.nds.anvilcore.context.AnvilTestConfig;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class TemplateConcurrencyGateTest {
+
+    private static AnvilTestConfig config(int parallelTests, int parallelTestCases) {
+        AnvilTestConfig config = new AnvilTestConfig();
+        config.setParallelTests(parallelTests);
+        config.setParallelTestCases(parallelTestCases);
+        return config;
+    }
+
+    @Test
+    public void enter_boundsTemplatesAndRunsTemplatesOfAClassSequentially() throws Exception {
+        TemplateConcurrencyGate gate = new TemplateConcurrencyGate(config(3, 4));
+        Class<?>[] testClasses = {String.class, Integer.class, Long.class, Double.class};
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        Map<Class<?>, AtomicInteger> activeByClass = new ConcurrentHashMap<>();
+        AtomicInteger maxActiveOfClass = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 48; i++) {
+                Class<?> testClass = testClasses[i % testClasses.length];
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    try (TemplateConcurrencyGate.Pass pass =
+                                            gate.enter(testClass)) {
+                                        AtomicInteger ofClass =
+                                                activeByClass.computeIfAbsent(
+                                                        testClass, key -> new AtomicInteger());
+                                        maxActive.accumulateAndGet(
+                                                active.incrementAndGet(), Math::max);
+                                        maxActiveOfClass.accumulateAndGet(
+                                                ofClass.incrementAndGet(), Math::max);
+                                        Thread.sleep(2);
+                                        ofClass.decrementAndGet();
+                                        active.decrementAndGet();
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertTrue(maxActive.get() <= 3);
+        assertEquals(1, maxActiveOfClass.get());
+    }
+
+    @Test
+    public void enter_nestedTemplateWaitsForThePermitsOfTheOuterTemplate() throws Exception {
+        TemplateConcurrencyGate gate = new TemplateConcurrencyGate(config(1, 2));
+        AtomicBoolean outerClosed = new AtomicBoolean();
+        TemplateConcurrencyGate.Pass outer = gate.enter(String.class);
+        // the last test case of the outer template finishes on another worker
+        CompletableFuture<Void> lastTestCase =
+                CompletableFuture.runAsync(
+                        () -> {
+                            try {
+                                Thread.sleep(100);
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                            outerClosed.set(true);
+                            outer.close();
+                        });
+        // meanwhile the worker of the outer template picks up another template
+        try (TemplateConcurrencyGate.Pass inner = gate.enter(String.class)) {
+            assertTrue(outerClosed.get());
+        }
+        lastTestCase.get(5, TimeUnit.SECONDS);
+        outer.close();
+
+        // closing the outer pass again must not free an additional permit
+        try (TemplateConcurrencyGate.Pass first = gate.enter(Long.class)) {
+            CompletableFuture<TemplateConcurrencyGate.Pass> second =
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return gate.enter(Double.class);
+                                } catch (InterruptedException e) {
+                                    throw new RuntimeException(e);
+                                }
+                            });
+            assertThrows(TimeoutException.class, () -> second.get(100, TimeUnit.MILLISECONDS));
+            first.close();
+            second.get(5, TimeUnit.SECONDS).close();
+        }
+        Semaphore permits = gate.newTestCasePermits();
+        assertEquals(2, permits.availablePermits());
+    }
+
+    @Test
+    public void isEnabled_onlyForConcurrentTestCases() {
+        assertFalse(new TemplateConcurrencyGate(config(4, 1)).isEnabled());
+        assertTrue(new TemplateConcurrencyGate(config(1, 2)).isEnabled());
+    }
+}
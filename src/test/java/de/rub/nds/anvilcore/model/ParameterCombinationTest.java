@@ -0,0 +1,96 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.model;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import de.rub.nds.anvilcore.model.parameter.DerivationParameter;
+import de.rub.nds.anvilcore.model.parameter.ParameterIdentifier;
+import de.rub.nds.anvilcore.model.parameter.ParameterScope;
+import de.rub.nds.anvilcore.model.parameter.ParameterType;
+import de.rub.nds.anvilcore.model.parameter.TestAnvilConfig;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class ParameterCombinationTest {
+
+    private enum TestParameterType implements ParameterType {
+        LENGTH,
+        PADDING;
+
+        @Override
+        public DerivationParameter getInstance(ParameterScope scope) {
+            return new TestParameter(new ParameterIdentifier(this, scope), 0);
+        }
+    }
+
+    private static class TestParameter extends DerivationParameter<TestAnvilConfig, Integer> {
+
+        TestParameter(ParameterIdentifier parameterIdentifier, Integer selectedValue) {
+            super(Integer.class, TestAnvilConfig.class, parameterIdentifier);
+            setSelectedValue(selectedValue);
+        }
+
+        @Override
+        public void applyToConfig(TestAnvilConfig config, DerivationScope derivationScope) {}
+
+        @Override
+        public List<DerivationParameter<TestAnvilConfig, Integer>> getParameterValues(
+                DerivationScope derivationScope) {
+            return List.of();
+        }
+
+        @Override
+        protected DerivationParameter<TestAnvilConfig, Integer> generateValue(
+                Integer selectedValue) {
+            return new TestParameter(
+                    new ParameterIdentifier(
+                            getParameterIdentifier().getParameterType(),
+                            getParameterIdentifier().getParameterScope()),
+                    selectedValue);
+        }
+    }
+
+    @Test
+    public void getParameter_findsParametersLinkedAfterCreation() {
+        ParameterIdentifier lengthIdentifier = new ParameterIdentifier(TestParameterType.LENGTH);
+        ParameterIdentifier paddingIdentifier = new ParameterIdentifier(TestParameterType.PADDING);
+        TestParameter length = new TestParameter(lengthIdentifier, 16);
+        TestParameter padding = new TestParameter(paddingIdentifier, 4);
+        ParameterCombination combination = new ParameterCombination(List.of(length, padding));
+
+        ParameterIdentifier linkedPadding = new ParameterIdentifier(TestParameterType.PADDING);
+        linkedPadding.setLinkedParameterIdentifier(lengthIdentifier);
+        assertFalse(combination.hasParameter(linkedPadding));
+
+        paddingIdentifier.setLinkedParameterIdentifier(lengthIdentifier);
+        assertTrue(combination.hasParameter(linkedPadding));
+        assertSame(padding, combination.getParameter(linkedPadding));
+        assertSame(length, combination.getLinkedParameter(linkedPadding));
+        assertFalse(combination.hasParameter(new ParameterIdentifier(TestParameterType.PADDING)));
+    }
+
+    @Test
+    public void getParameter_distinguishesLinkedValuesOfTheSameType() {
+        ParameterIdentifier lengthIdentifier = new ParameterIdentifier(TestParameterType.LENGTH);
+        TestParameter length = new TestParameter(lengthIdentifier, 16);
+        TestParameter padding =
+                new TestParameter(new ParameterIdentifier(TestParameterType.PADDING), 4);
+        DerivationParameter<TestAnvilConfig, Integer> linkedPadding =
+                padding.createLinkedValue(lengthIdentifier);
+        ParameterCombination combination =
+                new ParameterCombination(List.of(length, padding, linkedPadding));
+
+        assertSame(padding, combination.getParameter(padding.getParameterIdentifier()));
+        assertSame(linkedPadding, combination.getParameter(linkedPadding.getParameterIdentifier()));
+        assertFalse(padding.getParameterIdentifier().hasLinkedParameterIdentifier());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+public class AnvilTestRunTest {
+
+    private static AnvilTestRun testRun() throws NoSuchMethodException {
+        return new AnvilTestRun(
+                AnvilTestRunTest.class,
+                AnvilTestRunTest.class.getDeclaredMethod("testCaseCompleted_claimsCompletionOnce"));
+    }
+
+    private static AnvilTestCase testCase() {
+        AnvilTestCase testCase = new AnvilTestCase();
+        testCase.setTestResult(TestResult.STRICTLY_SUCCEEDED);
+        return testCase;
+    }
+
+    @Test
+    public void testCaseCompleted_claimsCompletionOnce() throws Exception {
+        int testCases = 64;
+        AnvilTestRun testRun = testRun();
+        testRun.setExpectedTestCases(testCases);
+        testRun.setReadyForCompletion(true);
+        List<AnvilTestCase> added = new ArrayList<>();
+        for (int i = 0; i < testCases; i++) {
+            AnvilTestCase testCase = testCase();
+            testRun.addTestCase(testCase);
+            added.add(testCase);
+        }
+
+        AtomicInteger claims = new AtomicInteger();
+        CyclicBarrier start = new CyclicBarrier(8);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                int first = thread;
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    start.await();
+                                    for (int i = first; i < testCases; i += 8) {
+                                        if (testRun.testCaseCompleted(added.get(i))) {
+                                            claims.incrementAndGet();
+                                        }
+                                        // watchers of other test cases may claim at any time
+                                        if (testRun.claimCompletion()) {
+                                            claims.incrementAndGet();
+                                        }
+                                    }
+                                    return null;
+                                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, claims.get());
+        assertEquals(testCases, testRun.getTestCaseHistogram().getTotal());
+        assertFalse(testRun.claimCompletion());
+    }
+
+    @Test
+    public void claimCompletion_waitsForPendingTestCases() throws Exception {
+        AnvilTestRun testRun = testRun();
+        testRun.setExpectedTestCases(1);
+        AnvilTestCase first = testCase();
+        AnvilTestCase second = testCase();
+        testRun.addTestCase(first);
+        testRun.addTestCase(second);
+
+        // not ready before coffee4j finished the input group
+        assertFalse(testRun.testCaseCompleted(first));
+        testRun.setReadyForCompletion(true);
+        assertFalse(testRun.claimCompletion());
+        assertTrue(testRun.testCaseCompleted(second));
+        assertFalse(testRun.claimCompletion());
+    }
+}
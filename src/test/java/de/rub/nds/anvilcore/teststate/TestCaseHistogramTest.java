@@ -0,0 +1,63 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.teststate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+public class TestCaseHistogramTest {
+
+    private static AnvilTestCase testCase(TestResult testResult, String failure) {
+        AnvilTestCase testCase = new AnvilTestCase();
+        testCase.setTestResult(testResult);
+        if (failure != null) {
+            testCase.setFailedReason(new AssertionError(failure));
+        }
+        return testCase;
+    }
+
+    @Test
+    public void idOf_groupsNormalizedDetails() {
+        FailureDetailDictionary dictionary = new FailureDetailDictionary();
+        int id = dictionary.idOf("Unexpected  message java.lang.Object@1b6d3586 ");
+        assertEquals(id, dictionary.idOf("Unexpected message java.lang.Object@4554617c"));
+        // the first detail is reported unchanged
+        assertEquals("Unexpected  message java.lang.Object@1b6d3586 ", dictionary.get(id));
+        assertSame(dictionary.get(id), dictionary.intern("Unexpected message java.lang.Object"));
+        assertEquals(1, dictionary.size());
+    }
+
+    @Test
+    public void record_countsResultsAndFailureDetails() {
+        TestCaseHistogram histogram = new TestCaseHistogram(new FailureDetailDictionary());
+        histogram.record(testCase(TestResult.STRICTLY_SUCCEEDED, null));
+        histogram.record(testCase(TestResult.FULLY_FAILED, "alert expected"));
+        histogram.record(testCase(TestResult.FULLY_FAILED, "alert expected"));
+        histogram.record(testCase(TestResult.PARTIALLY_FAILED, "alert expected"));
+        histogram.record(testCase(TestResult.FULLY_FAILED, "connection closed"));
+
+        assertEquals(5, histogram.getTotal());
+        assertEquals(
+                Map.of(
+                        TestResult.STRICTLY_SUCCEEDED, 1,
+                        TestResult.FULLY_FAILED, 3,
+                        TestResult.PARTIALLY_FAILED, 1),
+                histogram.getResultCounts());
+        String alertExpected = "failure reason: alert expected.";
+        assertEquals(
+                Map.of(alertExpected, 2, "failure reason: connection closed.", 1),
+                histogram.getFailureDetailCounts(TestResult.FULLY_FAILED));
+        assertEquals(
+                Map.of(alertExpected, 3, "failure reason: connection closed.", 1),
+                histogram.getFailureDetailCounts());
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ParallelZipPackagerTest {
+
+    @TempDir Path outputFolder;
+
+    @Test
+    public void finish_packsAddedAndRemainingFiles() throws Exception {
+        Map<String, byte[]> files = new TreeMap<>();
+        byte[] randomPcap = new byte[20000];
+        new Random(1).nextBytes(randomPcap);
+        files.put("results/test1/_testRun.json", "{\"Result\":1}".repeat(500).getBytes());
+        files.put("results/test1/dump_1.pcap", randomPcap);
+        files.put("results/test2/_testRun.json", new byte[0]);
+        files.put("report.json", "{}".getBytes(StandardCharsets.UTF_8));
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            Path path = outputFolder.resolve(file.getKey());
+            Files.createDirectories(path.getParent());
+            Files.write(path, file.getValue());
+        }
+
+        ParallelZipPackager packager = new ParallelZipPackager(outputFolder, "report.zip", -1, 1);
+        packager.addFolder(outputFolder.resolve("results/test1"));
+        packager.finish();
+
+        try (ZipFile zipFile = new ZipFile(outputFolder.resolve("report.zip").toFile())) {
+            assertEquals(files.size(), zipFile.size());
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                ZipEntry entry = zipFile.getEntry(file.getKey());
+                assertNotNull(entry, file.getKey());
+                assertArrayEquals(file.getValue(), zipFile.getInputStream(entry).readAllBytes());
+            }
+            // random data does not shrink and is stored
+            assertEquals(
+                    ZipEntry.STORED, zipFile.getEntry("results/test1/dump_1.pcap").getMethod());
+            assertEquals(
+                    ZipEntry.DEFLATED, zipFile.getEntry("results/test1/_testRun.json").getMethod());
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.worker;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Minimal local controller for tests. Commands offered with {@link #push(String)} are streamed as
+ * server-sent events to a worker listening on {@code worker/commands/<id>} until {@link
+ * #closeChannel()} is called. Workers are registered with the id {@code worker-1}, the bodies of
+ * {@code worker/fetch} requests are recorded and answered with an {@code OK} command. Updates
+ * posted to {@code worker/update/...} are recorded with their decompressed body.
+ */
+class StubController implements AutoCloseable {
+
+    private static final String API_URL = "/api/v2/";
+    private static final String END_OF_CHANNEL = "";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final BlockingQueue<String> commands = new LinkedBlockingQueue<>();
+    private final List<String> requestedPaths = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<String> updates = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> fetches = new LinkedBlockingQueue<>();
+    private final AtomicInteger failingUpdates = new AtomicInteger();
+    private volatile boolean commandChannelSupported = true;
+    private volatile boolean closeChannelImmediately = false;
+
+    StubController() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // the command channel blocks its handler, other requests must not wait for it
+        server.setExecutor(executor);
+        server.createContext(API_URL + "worker/commands/", this::handleCommands);
+        server.createContext(API_URL + "worker/update/", this::handleUpdate);
+        server.createContext(
+                API_URL + "worker/register",
+                exchange -> respond(exchange, "{\"id\":\"worker-1\"}"));
+        server.createContext(
+                API_URL + "worker/fetch",
+                exchange -> {
+                    fetches.add(
+                            new String(
+                                    exchange.getRequestBody().readAllBytes(),
+                                    StandardCharsets.UTF_8));
+                    respond(exchange, "{\"command\":\"OK\"}");
+                });
+        server.start();
+    }
+
+    String getHostname() {
+        return "localhost:" + server.getAddress().getPort();
+    }
+
+    String getBaseUrl() {
+        return "http://" + getHostname() + API_URL;
+    }
+
+    List<String> getRequestedPaths() {
+        return requestedPaths;
+    }
+
+    /**
+     * @return the bodies of the received {@code worker/fetch} requests
+     */
+    BlockingQueue<String> getFetches() {
+        return fetches;
+    }
+
+    void setCommandChannelSupported(boolean commandChannelSupported) {
+        this.commandChannelSupported = commandChannelSupported;
+    }
+
+    void setCloseChannelImmediately(boolean closeChannelImmediately) {
+        this.closeChannelImmediately = closeChannelImmediately;
+    }
+
+    /**
+     * @return the received updates as path and body separated by a space, in the order they were
+     *     received, including rejected ones
+     */
+    BlockingQueue<String> getUpdates() {
+        return updates;
+    }
+
+    /**
+     * @param count the number of following updates that are rejected with status 503
+     */
+    void failNextUpdates(int count) {
+        failingUpdates.set(count);
+    }
+
+    void push(String command) {
+        commands.add(command);
+    }
+
+    void closeChannel() {
+        commands.add(END_OF_CHANNEL);
+    }
+
+    private void handleCommands(HttpExchange exchange) throws IOException {
+        requestedPaths.add(exchange.getRequestURI().getPath());
+        if (!commandChannelSupported) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(": connected\n\n".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            if (closeChannelImmediately) {
+                return;
+            }
+            while (true) {
+                String command = commands.poll(10, TimeUnit.SECONDS);
+                if (command == null || command.equals(END_OF_CHANNEL)) {
+                    return;
+                }
+                StringBuilder event = new StringBuilder();
+                for (String line : command.split("\n")) {
+                    event.append("data: ").append(line).append('\n');
+                }
+                event.append('\n');
+                output.write(event.toString().getBytes(StandardCharsets.UTF_8));
+                output.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private void handleUpdate(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requestedPaths.add(path);
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = input.readAllBytes();
+            }
+        }
+        updates.add(path + " " + new String(body, StandardCharsets.UTF_8));
+        boolean fail = failingUpdates.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+        exchange.sendResponseHeaders(fail ? 503 : 200, -1);
+        exchange.close();
+    }
+
+    @Override
+    public void close() {
+        closeChannel();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.worker;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class WorkerClientTest {
+
+    private static Thread startWorker(WorkerClient worker) {
+        Thread thread =
+                new Thread(
+                        () -> {
+                            try {
+                                worker.run();
+                            } catch (InterruptedException e) {
+                                // stopped by the test
+                            }
+                        },
+                        "worker");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void run_delaysReconnectsToClosedChannel() throws Exception {
+        try (StubController controller = new StubController()) {
+            controller.setCloseChannelImmediately(true);
+            WorkerClient worker = new WorkerClient(controller.getHostname(), null);
+            worker.setPollingMillis(60_000);
+            Thread thread = startWorker(worker);
+            try {
+                Thread.sleep(2500);
+            } finally {
+                thread.interrupt();
+            }
+            thread.join(5000);
+
+            // reconnecting after 1 s and 2 s more, instead of right away
+            long connects =
+                    controller.getRequestedPaths().stream()
+                            .filter(path -> path.contains("worker/commands/"))
+                            .count();
+            assertTrue(connects >= 1 && connects <= 3, connects + " connects");
+        }
+    }
+
+    @Test
+    public void run_sendsHeartbeatOnlyWhenStatusChanged() throws Exception {
+        try (StubController controller = new StubController()) {
+            WorkerClient worker = new WorkerClient(controller.getHostname(), null);
+            worker.setPollingMillis(100);
+            Thread thread = startWorker(worker);
+            try {
+                String heartbeat = controller.getFetches().poll(5, TimeUnit.SECONDS);
+                assertNotNull(heartbeat, "Status was not reported");
+                assertTrue(heartbeat.contains("\"status\":\"IDLE\""), heartbeat);
+
+                // the command channel stays open and the status did not change
+                Thread.sleep(1000);
+                assertTrue(controller.getFetches().size() <= 1, "Unchanged status was resent");
+            } finally {
+                thread.interrupt();
+            }
+        }
+    }
+
+    @Test
+    public void run_pollsIfChannelIsUnsupported() throws Exception {
+        try (StubController controller = new StubController()) {
+            controller.setCommandChannelSupported(false);
+            WorkerClient worker = new WorkerClient(controller.getHostname(), null);
+            worker.setPollingMillis(100);
+            Thread thread = startWorker(worker);
+            try {
+                for (int i = 0; i < 3; i++) {
+                    assertNotNull(
+                            controller.getFetches().poll(5, TimeUnit.SECONDS),
+                            "Worker did not poll for commands");
+                }
+            } finally {
+                thread.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.worker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.http.HttpClient;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class WorkerCommandChannelTest {
+
+    @Test
+    public void listen_receivesPushedCommands() throws Exception {
+        try (StubController controller = new StubController()) {
+            BlockingQueue<Map<?, ?>> received = new LinkedBlockingQueue<>();
+            WorkerCommandChannel channel =
+                    new WorkerCommandChannel(
+                            HttpClient.newHttpClient(),
+                            controller.getBaseUrl(),
+                            new ObjectMapper(),
+                            received::add);
+            CompletableFuture<WorkerCommandChannel.ListenResult> result =
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return channel.listen("worker-1");
+                                } catch (InterruptedException e) {
+                                    throw new RuntimeException(e);
+                                }
+                            });
+
+            controller.push("{\"command\":\"STOP_RUN\",\"jobId\":\"job-1\"}");
+            Map<?, ?> first = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first, "Command was not delivered");
+            assertEquals("STOP_RUN", first.get("command"));
+            assertEquals("job-1", first.get("jobId"));
+
+            // data spread across multiple lines forms a single command
+            controller.push("{\"command\":\"QUEUE_RUN\",\n\"job\":{\"id\":\"job-2\"}}");
+            Map<?, ?> second = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(second, "Command was not delivered");
+            assertEquals("QUEUE_RUN", second.get("command"));
+
+            controller.closeChannel();
+            assertEquals(
+                    WorkerCommandChannel.ListenResult.CLOSED, result.get(5, TimeUnit.SECONDS));
+            assertEquals("/api/v2/worker/commands/worker-1", controller.getRequestedPaths().get(0));
+        }
+    }
+
+    @Test
+    public void listen_reportsMissingChannel() throws Exception {
+        try (StubController controller = new StubController()) {
+            controller.setCommandChannelSupported(false);
+            WorkerCommandChannel channel =
+                    new WorkerCommandChannel(
+                            HttpClient.newHttpClient(),
+                            controller.getBaseUrl(),
+                            new ObjectMapper(),
+                            command -> {});
+            assertEquals(WorkerCommandChannel.ListenResult.UNSUPPORTED, channel.listen("worker-1"));
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Anvil Core - A combinatorial testing framework for cryptographic protocols based on coffee4j
+ *
+ * Copyright 2022-2023 Ruhr University Bochum, Paderborn University, and Hackmanit GmbH
+ *
+ * Licensed under Apache License, Version 2.0
+ * http://www.apache.org/licenses/LICENSE-2.0.txt
+ */
+package de.rub.nds.anvilcore.worker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+public class WorkerUpdatePipelineTest {
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void flush_sendsPendingUpdatesInOneBatch() throws Exception {
+        try (StubController controller = new StubController()) {
+            WorkerUpdatePipeline pipeline =
+                    new WorkerUpdatePipeline(HttpClient.newHttpClient(), controller.getBaseUrl());
+            pipeline.submit("worker/update/testcase", bytes("{\"n\":1}"));
+            pipeline.submit("worker/update/testrun", bytes("{\"n\":2}"));
+
+            assertTrue(pipeline.flush(5, TimeUnit.SECONDS));
+            assertEquals(
+                    "/api/v2/worker/update/batch {\"updates\":["
+                            + "{\"location\":\"worker/update/testcase\",\"update\":{\"n\":1}},"
+                            + "{\"location\":\"worker/update/testrun\",\"update\":{\"n\":2}}]}",
+                    controller.getUpdates().poll());
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void flush_retriesRejectedBatch() throws Exception {
+        try (StubController controller = new StubController()) {
+            WorkerUpdatePipeline pipeline =
+                    new WorkerUpdatePipeline(HttpClient.newHttpClient(), controller.getBaseUrl());
+            controller.failNextUpdates(WorkerUpdatePipeline.MAX_ATTEMPTS - 1);
+            pipeline.submit("worker/update/status", bytes("{}"));
+
+            assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+            assertEquals(WorkerUpdatePipeline.MAX_ATTEMPTS, controller.getUpdates().size());
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void close_sendsRemainingUpdatesAndDropsLaterOnes() throws Exception {
+        try (StubController controller = new StubController()) {
+            WorkerUpdatePipeline pipeline =
+                    new WorkerUpdatePipeline(HttpClient.newHttpClient(), controller.getBaseUrl());
+            pipeline.submit("worker/update/status", bytes("{}"));
+            pipeline.submitBinary("worker/update/pcap", bytes("{}"), new byte[] {1, 2, 3});
+
+            pipeline.close();
+            String batch = controller.getUpdates().poll();
+            assertNotNull(batch, "Batch was not sent before closing");
+            assertTrue(batch.startsWith("/api/v2/worker/update/batch "));
+            String upload = controller.getUpdates().poll();
+            assertNotNull(upload, "Upload was not sent before closing");
+            assertTrue(upload.startsWith("/api/v2/worker/update/pcap "));
+
+            pipeline.submit("worker/update/status", bytes("{}"));
+            assertTrue(pipeline.flush(1, TimeUnit.SECONDS));
+            assertNull(controller.getUpdates().poll(500, TimeUnit.MILLISECONDS));
+        }
+    }
+}